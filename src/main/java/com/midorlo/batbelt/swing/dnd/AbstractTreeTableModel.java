@@ -2,6 +2,8 @@ package com.midorlo.batbelt.swing.dnd;
 
 import javax.swing.tree.*;
 import javax.swing.event.*;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 /**
  * An abstract implementation of the TreeTableModel interface, handling the list
@@ -22,6 +24,16 @@ import javax.swing.event.*;
  *     return Object.class;
  * }
  * </code></pre>
+ * <br>
+ * Optionally, the model may maintain an index of the children of each
+ * parent node, so that {@link #getIndexOfChild(Object, Object)} does not
+ * have to scan all children. This index is keyed by the identity of the
+ * nodes, and thus, is only useful when {@link #getChild(Object, int)}
+ * returns the same instances for repeated calls. Children that are not
+ * found in the index are searched with <code>equals</code>. The index for
+ * a parent is discarded when a change of its children is reported via one
+ * of the <code>fire...</code> methods, and re-created when it is needed
+ * next. The indices of removed nodes are discarded as well.
  */
 public abstract class AbstractTreeTableModel implements TreeTableModel
 {
@@ -36,13 +48,40 @@ public abstract class AbstractTreeTableModel implements TreeTableModel
     private final EventListenerList listenerList = new EventListenerList();
 
     /**
-     * Default constructor
+     * The mapping from parent nodes to the mappings from their children
+     * to the indices of the children. This is <code>null</code> if the
+     * children are not indexed.
+     */
+    private final Map<Object, Map<Object, Integer>> childIndices;
+
+    /**
+     * Default constructor. The children will not be indexed.
      *
      * @param root The root node of the tree
      */
     protected AbstractTreeTableModel(Object root)
+    {
+        this(root, false);
+    }
+
+    /**
+     * Creates a new model with the given root
+     *
+     * @param root The root node of the tree
+     * @param indexingChildren Whether the model should maintain an index of
+     * the children of each node, for {@link #getIndexOfChild(Object, Object)}
+     */
+    protected AbstractTreeTableModel(Object root, boolean indexingChildren)
     {
         this.root = root;
+        if (indexingChildren)
+        {
+            this.childIndices = new IdentityHashMap<Object, Map<Object, Integer>>();
+        }
+        else
+        {
+            this.childIndices = null;
+        }
     }
 
     @Override
@@ -66,7 +105,20 @@ public abstract class AbstractTreeTableModel implements TreeTableModel
     @Override
     public int getIndexOfChild(Object parent, Object child)
     {
-        for (int i = 0; i < getChildCount(parent); i++)
+        if (parent == null || child == null)
+        {
+            return -1;
+        }
+        if (childIndices != null)
+        {
+            int index = getIndexedIndexOfChild(parent, child);
+            if (index != -1)
+            {
+                return index;
+            }
+        }
+        int n = getChildCount(parent);
+        for (int i = 0; i < n; i++)
         {
             if (getChild(parent, i).equals(child))
             {
@@ -76,6 +128,127 @@ public abstract class AbstractTreeTableModel implements TreeTableModel
         return -1;
     }
 
+    /**
+     * Returns the index of the given child in the given parent, based on
+     * the index of the children of the parent. The index for the parent is
+     * created if it does not exist yet. If the indexed position does not
+     * match the current child at this position, then the index for the
+     * parent is re-created once. If the child is not found in the index
+     * (for example, because it is only equal, but not identical to one of
+     * the children), then -1 is returned, and the index is kept.
+     *
+     * @param parent The parent
+     * @param child The child
+     * @return The index of the child
+     */
+    private int getIndexedIndexOfChild(Object parent, Object child)
+    {
+        Map<Object, Integer> indices = childIndices.get(parent);
+        if (indices == null)
+        {
+            indices = createChildIndices(parent);
+            childIndices.put(parent, indices);
+        }
+        Integer index = indices.get(child);
+        if (index == null)
+        {
+            return -1;
+        }
+        if (isChildAt(parent, child, index))
+        {
+            return index;
+        }
+        // The children have been changed without a notification
+        indices = createChildIndices(parent);
+        childIndices.put(parent, indices);
+        index = indices.get(child);
+        if (index == null)
+        {
+            return -1;
+        }
+        return index;
+    }
+
+    /**
+     * Returns whether the given child is the child of the given parent
+     * at the given index
+     *
+     * @param parent The parent
+     * @param child The child
+     * @param index The index
+     * @return Whether the child is at the index
+     */
+    private boolean isChildAt(Object parent, Object child, int index)
+    {
+        return index < getChildCount(parent) &&
+            getChild(parent, index) == child;
+    }
+
+    /**
+     * Create the mapping from the children of the given parent to their
+     * indices
+     *
+     * @param parent The parent
+     * @return The mapping
+     */
+    private Map<Object, Integer> createChildIndices(Object parent)
+    {
+        int n = getChildCount(parent);
+        Map<Object, Integer> indices = new IdentityHashMap<Object, Integer>(n);
+        for (int i = 0; i < n; i++)
+        {
+            indices.putIfAbsent(getChild(parent, i), i);
+        }
+        return indices;
+    }
+
+    /**
+     * Discard the index of the children of the last node in the given path,
+     * and of the given children and their indexed descendants, if the 
+     * children are indexed
+     *
+     * @param path The tree path
+     * @param children The children
+     */
+    private void invalidateChildIndices(Object[] path, Object[] children)
+    {
+        if (childIndices == null)
+        {
+            return;
+        }
+        if (path == null || path.length == 0)
+        {
+            childIndices.clear();
+            return;
+        }
+        childIndices.remove(path[path.length - 1]);
+        if (children != null)
+        {
+            for (Object child : children)
+            {
+                removeChildIndices(child);
+            }
+        }
+    }
+
+    /**
+     * Discard the index of the children of the given node, and of all
+     * descendants that are reachable via the indices
+     *
+     * @param node The node
+     */
+    private void removeChildIndices(Object node)
+    {
+        Map<Object, Integer> indices = childIndices.remove(node);
+        if (indices != null)
+        {
+            for (Object child : indices.keySet())
+            {
+                removeChildIndices(child);
+            }
+        }
+    }
+
     @Override
     public void addTreeModelListener(TreeModelListener l)
     {
@@ -130,6 +303,7 @@ public abstract class AbstractTreeTableModel implements TreeTableModel
     protected final void fireTreeNodesInserted(
             Object source, Object[] path, int[] childIndices, Object[] children)
     {
+        invalidateChildIndices(path, null);
         Object[] listeners = listenerList.getListenerList();
         TreeModelEvent e = null;
         for (int i = listeners.length - 2; i >= 0; i -= 2)
@@ -159,6 +333,7 @@ public abstract class AbstractTreeTableModel implements TreeTableModel
     protected final void fireTreeNodesRemoved(
             Object source, Object[] path, int[] childIndices, Object[] children)
     {
+        invalidateChildIndices(path, children);
         Object[] listeners = listenerList.getListenerList();
         TreeModelEvent e = null;
         for (int i = listeners.length - 2; i >= 0; i -= 2)
@@ -188,6 +363,7 @@ public abstract class AbstractTreeTableModel implements TreeTableModel
     protected final void fireTreeStructureChanged(
             Object source, Object[] path, int[] childIndices, Object[] children)
     {
+        invalidateChildIndices(null, null);
         Object[] listeners = listenerList.getListenerList();
         TreeModelEvent e = null;
         for (int i = listeners.length - 2; i >= 0; i -= 2)
@@ -5,6 +5,7 @@ import org.jdesktop.swingx.treetable.TreeTableModel;
 import javax.swing.*;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
+import javax.swing.event.TableModelEvent;
 import javax.swing.table.TableCellEditor;
 import javax.swing.table.TableCellRenderer;
 import javax.swing.tree.*;
@@ -28,6 +29,12 @@ public class JTreeTable extends JTable {
      */
     private final        TreeTableCellRenderer tree;
 
+    /**
+     * The selection model that is shared between the table and the tree.
+     * This is <code>null</code> until the constructor assigned it.
+     */
+    private ListToTreeSelectionModelWrapper selectionWrapper;
+
     /**
      * Creates a new JTreeTable that is backed by the given
      * {@link TreeTableModel}
@@ -42,8 +49,7 @@ public class JTreeTable extends JTable {
         super.setModel(new TreeTableModelAdapter(treeTableModel, tree));
 
         // Force the JTable and JTree to share their row selection models.
-        ListToTreeSelectionModelWrapper selectionWrapper =
-                new ListToTreeSelectionModelWrapper();
+        selectionWrapper = new ListToTreeSelectionModelWrapper();
         tree.setSelectionModel(selectionWrapper);
         setSelectionModel(selectionWrapper.getListSelectionModel());
 
@@ -77,6 +83,31 @@ public class JTreeTable extends JTable {
         }
     }
 
+    /**
+     * Overridden to keep the selection of the tree. The table would adjust
+     * (or, for a data change, clear) the selection of the rows, although the
+     * tree already updated the selected rows based on the selected paths.
+     * Therefore, the selected paths are not updated from the rows while the
+     * table processes the event, and afterwards, the selected rows are
+     * updated from the paths.
+     */
+    @Override
+    public void tableChanged(TableModelEvent e) {
+
+        if (selectionWrapper == null) {
+            super.tableChanged(e);
+            return;
+        }
+        selectionWrapper.updatingListSelectionModel = true;
+        try {
+            super.tableChanged(e);
+        }
+        finally {
+            selectionWrapper.updatingListSelectionModel = false;
+        }
+        selectionWrapper.resetRowSelection();
+    }
+
     /*
      * Workaround for BasicTableUI anomaly. Make sure the UI never tries to
      * paint the editor. The UI currently uses different techniques to paint the
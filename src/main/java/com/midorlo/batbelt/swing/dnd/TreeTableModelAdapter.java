@@ -4,11 +4,29 @@ import javax.swing.*;
 import javax.swing.event.*;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.tree.TreePath;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * This is a wrapper class takes a TreeTableModel and implements the table model
  * interface. The implementation is trivial, with all of the event dispatching
  * support provided by the superclass: the AbstractTableModel.
+ * <p>
+ * The adapter maintains a {@link TreeTableRows} instance that stores the
+ * node and depth of each visible row. It is updated incrementally, based on
+ * the tree expansion and tree model events, and used for looking up the
+ * node for a row, without asking the tree for the path of the row.
+ * <p>
+ * Tree expansion and tree model events are translated into precise
+ * {@link TableModelEvent}s for the rows that have been inserted, deleted or
+ * updated. Since the tree may or may not have finished processing an event
+ * when this adapter is notified, these events are collected and fired
+ * together, via {@link SwingUtilities#invokeLater(Runnable)}, once per
+ * cycle of the event dispatch thread. When the row count of the tree does
+ * not match the rows at this point, or when the structure of the tree
+ * changed, the rows are rebuilt, and a single
+ * {@link #fireTableDataChanged()} is fired instead.
  */
 class TreeTableModelAdapter extends AbstractTableModel {
 
@@ -28,6 +46,29 @@ class TreeTableModelAdapter extends AbstractTableModel {
      */
     private final TreeTableModel treeTableModel;
 
+    /**
+     * The events that have been collected and will be fired in the
+     * next call to {@link #firePendingEvents()}
+     */
+    private final List<TableModelEvent> pendingEvents;
+
+    /**
+     * The visible rows, including the changes of the {@link #pendingEvents}
+     */
+    private final TreeTableRows rows;
+
+    /**
+     * Whether a {@link #fireTableDataChanged()} is pending, replacing
+     * all {@link #pendingEvents}. If this is <code>true</code>, then the
+     * {@link #rows} are not valid until they are rebuilt.
+     */
+    private boolean dataChangedPending;
+
+    /**
+     * Whether a call to {@link #firePendingEvents()} has been scheduled
+     */
+    private boolean firePendingEventsScheduled;
+
     /**
      * Default constructor
      *
@@ -38,67 +79,421 @@ class TreeTableModelAdapter extends AbstractTableModel {
 
         this.tree           = tree;
         this.treeTableModel = treeTableModel;
+        this.pendingEvents  = new ArrayList<>();
+        this.rows           = new TreeTableRows();
+        rebuildRows();
 
         tree.addTreeExpansionListener(new TreeExpansionListener() {
-            // Don't use fireTableRowsInserted() here; the selection model
-            // would get updated twice.
             @Override
             public void treeExpanded(TreeExpansionEvent event) {
 
-                fireTableDataChanged();
+                handleTreeExpanded(event.getPath());
             }
 
             @Override
             public void treeCollapsed(TreeExpansionEvent event) {
 
-                fireTableDataChanged();
+                handleTreeCollapsed(event.getPath());
             }
         });
 
+        // The rows have to be rebuilt when the root visibility or
+        // the model of the tree changes
+        tree.addPropertyChangeListener(JTree.ROOT_VISIBLE_PROPERTY, e -> scheduleDataChanged());
+        tree.addPropertyChangeListener(JTree.TREE_MODEL_PROPERTY, e -> scheduleDataChanged());
+
         // Install a TreeModelListener that can update the table when
-        // tree changes. We use delayedFireTableDataChanged as we can
+        // tree changes. The resulting events are fired delayed, as we can
         // not be guaranteed the tree will have finished processing
         // the event before us.
         treeTableModel.addTreeModelListener(new TreeModelListener() {
             @Override
             public void treeNodesChanged(TreeModelEvent e) {
 
-                delayedFireTableDataChanged();
+                handleTreeNodesChanged(e);
             }
 
             @Override
             public void treeNodesInserted(TreeModelEvent e) {
 
-                delayedFireTableDataChanged();
+                handleTreeNodesInserted(e);
             }
 
             @Override
             public void treeNodesRemoved(TreeModelEvent e) {
 
-                delayedFireTableDataChanged();
+                handleTreeNodesRemoved(e);
             }
 
             @Override
             public void treeStructureChanged(TreeModelEvent e) {
 
-                delayedFireTableDataChanged();
+                scheduleDataChanged();
             }
         });
     }
 
     /**
-     * Invokes fireTableDataChanged after all the pending events have been
-     * processed. SwingUtilities.invokeLater is used to handle this.
+     * Rebuild the {@link #rows} from the current rows of the tree
      */
-    private void delayedFireTableDataChanged() {
+    private void rebuildRows() {
+
+        rows.clear();
+        int treeRowCount = tree.getRowCount();
+        for (int r = 0; r < treeRowCount; r++) {
+            TreePath path = tree.getPathForRow(r);
+            rows.add(path.getLastPathComponent(), path.getPathCount() - 1);
+        }
+    }
 
-        SwingUtilities.invokeLater(new Runnable() {
-            @Override
-            public void run() {
+    /**
+     * Returns the row for the given path in the {@link #rows}. For an
+     * invisible root, -1 is returned, so that its first child is at row 0.
+     * For paths that are not contained in the rows, -2 is returned.
+     * <p>
+     * The row is looked up in the tree, and validated with the rows. If the
+     * tree returns a different row (because it did or did not yet process a
+     * change), then the rows that display the children of the parent path are
+     * searched.
+     *
+     * @param path The path
+     *
+     * @return The row
+     */
+    private int rowForPath(TreePath path) {
 
-                fireTableDataChanged();
+        TreePath parentPath = path.getParentPath();
+        if (parentPath == null) {
+            if (!tree.isRootVisible()) {
+                return -1;
             }
-        });
+            return rows.size() > 0 && rows.getNode(0) == path.getLastPathComponent() ? 0 : -2;
+        }
+        Object node = path.getLastPathComponent();
+        int    row  = tree.getRowForPath(path);
+        if (row >= 0 && row < rows.size() && rows.getNode(row) == node
+                && rows.getDepth(row) == path.getPathCount() - 1) {
+            return row;
+        }
+        int parentRow = rowForPath(parentPath);
+        if (parentRow == -2) {
+            return -2;
+        }
+        int end = rows.getSubtreeEnd(parentRow);
+        int r   = parentRow + 1;
+        while (r < end) {
+            if (rows.getNode(r) == node) {
+                return r;
+            }
+            r = rows.getSubtreeEnd(r);
+        }
+        return -2;
+    }
+
+    /**
+     * Collect the visible descendants of the given expanded path, according
+     * to the expansion state (but not the rows) of the tree, in the order in
+     * which they appear in the tree
+     *
+     * @param path   The path
+     * @param result The rows that will receive the descendants
+     */
+    private void collectVisibleDescendants(TreePath path, TreeTableRows result) {
+
+        Object node  = path.getLastPathComponent();
+        int    depth = path.getPathCount();
+        int    n     = treeTableModel.getChildCount(node);
+        for (int i = 0; i < n; i++) {
+            Object child = treeTableModel.getChild(node, i);
+            result.add(child, depth);
+            if (!treeTableModel.isLeaf(child)) {
+                TreePath childPath = path.pathByAddingChild(child);
+                if (tree.isExpanded(childPath)) {
+                    collectVisibleDescendants(childPath, result);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether the rows for the children of the node in the given row
+     * are currently contained in the {@link #rows}
+     *
+     * @param row The row
+     *
+     * @return Whether the children are shown
+     */
+    private boolean isShowingChildren(int row) {
+
+        return row == -1 || rows.getSubtreeEnd(row) > row + 1;
+    }
+
+    /**
+     * Insert the given path and its visible descendants at the given row
+     *
+     * @param row  The row
+     * @param path The path
+     */
+    private void insertRows(int row, TreePath path) {
+
+        TreeTableRows inserted = new TreeTableRows();
+        inserted.add(path.getLastPathComponent(), path.getPathCount() - 1);
+        if (tree.isExpanded(path)) {
+            collectVisibleDescendants(path, inserted);
+        }
+        rows.insert(row, inserted);
+        scheduleRowsEvent(row, inserted.size(), TableModelEvent.INSERT);
+    }
+
+    /**
+     * Remove the given row and the rows of its descendants
+     *
+     * @param row The row
+     */
+    private void removeRows(int row) {
+
+        int count = rows.getSubtreeEnd(row) - row;
+        rows.remove(row, count);
+        scheduleRowsEvent(row, count, TableModelEvent.DELETE);
+    }
+
+    /**
+     * Handle the expansion of the given path in the tree
+     *
+     * @param path The path
+     */
+    private void handleTreeExpanded(TreePath path) {
+
+        if (dataChangedPending) {
+            return;
+        }
+        int row = rowForPath(path);
+        if (row == -2) {
+            // The path was expanded while one of its ancestors was
+            // collapsed, so the ancestors have been expanded as well
+            scheduleDataChanged();
+            return;
+        }
+        if (isShowingChildren(row)) {
+            return;
+        }
+        TreeTableRows inserted = new TreeTableRows();
+        collectVisibleDescendants(path, inserted);
+        rows.insert(row + 1, inserted);
+        scheduleRowsEvent(row + 1, inserted.size(), TableModelEvent.INSERT);
+    }
+
+    /**
+     * Handle the collapsing of the given path in the tree
+     *
+     * @param path The path
+     */
+    private void handleTreeCollapsed(TreePath path) {
+
+        if (dataChangedPending) {
+            return;
+        }
+        int row = rowForPath(path);
+        if (row == -2) {
+            // A path that was not visible was collapsed
+            return;
+        }
+        int count = rows.getSubtreeEnd(row) - row - 1;
+        rows.remove(row + 1, count);
+        scheduleRowsEvent(row + 1, count, TableModelEvent.DELETE);
+    }
+
+    /**
+     * Handle the given event about changed nodes
+     *
+     * @param e The event
+     */
+    private void handleTreeNodesChanged(TreeModelEvent e) {
+
+        if (dataChangedPending) {
+            return;
+        }
+        TreePath parentPath = e.getTreePath();
+        Object[] children   = e.getChildren();
+        if (parentPath == null) {
+            scheduleDataChanged();
+            return;
+        }
+        if (children == null) {
+            // The root changed
+            int row = rowForPath(parentPath);
+            if (row >= 0) {
+                scheduleRowsEvent(row, 1, TableModelEvent.UPDATE);
+            }
+            return;
+        }
+        int minRow = Integer.MAX_VALUE;
+        int maxRow = -1;
+        for (Object child : children) {
+            int row = rowForPath(parentPath.pathByAddingChild(child));
+            if (row >= 0) {
+                minRow = Math.min(minRow, row);
+                maxRow = Math.max(maxRow, row);
+            }
+        }
+        if (maxRow >= 0) {
+            scheduleRowsEvent(minRow, maxRow - minRow + 1, TableModelEvent.UPDATE);
+        }
+    }
+
+    /**
+     * Handle the given event about inserted nodes
+     *
+     * @param e The event
+     */
+    private void handleTreeNodesInserted(TreeModelEvent e) {
+
+        if (dataChangedPending) {
+            return;
+        }
+        TreePath parentPath   = e.getTreePath();
+        int[]    childIndices = e.getChildIndices();
+        if (parentPath == null || childIndices == null) {
+            scheduleDataChanged();
+            return;
+        }
+        int parentRow = rowForPath(parentPath);
+        if (parentRow == -2) {
+            // The parent is not visible
+            return;
+        }
+        if (!tree.isExpanded(parentPath)) {
+            // Only the handle of the parent may have changed
+            if (parentRow >= 0) {
+                scheduleRowsEvent(parentRow, 1, TableModelEvent.UPDATE);
+            }
+            return;
+        }
+        Object parent  = parentPath.getLastPathComponent();
+        int[]  indices = childIndices.clone();
+        Arrays.sort(indices);
+        for (int index : indices) {
+            int row;
+            if (index == 0) {
+                row = parentRow + 1;
+            } else {
+                Object sibling    = treeTableModel.getChild(parent, index - 1);
+                int    siblingRow = rowForPath(parentPath.pathByAddingChild(sibling));
+                if (siblingRow < 0) {
+                    scheduleDataChanged();
+                    return;
+                }
+                row = rows.getSubtreeEnd(siblingRow);
+            }
+            Object child = treeTableModel.getChild(parent, index);
+            insertRows(row, parentPath.pathByAddingChild(child));
+        }
+    }
+
+    /**
+     * Handle the given event about removed nodes
+     *
+     * @param e The event
+     */
+    private void handleTreeNodesRemoved(TreeModelEvent e) {
+
+        if (dataChangedPending) {
+            return;
+        }
+        TreePath parentPath = e.getTreePath();
+        Object[] children   = e.getChildren();
+        if (parentPath == null || children == null) {
+            scheduleDataChanged();
+            return;
+        }
+        int parentRow = rowForPath(parentPath);
+        if (parentRow == -2) {
+            // The parent is not visible
+            return;
+        }
+        if (!isShowingChildren(parentRow)) {
+            // Only the handle of the parent may have changed
+            if (parentRow >= 0) {
+                scheduleRowsEvent(parentRow, 1, TableModelEvent.UPDATE);
+            }
+            return;
+        }
+        // Collect the rows of the removed children, and remove them
+        // from the bottom to the top
+        int[] childRows = new int[children.length];
+        for (int i = 0; i < children.length; i++) {
+            childRows[i] = rowForPath(parentPath.pathByAddingChild(children[i]));
+        }
+        Arrays.sort(childRows);
+        for (int i = childRows.length - 1; i >= 0; i--) {
+            if (childRows[i] >= 0) {
+                removeRows(childRows[i]);
+            }
+        }
+    }
+
+    /**
+     * Schedule an event for the given range of rows
+     *
+     * @param firstRow The first row
+     * @param count    The number of rows
+     * @param type     The {@link TableModelEvent} type
+     */
+    private void scheduleRowsEvent(int firstRow, int count, int type) {
+
+        if (count <= 0) {
+            return;
+        }
+        int lastRow = firstRow + count - 1;
+        pendingEvents.add(new TableModelEvent(
+                this, firstRow, lastRow, TableModelEvent.ALL_COLUMNS, type));
+        scheduleFirePendingEvents();
+    }
+
+    /**
+     * Schedule a {@link #fireTableDataChanged()}, replacing all pending
+     * events
+     */
+    private void scheduleDataChanged() {
+
+        dataChangedPending = true;
+        pendingEvents.clear();
+        scheduleFirePendingEvents();
+    }
+
+    /**
+     * Schedule a call to {@link #firePendingEvents()} after all the pending
+     * events have been processed, if it was not already scheduled.
+     * SwingUtilities.invokeLater is used to handle this.
+     */
+    private void scheduleFirePendingEvents() {
+
+        if (!firePendingEventsScheduled) {
+            firePendingEventsScheduled = true;
+            SwingUtilities.invokeLater(this::firePendingEvents);
+        }
+    }
+
+    /**
+     * Fire all events that have been collected since the last call. If the
+     * row count of the tree does not match the rows, then the rows are
+     * rebuilt, and a {@link #fireTableDataChanged()} is fired instead.
+     */
+    private void firePendingEvents() {
+
+        firePendingEventsScheduled = false;
+        if (dataChangedPending || tree.getRowCount() != rows.size()) {
+            dataChangedPending = false;
+            pendingEvents.clear();
+            rebuildRows();
+            fireTableDataChanged();
+            return;
+        }
+        List<TableModelEvent> events = new ArrayList<>(pendingEvents);
+        pendingEvents.clear();
+        for (TableModelEvent event : events) {
+            fireTableChanged(event);
+        }
     }
 
     @Override
@@ -128,7 +523,10 @@ class TreeTableModelAdapter extends AbstractTableModel {
     @Override
     public int getRowCount() {
 
-        return tree.getRowCount();
+        if (dataChangedPending) {
+            return tree.getRowCount();
+        }
+        return rows.size();
     }
 
     @Override
@@ -152,7 +550,10 @@ class TreeTableModelAdapter extends AbstractTableModel {
      */
     private Object nodeForRow(int row) {
 
-        TreePath treePath = tree.getPathForRow(row);
-        return treePath.getLastPathComponent();
+        if (dataChangedPending) {
+            TreePath treePath = tree.getPathForRow(row);
+            return treePath.getLastPathComponent();
+        }
+        return rows.getNode(row);
     }
 }
@@ -0,0 +1,199 @@
+package com.midorlo.batbelt.swing.dnd;
+
+import java.util.Arrays;
+
+/**
+ * A flattened representation of the visible rows of a tree, storing the
+ * node and the depth of each row. The depth is the number of ancestors of
+ * the node, so the root has depth 0.
+ * <p>
+ * The rows that display the descendants of a node are the rows that follow
+ * the row of the node and have a greater depth than the node. This allows
+ * determining the rows that are affected by an expansion, collapse or
+ * modification without asking the tree for its paths.
+ */
+class TreeTableRows {
+
+    /**
+     * The nodes of the rows
+     */
+    private Object[] nodes;
+
+    /**
+     * The depths of the rows
+     */
+    private int[] depths;
+
+    /**
+     * The number of rows
+     */
+    private int size;
+
+    /**
+     * Default constructor
+     */
+    TreeTableRows() {
+
+        this.nodes  = new Object[16];
+        this.depths = new int[16];
+        this.size   = 0;
+    }
+
+    /**
+     * Returns the number of rows
+     *
+     * @return The number of rows
+     */
+    int size() {
+
+        return size;
+    }
+
+    /**
+     * Returns the node in the given row
+     *
+     * @param row The row
+     *
+     * @return The node
+     *
+     * @throws IndexOutOfBoundsException If the row is not valid
+     */
+    Object getNode(int row) {
+
+        checkRow(row);
+        return nodes[row];
+    }
+
+    /**
+     * Returns the depth of the node in the given row
+     *
+     * @param row The row
+     *
+     * @return The depth
+     *
+     * @throws IndexOutOfBoundsException If the row is not valid
+     */
+    int getDepth(int row) {
+
+        checkRow(row);
+        return depths[row];
+    }
+
+    /**
+     * Returns the index after the last row that displays a descendant of the
+     * node in the given row. If the given row is -1, then the descendants are
+     * assumed to be all rows (as it is the case for an invisible root).
+     *
+     * @param row The row
+     *
+     * @return The end of the rows for the descendants
+     */
+    int getSubtreeEnd(int row) {
+
+        if (row == -1) {
+            return size;
+        }
+        checkRow(row);
+        int depth = depths[row];
+        int end   = row + 1;
+        while (end < size && depths[end] > depth) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Remove all rows
+     */
+    void clear() {
+
+        Arrays.fill(nodes, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Add a row at the end
+     *
+     * @param node  The node
+     * @param depth The depth
+     */
+    void add(Object node, int depth) {
+
+        ensureCapacity(size + 1);
+        nodes[size]  = node;
+        depths[size] = depth;
+        size++;
+    }
+
+    /**
+     * Insert all rows of the given rows at the given row
+     *
+     * @param row  The row
+     * @param rows The rows to insert
+     *
+     * @throws IndexOutOfBoundsException If the row is not valid
+     */
+    void insert(int row, TreeTableRows rows) {
+
+        if (row < 0 || row > size) {
+            throw new IndexOutOfBoundsException(
+                    "Row " + row + " is not in [0," + size + "]");
+        }
+        int count = rows.size;
+        ensureCapacity(size + count);
+        System.arraycopy(nodes, row, nodes, row + count, size - row);
+        System.arraycopy(depths, row, depths, row + count, size - row);
+        System.arraycopy(rows.nodes, 0, nodes, row, count);
+        System.arraycopy(rows.depths, 0, depths, row, count);
+        size += count;
+    }
+
+    /**
+     * Remove the given number of rows, starting at the given row
+     *
+     * @param row   The row
+     * @param count The number of rows
+     *
+     * @throws IndexOutOfBoundsException If the range is not valid
+     */
+    void remove(int row, int count) {
+
+        if (row < 0 || count < 0 || row + count > size) {
+            throw new IndexOutOfBoundsException(
+                    "Rows " + row + " to " + (row + count) + " are not in [0," + size + "]");
+        }
+        System.arraycopy(nodes, row + count, nodes, row, size - row - count);
+        System.arraycopy(depths, row + count, depths, row, size - row - count);
+        Arrays.fill(nodes, size - count, size, null);
+        size -= count;
+    }
+
+    /**
+     * Make sure that the arrays can store the given number of rows
+     *
+     * @param capacity The capacity
+     */
+    private void ensureCapacity(int capacity) {
+
+        if (capacity > nodes.length) {
+            int newLength = Math.max(capacity, nodes.length * 2);
+            nodes  = Arrays.copyOf(nodes, newLength);
+            depths = Arrays.copyOf(depths, newLength);
+        }
+    }
+
+    /**
+     * Check whether the given row is valid
+     *
+     * @param row The row
+     *
+     * @throws IndexOutOfBoundsException If the row is not valid
+     */
+    private void checkRow(int row) {
+
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException(
+                    "Row " + row + " is not in [0," + size + ")");
+        }
+    }
+}
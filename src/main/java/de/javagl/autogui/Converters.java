@@ -48,10 +48,8 @@ public class Converters
     public static <S extends Number, T extends Number> Converter<S, T> 
         forNumbers(Class<S> sourceType, Class<T> targetType)
     {
-        Function<S, T> forward = n -> 
-            Numbers.convertNumberRoundingTo(n, targetType);
-        Function<T, S> backward = n -> 
-            Numbers.convertNumberRoundingTo(n, sourceType);
+        Function<S, T> forward = Numbers.converter(sourceType, targetType);
+        Function<T, S> backward = Numbers.converter(targetType, sourceType);
         return fromFunctions(sourceType, targetType, forward, backward);
     }
     
@@ -51,6 +51,12 @@ class Functions
         S minS, S maxS, 
         T minT, T maxT)
     {
+        double minSD = minS.doubleValue();
+        double maxSD = maxS.doubleValue();
+        double minTD = minT.doubleValue();
+        double maxTD = maxT.doubleValue();
+        @SuppressWarnings("unchecked")
+        Class<T> targetType = (Class<T>) minT.getClass();
         return new Function<S, T>()
         {
             @Override
@@ -60,8 +66,10 @@ class Functions
                 {
                     return null;
                 }
-                double alpha = Numbers.computeAlpha(minS, maxS, s);
-                return Numbers.interpolate(minT, maxT, alpha);
+                double alpha = 
+                    Numbers.computeAlpha(minSD, maxSD, s.doubleValue());
+                double t = Numbers.interpolateDouble(minTD, maxTD, alpha);
+                return Numbers.convertDoubleRoundingTo(t, targetType);
             }
         };
     }
@@ -0,0 +1,239 @@
+/*
+ * www.javagl.de - AutoGUI
+ *
+ * Copyright (c) 2014-2018 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.autogui;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * An enumeration of the primitive number kinds. Each kind is associated 
+ * with a primitive type and its reference type, and knows how to create
+ * an instance of its reference type from a primitive <code>long</code>
+ * or <code>double</code> value.
+ */
+public enum NumberKind
+{
+    /**
+     * The kind for <code>byte</code> and <code>Byte</code>
+     */
+    BYTE(byte.class, Byte.class, true)
+    {
+        @Override
+        public Number fromLong(long value)
+        {
+            return (byte)value;
+        }
+    },
+    
+    /**
+     * The kind for <code>short</code> and <code>Short</code>
+     */
+    SHORT(short.class, Short.class, true)
+    {
+        @Override
+        public Number fromLong(long value)
+        {
+            return (short)value;
+        }
+    },
+    
+    /**
+     * The kind for <code>int</code> and <code>Integer</code>
+     */
+    INT(int.class, Integer.class, true)
+    {
+        @Override
+        public Number fromLong(long value)
+        {
+            return (int)value;
+        }
+    },
+    
+    /**
+     * The kind for <code>long</code> and <code>Long</code>
+     */
+    LONG(long.class, Long.class, true)
+    {
+        @Override
+        public Number fromLong(long value)
+        {
+            return value;
+        }
+    },
+    
+    /**
+     * The kind for <code>float</code> and <code>Float</code>
+     */
+    FLOAT(float.class, Float.class, false)
+    {
+        @Override
+        public Number fromLong(long value)
+        {
+            return (float)value;
+        }
+        
+        @Override
+        public Number fromDouble(double value)
+        {
+            return (float)value;
+        }
+    },
+    
+    /**
+     * The kind for <code>double</code> and <code>Double</code>
+     */
+    DOUBLE(double.class, Double.class, false)
+    {
+        @Override
+        public Number fromLong(long value)
+        {
+            return (double)value;
+        }
+        
+        @Override
+        public Number fromDouble(double value)
+        {
+            return value;
+        }
+    };
+    
+    /**
+     * The mapping from primitive and reference types to their kinds
+     */
+    private static final Map<Class<?>, NumberKind> KINDS;
+    
+    // Initialization of the KINDS map
+    static
+    {
+        Map<Class<?>, NumberKind> kinds = 
+            new IdentityHashMap<Class<?>, NumberKind>();
+        for (NumberKind kind : values())
+        {
+            kinds.put(kind.primitiveType, kind);
+            kinds.put(kind.referenceType, kind);
+        }
+        KINDS = Collections.unmodifiableMap(kinds);
+    }
+    
+    /**
+     * The primitive type
+     */
+    private final Class<?> primitiveType;
+    
+    /**
+     * The reference type
+     */
+    private final Class<? extends Number> referenceType;
+    
+    /**
+     * Whether this kind is integral
+     */
+    private final boolean integral;
+    
+    /**
+     * Creates a new instance
+     * 
+     * @param primitiveType The primitive type
+     * @param referenceType The reference type
+     * @param integral Whether the kind is integral
+     */
+    private NumberKind(Class<?> primitiveType, 
+        Class<? extends Number> referenceType, boolean integral)
+    {
+        this.primitiveType = primitiveType;
+        this.referenceType = referenceType;
+        this.integral = integral;
+    }
+    
+    /**
+     * Returns the kind of the given type, or <code>null</code> if the
+     * given type is not a primitive number type or its reference type
+     * 
+     * @param type The type
+     * @return The kind
+     */
+    public static NumberKind of(Class<?> type)
+    {
+        return KINDS.get(type);
+    }
+    
+    /**
+     * Returns the primitive type of this kind, e.g. <code>int.class</code>
+     * 
+     * @return The primitive type
+     */
+    public Class<?> getPrimitiveType()
+    {
+        return primitiveType;
+    }
+    
+    /**
+     * Returns the reference type of this kind, e.g. 
+     * <code>Integer.class</code>
+     * 
+     * @return The reference type
+     */
+    public Class<? extends Number> getReferenceType()
+    {
+        return referenceType;
+    }
+    
+    /**
+     * Returns whether this kind is integral, i.e. whether it is
+     * <code>byte</code>, <code>short</code>, <code>int</code> or
+     * <code>long</code>
+     * 
+     * @return Whether this kind is integral
+     */
+    public boolean isIntegral()
+    {
+        return integral;
+    }
+    
+    /**
+     * Converts the given value into an instance of the reference type
+     * of this kind, using a narrowing primitive conversion if necessary
+     * 
+     * @param value The value
+     * @return The number
+     */
+    public abstract Number fromLong(long value);
+    
+    /**
+     * Converts the given value into an instance of the reference type
+     * of this kind. For integral kinds, the value will be rounded to
+     * the closest integral value before it is converted.
+     * 
+     * @param value The value
+     * @return The number
+     */
+    public Number fromDouble(double value)
+    {
+        return fromLong(Math.round(value));
+    }
+}
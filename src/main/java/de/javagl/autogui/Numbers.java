@@ -26,7 +26,7 @@
  */
 package de.javagl.autogui;
 
-import java.util.*;
+import java.util.function.Function;
 
 /**
  * Utility methods related to Numbers
@@ -34,27 +34,93 @@ import java.util.*;
 public class Numbers
 {
     /**
-     * The set of all number types
+     * Interface for a conversion of a number into a specific target type
      */
-    private static final Set<Class<?>> NUMBER_TYPES;
+    private interface Conversion
+    {
+        /**
+         * Convert the given number
+         * 
+         * @param number The number. May not be <code>null</code>.
+         * @return The converted number
+         */
+        Number convert(Number number);
+    }
+    
+    /**
+     * The index of the source row in the {@link #CONVERSIONS} table that 
+     * is used for number types that are not covered by a 
+     * {@link NumberKind}
+     */
+    private static final int OTHER_SOURCE = NumberKind.values().length;
+    
+    /**
+     * The conversions, indexed by the ordinal of the source kind (or
+     * {@link #OTHER_SOURCE}) and the ordinal of the target kind
+     */
+    private static final Conversion CONVERSIONS[][];
     
-    // Initialization of the NUMBER_TYPES set
+    // Initialization of the CONVERSIONS table
     static
     {
-        Set<Class<?>> numberTypes = new LinkedHashSet<Class<?>>();
-        numberTypes.add(byte.class);
-        numberTypes.add(Byte.class);
-        numberTypes.add(short.class);
-        numberTypes.add(Short.class);
-        numberTypes.add(int.class);
-        numberTypes.add(Integer.class);
-        numberTypes.add(long.class);
-        numberTypes.add(Long.class);
-        numberTypes.add(float.class);
-        numberTypes.add(Float.class);
-        numberTypes.add(double.class);
-        numberTypes.add(Double.class);
-        NUMBER_TYPES = Collections.unmodifiableSet(numberTypes);
+        NumberKind kinds[] = NumberKind.values();
+        CONVERSIONS = new Conversion[kinds.length + 1][kinds.length];
+        for (int s = 0; s <= kinds.length; s++)
+        {
+            NumberKind sourceKind = s < kinds.length ? kinds[s] : null;
+            for (NumberKind targetKind : kinds)
+            {
+                CONVERSIONS[s][targetKind.ordinal()] = 
+                    createConversion(sourceKind, targetKind);
+            }
+        }
+    }
+    
+    /**
+     * Creates the conversion from the given source kind to the given
+     * target kind
+     * 
+     * @param sourceKind The source kind. If this is <code>null</code>,
+     * then the number will be converted based on its double value.
+     * @param targetKind The target kind
+     * @return The conversion
+     */
+    private static Conversion createConversion(
+        NumberKind sourceKind, NumberKind targetKind)
+    {
+        if (sourceKind == targetKind)
+        {
+            return n -> n;
+        }
+        if (targetKind == NumberKind.FLOAT)
+        {
+            return n -> n.floatValue();
+        }
+        if (targetKind == NumberKind.DOUBLE)
+        {
+            return n -> n.doubleValue();
+        }
+        if (sourceKind != null && sourceKind.isIntegral())
+        {
+            return n -> targetKind.fromLong(n.longValue());
+        }
+        return n -> targetKind.fromDouble(n.doubleValue());
+    }
+    
+    /**
+     * Returns the conversion from the given source type to the given
+     * target kind
+     * 
+     * @param sourceType The source type
+     * @param targetKind The target kind
+     * @return The conversion
+     */
+    private static Conversion conversion(
+        Class<?> sourceType, NumberKind targetKind)
+    {
+        NumberKind sourceKind = NumberKind.of(sourceType);
+        int s = sourceKind == null ? OTHER_SOURCE : sourceKind.ordinal();
+        return CONVERSIONS[s][targetKind.ordinal()];
     }
     
     /**
@@ -69,7 +135,7 @@ public class Numbers
      */
     public static boolean isNumberType(Class<?> t)
     {
-        return NUMBER_TYPES.contains(t);
+        return NumberKind.of(t) != null;
     }
 
     /**
@@ -96,12 +162,19 @@ public class Numbers
      * <code>short</code>, <code>int</code> or <code>long</code>,
      * or the respective reference type, then the double value
      * of the given number will be rounded to the closest integral
-     * value, and converted into the given target type. Otherwise,
+     * value, and converted into the given target type. (If the given
+     * number already is of an integral type, then its long value will
+     * be converted directly). Otherwise,
      * if the target type is <code>float</code> or <code>double</code>, 
      * or the respective reference type, then the corresponding value 
      * will be obtained from the given number and returned. Otherwise, 
      * an attempt is made to cast the given number to the expected type 
-     * (which will most likely fail with a ClassCastException).
+     * (which will most likely fail with a ClassCastException).<br>
+     * <br>
+     * The conversion is looked up in a precomputed table, based on the 
+     * kinds of the source and target type. When many numbers have to be
+     * converted between the same types, the function that is returned 
+     * by {@link #converter(Class, Class)} may be used.
      * 
      * @param <T> The target type
      * @param number The number
@@ -117,48 +190,78 @@ public class Numbers
         {
             return null;
         }
-        Number localNumber = number;
-        Number result = localNumber;
-        if (targetType.equals(byte.class) ||
-            targetType.equals(Byte.class))
-        {
-            localNumber = Math.round(localNumber.doubleValue());
-            result = localNumber.byteValue();
-        }
-        if (targetType.equals(short.class) ||
-            targetType.equals(Short.class))
-        {
-            localNumber = Math.round(localNumber.doubleValue());
-            result = localNumber.shortValue();
-        }
-        if (targetType.equals(int.class) ||
-            targetType.equals(Integer.class))
-        {
-            localNumber = Math.round(localNumber.doubleValue());
-            result = localNumber.intValue();
-        }
-        if (targetType.equals(long.class) ||
-            targetType.equals(Long.class))
+        NumberKind targetKind = NumberKind.of(targetType);
+        Number result = number;
+        if (targetKind != null)
         {
-            localNumber = Math.round(localNumber.doubleValue());
-            result = localNumber.longValue();
+            Conversion conversion = 
+                conversion(number.getClass(), targetKind);
+            result = conversion.convert(number);
         }
-        if (targetType.equals(float.class) ||
-            targetType.equals(Float.class))
+        @SuppressWarnings("unchecked")
+        T castedResult = (T)result;
+        return castedResult;
+    }
+    
+    /**
+     * Returns a function that converts numbers of the given source type
+     * into the given target type, as described in 
+     * {@link #convertNumberRoundingTo(Number, Class)}. The conversion
+     * is looked up once, when this method is called. The returned
+     * function will map <code>null</code> to <code>null</code>.
+     * 
+     * @param <S> The source type
+     * @param <T> The target type
+     * @param sourceType The source type
+     * @param targetType The target type
+     * @return The function
+     */
+    public static <S extends Number, T> Function<S, T> converter(
+        Class<S> sourceType, Class<T> targetType)
+    {
+        NumberKind sourceKind = NumberKind.of(sourceType);
+        NumberKind targetKind = NumberKind.of(targetType);
+        if (sourceKind == null || targetKind == null)
         {
-            result = localNumber.floatValue();
+            return n -> convertNumberRoundingTo(n, targetType);
         }
-        if (targetType.equals(double.class) ||
-            targetType.equals(Double.class))
+        Conversion conversion = 
+            CONVERSIONS[sourceKind.ordinal()][targetKind.ordinal()];
+        return n -> 
         {
-            result = localNumber.doubleValue();
-        }
+            if (n == null)
+            {
+                return null;
+            }
+            @SuppressWarnings("unchecked")
+            T result = (T)conversion.convert(n);
+            return result;
+        };
+    }
+    
+    /**
+     * Convert the given value into the given target type, rounding if
+     * necessary, as described in 
+     * {@link #convertNumberRoundingTo(Number, Class)}
+     * 
+     * @param <T> The target type
+     * @param value The value
+     * @param targetType The target type
+     * @return The value, converted (possibly rounded) into the target type
+     * @throws ClassCastException If the target type is not one of the
+     * basic Number types
+     */
+    public static <T> T convertDoubleRoundingTo(
+        double value, Class<T> targetType)
+    {
+        NumberKind targetKind = NumberKind.of(targetType);
+        Number result = targetKind == null ? 
+            Double.valueOf(value) : targetKind.fromDouble(value);
         @SuppressWarnings("unchecked")
         T castedResult = (T)result;
         return castedResult;
     }
     
-    
     /**
      * Compute the relative position of the given value between the given
      * minimum and maximum value.
@@ -172,11 +275,22 @@ public class Numbers
      */
     public static <T extends Number> double computeAlpha(T min, T max, T value)
     {
-        double minD = min.doubleValue();
-        double maxD = max.doubleValue();
-        double valueD = value.doubleValue();
-        double alpha = (valueD - minD) / (maxD - minD);
-        return alpha;
+        return computeAlpha(
+            min.doubleValue(), max.doubleValue(), value.doubleValue());
+    }
+    
+    /**
+     * Compute the relative position of the given value between the given
+     * minimum and maximum value.
+     * 
+     * @param min The minimum
+     * @param max The maximum
+     * @param value The value
+     * @return The alpha value
+     */
+    public static double computeAlpha(double min, double max, double value)
+    {
+        return (value - min) / (max - min);
     }
     
     /**
@@ -194,10 +308,39 @@ public class Numbers
     {
         @SuppressWarnings("unchecked")
         Class<T> targetType = (Class<T>) min.getClass();
-        double minD = min.doubleValue();
-        double maxD = max.doubleValue();
-        double interpolated = minD + (maxD - minD) * alpha;
-        return convertNumberRoundingTo(interpolated, targetType);
+        double interpolated = 
+            interpolateDouble(min.doubleValue(), max.doubleValue(), alpha);
+        return convertDoubleRoundingTo(interpolated, targetType);
+    }
+    
+    /**
+     * Interpolate between the given minimum and maximum value, based on
+     * the given alpha value, without boxing or rounding the result.
+     * 
+     * @param min The minimum
+     * @param max The maximum
+     * @param alpha The alpha value
+     * @return The interpolated value
+     */
+    public static double interpolateDouble(
+        double min, double max, double alpha)
+    {
+        return min + (max - min) * alpha;
+    }
+    
+    /**
+     * Interpolate between the given minimum and maximum value, based on
+     * the given alpha value, and round the result to the closest
+     * <code>int</code> value.
+     * 
+     * @param min The minimum
+     * @param max The maximum
+     * @param alpha The alpha value
+     * @return The interpolated value
+     */
+    public static int interpolateRounded(int min, int max, double alpha)
+    {
+        return (int)Math.round(interpolateDouble(min, max, alpha));
     }
 
     /**
@@ -116,8 +116,11 @@ class ConvertingValueModel<S, T> extends AbstractValueModel<T>
         S delegateValue = delegate.getValue();
         T value = converter.forward().apply(delegateValue);
         
-        logger.log(level, "Converted delegate value " 
-            + delegateValue + " to " + value);
+        if (logger.isLoggable(level))
+        {
+            logger.log(level, "Converted delegate value " 
+                + delegateValue + " to " + value);
+        }
         
         return value;
     }
@@ -127,8 +130,11 @@ class ConvertingValueModel<S, T> extends AbstractValueModel<T>
     {
         S newDelegateValue = converter.backward().apply(newValue);
         
-        logger.log(level, "Converted value " 
-            + newValue + " to " + newDelegateValue);
+        if (logger.isLoggable(level))
+        {
+            logger.log(level, "Converted value " 
+                + newValue + " to " + newDelegateValue);
+        }
         
         delegate.setValue(newDelegateValue);
     }
@@ -41,15 +41,21 @@ import javax.swing.*;
 public final class SliderValueView<T extends Number>
     extends AbstractSwingValueView<T, JSlider>
 {
+    /**
+     * The type of the minimum value, which is used for the values
+     * that are obtained from the slider
+     */
+    private final Class<T> valueType;
+    
     /**
      * The minimum
      */
-    private final T minimum;
+    private final double minimum;
     
     /**
      * The maximum
      */
-    private final T maximum;
+    private final double maximum;
     
     /**
      * The number of steps
@@ -73,8 +79,11 @@ public final class SliderValueView<T extends Number>
         T minimum, T maximum, int steps)
     {
         super(valueModel);
-        this.minimum = minimum;
-        this.maximum = maximum;
+        @SuppressWarnings("unchecked")
+        Class<T> minimumType = (Class<T>) minimum.getClass();
+        this.valueType = minimumType;
+        this.minimum = minimum.doubleValue();
+        this.maximum = maximum.doubleValue();
         this.steps = steps;
         
         T value = valueModel.getValue();
@@ -96,8 +105,9 @@ public final class SliderValueView<T extends Number>
         {
             return 0;
         }
-        double alpha = Numbers.computeAlpha(minimum, maximum, value);
-        return Numbers.interpolate(0, steps, alpha);
+        double alpha = Numbers.computeAlpha(
+            minimum, maximum, value.doubleValue());
+        return Numbers.interpolateRounded(0, steps, alpha);
     }
 
     @Override
@@ -110,7 +120,9 @@ public final class SliderValueView<T extends Number>
     public T getValueFromComponent()
     {
         double alpha = (double)slider.getValue() / steps;
-        return Numbers.interpolate(minimum, maximum, alpha);
+        double value = 
+            Numbers.interpolateDouble(minimum, maximum, alpha);
+        return Numbers.convertDoubleRoundingTo(value, valueType);
     }
     
     @Override
@@ -0,0 +1,369 @@
+/*
+ * www.javagl.de - Common
+ *
+ * Copyright (c) 2012-2014 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.common.collections;
+
+import java.util.Objects;
+
+/**
+ * Base class for the open-addressing hash maps that use object keys and
+ * store their values in primitive arrays. This class maintains the key
+ * table, and notifies the subclasses about slots that are moved, so that
+ * they can keep their value arrays in sync.<br>
+ * <br>
+ * The table uses linear probing and backward-shift deletion, so that no 
+ * tombstones are required. Value slots of removed entries are expected
+ * to be reset to their default value by the subclasses, so that newly
+ * inserted keys always start with a zero value.<br>
+ * <br>
+ * <code>null</code> keys are not supported.
+ *
+ * @param <K> The key type
+ */
+abstract class AbstractObjectKeyedMap<K>
+{
+    /**
+     * The default expected size
+     */
+    static final int DEFAULT_EXPECTED_SIZE = 16;
+    
+    /**
+     * The keys. A <code>null</code> entry denotes a free slot.
+     */
+    Object[] keys;
+    
+    /**
+     * The number of keys
+     */
+    int size;
+    
+    /**
+     * The mask for computing the slot index from a hash code
+     */
+    private int mask;
+    
+    /**
+     * The number of keys at which the table will be enlarged
+     */
+    private int threshold;
+    
+    /**
+     * Creates a new instance with a capacity that is sufficient for
+     * the given number of keys
+     * 
+     * @param expectedSize The expected number of keys
+     * @throws IllegalArgumentException If the given size is negative
+     */
+    AbstractObjectKeyedMap(int expectedSize)
+    {
+        int capacity = capacityFor(expectedSize);
+        this.keys = new Object[capacity];
+        this.mask = capacity - 1;
+        this.threshold = capacity / 2;
+    }
+    
+    /**
+     * Returns the power-of-two table capacity that is required for
+     * storing the given number of elements with a load factor of 0.5
+     * 
+     * @param expectedSize The expected size
+     * @return The capacity
+     * @throws IllegalArgumentException If the given size is negative
+     */
+    static int capacityFor(int expectedSize)
+    {
+        if (expectedSize < 0)
+        {
+            throw new IllegalArgumentException(
+                "The expected size may not be negative, but is " 
+                + expectedSize);
+        }
+        int capacity = 8;
+        while (capacity / 2 < expectedSize)
+        {
+            capacity <<= 1;
+            if (capacity <= 0)
+            {
+                throw new IllegalArgumentException(
+                    "The expected size is too large: " + expectedSize);
+            }
+        }
+        return capacity;
+    }
+    
+    /**
+     * Scrambles the bits of the given hash code, to compensate for
+     * hash codes that only differ in their upper bits
+     * 
+     * @param h The hash code
+     * @return The scrambled hash code
+     */
+    static int mix(int h)
+    {
+        int x = h * 0x9E3779B9;
+        return x ^ (x >>> 16);
+    }
+    
+    /**
+     * Returns the slot in which the given key is stored, or -1 if
+     * the key is not contained
+     * 
+     * @param key The key
+     * @return The slot index
+     * @throws NullPointerException If the key is <code>null</code>
+     */
+    final int slotOf(Object key)
+    {
+        Objects.requireNonNull(key, "The key may not be null");
+        int i = mix(key.hashCode()) & mask;
+        while (true)
+        {
+            Object k = keys[i];
+            if (k == null)
+            {
+                return -1;
+            }
+            if (k == key || k.equals(key))
+            {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+    
+    /**
+     * Returns the slot in which the given key is stored. If the key is
+     * not contained yet, it is inserted, and the bitwise complement of 
+     * the new slot index is returned. The value slot of a newly inserted 
+     * key always contains the default value.
+     * 
+     * @param key The key
+     * @return The slot index, or its bitwise complement for new keys
+     * @throws NullPointerException If the key is <code>null</code>
+     */
+    final int insertionSlotOf(K key)
+    {
+        Objects.requireNonNull(key, "The key may not be null");
+        int i = mix(key.hashCode()) & mask;
+        while (true)
+        {
+            Object k = keys[i];
+            if (k == null)
+            {
+                break;
+            }
+            if (k == key || k.equals(key))
+            {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        if (size >= threshold)
+        {
+            grow();
+            i = freeSlotFor(key);
+        }
+        keys[i] = key;
+        size++;
+        return ~i;
+    }
+    
+    /**
+     * Returns the first free slot for the given key. The key must not
+     * be contained in the table.
+     * 
+     * @param key The key
+     * @return The free slot index
+     */
+    private int freeSlotFor(Object key)
+    {
+        int i = mix(key.hashCode()) & mask;
+        while (keys[i] != null)
+        {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+    
+    /**
+     * Doubles the capacity of the table, and passes the mapping from 
+     * old slots to new slots to {@link #relocateValues(int[], int)}
+     */
+    private void grow()
+    {
+        Object[] oldKeys = keys;
+        int newCapacity = oldKeys.length << 1;
+        if (newCapacity <= 0)
+        {
+            throw new IllegalStateException("Maximum capacity exceeded");
+        }
+        keys = new Object[newCapacity];
+        mask = newCapacity - 1;
+        threshold = newCapacity / 2;
+        int newSlots[] = new int[oldKeys.length];
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            Object k = oldKeys[i];
+            if (k == null)
+            {
+                newSlots[i] = -1;
+            }
+            else
+            {
+                int j = freeSlotFor(k);
+                keys[j] = k;
+                newSlots[i] = j;
+            }
+        }
+        relocateValues(newSlots, newCapacity);
+    }
+    
+    /**
+     * Removes the key at the given slot. Subsequent keys of the same
+     * probe sequence are shifted back, and reported via 
+     * {@link #moveValue(int, int)}.
+     * 
+     * @param slot The slot index
+     */
+    final void removeSlot(int slot)
+    {
+        int gap = slot;
+        keys[gap] = null;
+        clearValue(gap);
+        int j = gap;
+        while (true)
+        {
+            j = (j + 1) & mask;
+            Object k = keys[j];
+            if (k == null)
+            {
+                break;
+            }
+            int home = mix(k.hashCode()) & mask;
+            boolean stays = (j > gap) ? 
+                (home > gap && home <= j) :
+                (home > gap || home <= j);
+            if (!stays)
+            {
+                keys[gap] = k;
+                keys[j] = null;
+                moveValue(j, gap);
+                gap = j;
+            }
+        }
+        size--;
+    }
+    
+    /**
+     * Returns the key that is stored in the given slot
+     * 
+     * @param slot The slot
+     * @return The key
+     */
+    @SuppressWarnings("unchecked")
+    final K keyAt(int slot)
+    {
+        return (K)keys[slot];
+    }
+    
+    /**
+     * Returns the number of keys in this map
+     * 
+     * @return The size
+     */
+    public final int size()
+    {
+        return size;
+    }
+    
+    /**
+     * Returns whether this map is empty
+     * 
+     * @return Whether this map is empty
+     */
+    public final boolean isEmpty()
+    {
+        return size == 0;
+    }
+    
+    /**
+     * Returns whether this map contains the given key
+     * 
+     * @param key The key
+     * @return Whether the key is contained
+     * @throws NullPointerException If the key is <code>null</code>
+     */
+    public final boolean containsKey(Object key)
+    {
+        return slotOf(key) >= 0;
+    }
+    
+    /**
+     * Remove all entries from this map. The capacity is retained.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i] != null)
+            {
+                keys[i] = null;
+                clearValue(i);
+            }
+        }
+        size = 0;
+    }
+    
+    /**
+     * Will be called when the table was enlarged. Implementors have to
+     * create new value arrays with the given capacity, and move each
+     * value from slot <code>i</code> to <code>newSlots[i]</code>, unless
+     * <code>newSlots[i]</code> is negative.
+     * 
+     * @param newSlots The new slots
+     * @param newCapacity The new capacity
+     */
+    abstract void relocateValues(int newSlots[], int newCapacity);
+    
+    /**
+     * Will be called when the key from one slot was moved to another
+     * slot. Implementors have to move the value accordingly, and reset
+     * the source slot to the default value.
+     * 
+     * @param from The source slot
+     * @param to The target slot
+     */
+    abstract void moveValue(int from, int to);
+    
+    /**
+     * Will be called when the key at the given slot was removed. 
+     * Implementors have to reset the value to the default value.
+     * 
+     * @param slot The slot
+     */
+    abstract void clearValue(int slot);
+    
+}
@@ -0,0 +1,399 @@
+/*
+ * www.javagl.de - Common
+ *
+ * Copyright (c) 2012-2014 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.common.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * A multimap that maps keys to sequences of values. In contrast to a
+ * <code>Map&lt;K, List&lt;V&gt;&gt;</code>, as it is used in 
+ * {@link Maps#addToList(Map, Object, Object)}, this class does not 
+ * create one list per key. Instead, all values are stored in one 
+ * shared array, and the values of each key are chained via indices 
+ * into this array. Adding a value therefore does not allocate any
+ * objects, except for the occasional growth of the shared arrays.<br>
+ * <br>
+ * The values for one key are reported in the order in which they
+ * have been added. <code>null</code> keys are not supported, but
+ * <code>null</code> values are.<br>
+ * <br>
+ * This class is not thread-safe.
+ * 
+ * @param <K> The key type
+ * @param <V> The value type
+ */
+public final class CompactMultimap<K, V> extends AbstractObjectKeyedMap<K>
+{
+    /**
+     * The marker for the end of a chain of values
+     */
+    private static final int NONE = -1;
+    
+    /**
+     * The index of the first value for the key in the respective slot
+     */
+    private int heads[];
+    
+    /**
+     * The index of the last value for the key in the respective slot
+     */
+    private int tails[];
+    
+    /**
+     * The number of values for the key in the respective slot
+     */
+    private int counts[];
+    
+    /**
+     * The shared array of all values
+     */
+    private Object values[];
+    
+    /**
+     * The index of the next value in the chain of each value
+     */
+    private int next[];
+    
+    /**
+     * The number of entries of the shared arrays that have been used
+     */
+    private int used;
+    
+    /**
+     * The first free entry of the shared arrays, chained via 
+     * {@link #next}, or {@link #NONE}
+     */
+    private int free;
+    
+    /**
+     * The total number of values
+     */
+    private int valueCount;
+    
+    /**
+     * Creates a new, empty multimap
+     */
+    public CompactMultimap()
+    {
+        this(DEFAULT_EXPECTED_SIZE, DEFAULT_EXPECTED_SIZE);
+    }
+    
+    /**
+     * Creates a new, empty multimap that can store the given number of
+     * keys and values without being resized
+     * 
+     * @param expectedKeys The expected number of keys
+     * @param expectedValues The expected total number of values
+     * @throws IllegalArgumentException If any size is negative
+     */
+    public CompactMultimap(int expectedKeys, int expectedValues)
+    {
+        super(expectedKeys);
+        if (expectedValues < 0)
+        {
+            throw new IllegalArgumentException(
+                "The expected number of values may not be negative, but is "
+                + expectedValues);
+        }
+        int capacity = keys.length;
+        this.heads = new int[capacity];
+        this.tails = new int[capacity];
+        this.counts = new int[capacity];
+        this.values = new Object[Math.max(8, expectedValues)];
+        this.next = new int[values.length];
+        this.free = NONE;
+    }
+    
+    /**
+     * Add the given value to the values that are associated with the
+     * given key
+     * 
+     * @param key The key
+     * @param value The value
+     * @throws NullPointerException If the key is <code>null</code>
+     */
+    public void put(K key, V value)
+    {
+        int slot = insertionSlotOf(key);
+        int entry = allocateEntry();
+        values[entry] = value;
+        next[entry] = NONE;
+        if (slot < 0)
+        {
+            slot = ~slot;
+            heads[slot] = entry;
+        }
+        else
+        {
+            next[tails[slot]] = entry;
+        }
+        tails[slot] = entry;
+        counts[slot]++;
+        valueCount++;
+    }
+    
+    /**
+     * Returns the number of values that are associated with the given key
+     * 
+     * @param key The key
+     * @return The number of values
+     * @throws NullPointerException If the key is <code>null</code>
+     */
+    public int count(Object key)
+    {
+        int slot = slotOf(key);
+        if (slot < 0)
+        {
+            return 0;
+        }
+        return counts[slot];
+    }
+    
+    /**
+     * Passes all values that are associated with the given key to the
+     * given consumer, in the order in which they have been added
+     * 
+     * @param key The key
+     * @param consumer The consumer
+     * @throws NullPointerException If the key is <code>null</code>
+     */
+    public void forEach(Object key, Consumer<? super V> consumer)
+    {
+        int slot = slotOf(key);
+        if (slot < 0)
+        {
+            return;
+        }
+        for (int e = heads[slot]; e != NONE; e = next[e])
+        {
+            consumer.accept(valueAt(e));
+        }
+    }
+    
+    /**
+     * Passes each key and each of its associated values to the given 
+     * consumer
+     * 
+     * @param consumer The consumer
+     */
+    public void forEach(BiConsumer<? super K, ? super V> consumer)
+    {
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i] != null)
+            {
+                K key = keyAt(i);
+                for (int e = heads[i]; e != NONE; e = next[e])
+                {
+                    consumer.accept(key, valueAt(e));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Passes each key of this multimap to the given consumer
+     * 
+     * @param consumer The consumer
+     */
+    public void forEachKey(Consumer<? super K> consumer)
+    {
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i] != null)
+            {
+                consumer.accept(keyAt(i));
+            }
+        }
+    }
+    
+    /**
+     * Returns a new list containing the values that are associated with
+     * the given key. If the key is not contained, an empty list is 
+     * returned.
+     * 
+     * @param key The key
+     * @return The list
+     * @throws NullPointerException If the key is <code>null</code>
+     */
+    public List<V> get(Object key)
+    {
+        List<V> list = new ArrayList<V>(count(key));
+        forEach(key, list::add);
+        return list;
+    }
+    
+    /**
+     * Removes the given key and all its associated values
+     * 
+     * @param key The key
+     * @return The number of values that have been removed
+     * @throws NullPointerException If the key is <code>null</code>
+     */
+    public int removeAll(Object key)
+    {
+        int slot = slotOf(key);
+        if (slot < 0)
+        {
+            return 0;
+        }
+        int removed = counts[slot];
+        int e = heads[slot];
+        while (e != NONE)
+        {
+            int n = next[e];
+            values[e] = null;
+            next[e] = free;
+            free = e;
+            e = n;
+        }
+        valueCount -= removed;
+        removeSlot(slot);
+        return removed;
+    }
+    
+    /**
+     * Returns the total number of values in this multimap
+     * 
+     * @return The number of values
+     */
+    public int valueCount()
+    {
+        return valueCount;
+    }
+    
+    @Override
+    public void clear()
+    {
+        super.clear();
+        Arrays.fill(values, 0, used, null);
+        used = 0;
+        free = NONE;
+        valueCount = 0;
+    }
+    
+    /**
+     * Creates a new map that contains the same mappings as this multimap
+     * 
+     * @return The map
+     */
+    public Map<K, List<V>> toMap()
+    {
+        Map<K, List<V>> map = new LinkedHashMap<K, List<V>>();
+        forEach((k, v) -> Maps.addToList(map, k, v));
+        return map;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return toMap().toString();
+    }
+    
+    /**
+     * Returns the value at the given index of the shared array
+     * 
+     * @param entry The index
+     * @return The value
+     */
+    @SuppressWarnings("unchecked")
+    private V valueAt(int entry)
+    {
+        return (V)values[entry];
+    }
+    
+    /**
+     * Returns the index of an unused entry in the shared arrays,
+     * growing them if necessary
+     * 
+     * @return The index
+     */
+    private int allocateEntry()
+    {
+        if (free != NONE)
+        {
+            int entry = free;
+            free = next[entry];
+            return entry;
+        }
+        if (used == values.length)
+        {
+            int newLength = values.length + (values.length >> 1) + 1;
+            if (newLength < 0)
+            {
+                throw new IllegalStateException("Maximum capacity exceeded");
+            }
+            values = Arrays.copyOf(values, newLength);
+            next = Arrays.copyOf(next, newLength);
+        }
+        return used++;
+    }
+    
+    @Override
+    void relocateValues(int newSlots[], int newCapacity)
+    {
+        int newHeads[] = new int[newCapacity];
+        int newTails[] = new int[newCapacity];
+        int newCounts[] = new int[newCapacity];
+        for (int i = 0; i < newSlots.length; i++)
+        {
+            int j = newSlots[i];
+            if (j >= 0)
+            {
+                newHeads[j] = heads[i];
+                newTails[j] = tails[i];
+                newCounts[j] = counts[i];
+            }
+        }
+        heads = newHeads;
+        tails = newTails;
+        counts = newCounts;
+    }
+    
+    @Override
+    void moveValue(int from, int to)
+    {
+        heads[to] = heads[from];
+        tails[to] = tails[from];
+        counts[to] = counts[from];
+        clearValue(from);
+    }
+    
+    @Override
+    void clearValue(int slot)
+    {
+        heads[slot] = 0;
+        tails[slot] = 0;
+        counts[slot] = 0;
+    }
+}
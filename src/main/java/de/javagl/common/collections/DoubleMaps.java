@@ -23,7 +23,11 @@ public class DoubleMaps
      * <br>
      * If the given key is smaller than the smallest key in the
      * given map, then the value of the smallest key will be
-     * returned.
+     * returned.<br>
+     * <br>
+     * For repeated lookups in the same map, an {@link InterpolationTable}
+     * that is created with {@link #createInterpolationTable(NavigableMap)} 
+     * should be used.
      *  
      * @param map The map
      * @param key The key
@@ -60,6 +64,24 @@ public class DoubleMaps
         return result;
     }
     
+    /**
+     * Creates an {@link InterpolationTable} that contains the entries of 
+     * the given map, and returns the same values as 
+     * {@link #getInterpolated(NavigableMap, double)}, without boxing and
+     * without traversing the map for each lookup. Later changes in the
+     * given map will not be visible in the returned table.
+     * 
+     * @param map The map
+     * @return The {@link InterpolationTable}
+     * @throws IllegalArgumentException If the given map is empty or
+     * contains <code>NaN</code> keys
+     */
+    public static InterpolationTable createInterpolationTable(
+        NavigableMap<Double, ? extends Number> map)
+    {
+        return InterpolationTable.create(map);
+    }
+    
     
     /**
      * Private constructor to prevent instantiation
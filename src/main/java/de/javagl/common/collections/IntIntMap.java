@@ -0,0 +1,456 @@
+/*
+ * www.javagl.de - Common
+ *
+ * Copyright (c) 2012-2014 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.common.collections;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * A hash map from primitive <code>int</code> keys to primitive 
+ * <code>int</code> values. Keys and values are stored in plain
+ * arrays, so that neither lookups nor updates involve any boxing.<br>
+ * <br>
+ * Keys that are not contained in the map are treated as being
+ * mapped to 0.<br>
+ * <br>
+ * This class is not thread-safe.
+ */
+public final class IntIntMap
+{
+    /**
+     * Interface for classes that may receive the entries of an 
+     * {@link IntIntMap}
+     */
+    public interface EntryConsumer
+    {
+        /**
+         * Accept the given entry
+         * 
+         * @param key The key
+         * @param value The value
+         */
+        void accept(int key, int value);
+    }
+    
+    /**
+     * The keys
+     */
+    private int keys[];
+    
+    /**
+     * The values
+     */
+    private int values[];
+    
+    /**
+     * Whether the respective slot is occupied
+     */
+    private boolean used[];
+    
+    /**
+     * The number of entries
+     */
+    private int size;
+    
+    /**
+     * The mask for computing the slot index from a key
+     */
+    private int mask;
+    
+    /**
+     * The number of entries at which the table will be enlarged
+     */
+    private int threshold;
+    
+    /**
+     * Creates a new, empty map
+     */
+    public IntIntMap()
+    {
+        this(AbstractObjectKeyedMap.DEFAULT_EXPECTED_SIZE);
+    }
+    
+    /**
+     * Creates a new, empty map that can store the given number of
+     * entries without being resized
+     * 
+     * @param expectedSize The expected size
+     * @throws IllegalArgumentException If the given size is negative
+     */
+    public IntIntMap(int expectedSize)
+    {
+        allocate(AbstractObjectKeyedMap.capacityFor(expectedSize));
+    }
+    
+    /**
+     * Allocate the arrays for the given capacity
+     * 
+     * @param capacity The capacity
+     */
+    private void allocate(int capacity)
+    {
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        threshold = capacity / 2;
+    }
+    
+    /**
+     * Returns the home slot of the given key
+     * 
+     * @param key The key
+     * @return The slot
+     */
+    private int homeSlot(int key)
+    {
+        return AbstractObjectKeyedMap.mix(key) & mask;
+    }
+    
+    /**
+     * Returns the slot in which the given key is stored, or -1 if the
+     * key is not contained
+     * 
+     * @param key The key
+     * @return The slot
+     */
+    private int slotOf(int key)
+    {
+        int i = homeSlot(key);
+        while (used[i])
+        {
+            if (keys[i] == key)
+            {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+    
+    /**
+     * Returns the slot in which the given key is stored. If the key is
+     * not contained yet, it is inserted with a value of 0, and the bitwise 
+     * complement of the new slot index is returned. 
+     * 
+     * @param key The key
+     * @return The slot index, or its bitwise complement for new keys
+     */
+    private int insertionSlotOf(int key)
+    {
+        int i = homeSlot(key);
+        while (used[i])
+        {
+            if (keys[i] == key)
+            {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        if (size >= threshold)
+        {
+            grow();
+            i = homeSlot(key);
+            while (used[i])
+            {
+                i = (i + 1) & mask;
+            }
+        }
+        keys[i] = key;
+        used[i] = true;
+        size++;
+        return ~i;
+    }
+    
+    /**
+     * Doubles the capacity of this map
+     */
+    private void grow()
+    {
+        int oldKeys[] = keys;
+        int oldValues[] = values;
+        boolean oldUsed[] = used;
+        int newCapacity = oldKeys.length << 1;
+        if (newCapacity <= 0)
+        {
+            throw new IllegalStateException("Maximum capacity exceeded");
+        }
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldUsed[i])
+            {
+                int j = homeSlot(oldKeys[i]);
+                while (used[j])
+                {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+                used[j] = true;
+            }
+        }
+    }
+    
+    /**
+     * Returns the slot of the given key, inserting it if necessary
+     * 
+     * @param key The key
+     * @return The slot
+     */
+    private int slotFor(int key)
+    {
+        int slot = insertionSlotOf(key);
+        return slot < 0 ? ~slot : slot;
+    }
+    
+    /**
+     * Returns the number of entries in this map
+     * 
+     * @return The size
+     */
+    public int size()
+    {
+        return size;
+    }
+    
+    /**
+     * Returns whether this map is empty
+     * 
+     * @return Whether this map is empty
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+    
+    /**
+     * Returns whether this map contains the given key
+     * 
+     * @param key The key
+     * @return Whether the key is contained
+     */
+    public boolean containsKey(int key)
+    {
+        return slotOf(key) >= 0;
+    }
+    
+    /**
+     * Returns the value that is associated with the given key, or 0
+     * if the key is not contained in this map.
+     * 
+     * @param key The key
+     * @return The value
+     */
+    public int get(int key)
+    {
+        return getOrDefault(key, 0);
+    }
+    
+    /**
+     * Returns the value that is associated with the given key, or the
+     * given default value if the key is not contained in this map.
+     * 
+     * @param key The key
+     * @param defaultValue The default value
+     * @return The value
+     */
+    public int getOrDefault(int key, int defaultValue)
+    {
+        int slot = slotOf(key);
+        if (slot < 0)
+        {
+            return defaultValue;
+        }
+        return values[slot];
+    }
+    
+    /**
+     * Associate the given value with the given key
+     * 
+     * @param key The key
+     * @param value The value
+     * @return The previous value, or 0 if the key was not contained
+     */
+    public int put(int key, int value)
+    {
+        int slot = slotFor(key);
+        int oldValue = values[slot];
+        values[slot] = value;
+        return oldValue;
+    }
+    
+    /**
+     * Increments the value that is associated with the given key by one.
+     * If the key was not contained, it will be inserted with a value of 1.
+     * 
+     * @param key The key
+     * @return The new value
+     */
+    public int increment(int key)
+    {
+        return add(key, 1);
+    }
+    
+    /**
+     * Adds the given delta to the value that is associated with the 
+     * given key. If the key was not contained, it will be inserted 
+     * with the given delta as its value.
+     * 
+     * @param key The key
+     * @param delta The delta
+     * @return The new value
+     */
+    public int add(int key, int delta)
+    {
+        int slot = slotFor(key);
+        values[slot] += delta;
+        return values[slot];
+    }
+    
+    /**
+     * Merges the given value into this map. If the key was not contained,
+     * it will be inserted with the given value. Otherwise, the given
+     * function will be applied to the old value and the given value,
+     * and the result will be stored.
+     * 
+     * @param key The key
+     * @param value The value
+     * @param function The merging function
+     * @return The new value
+     * @throws NullPointerException If the key was contained and the 
+     * function is <code>null</code>
+     */
+    public int merge(int key, int value, IntBinaryOperator function)
+    {
+        int slot = insertionSlotOf(key);
+        if (slot < 0)
+        {
+            slot = ~slot;
+            values[slot] = value;
+        }
+        else
+        {
+            values[slot] = function.applyAsInt(values[slot], value);
+        }
+        return values[slot];
+    }
+    
+    /**
+     * Removes the given key from this map
+     * 
+     * @param key The key
+     * @return The value that was associated with the key, or 0 if the
+     * key was not contained
+     */
+    public int remove(int key)
+    {
+        int slot = slotOf(key);
+        if (slot < 0)
+        {
+            return 0;
+        }
+        int oldValue = values[slot];
+        int gap = slot;
+        used[gap] = false;
+        values[gap] = 0;
+        int j = gap;
+        while (true)
+        {
+            j = (j + 1) & mask;
+            if (!used[j])
+            {
+                break;
+            }
+            int home = homeSlot(keys[j]);
+            boolean stays = (j > gap) ? 
+                (home > gap && home <= j) :
+                (home > gap || home <= j);
+            if (!stays)
+            {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                used[gap] = true;
+                used[j] = false;
+                values[j] = 0;
+                gap = j;
+            }
+        }
+        size--;
+        return oldValue;
+    }
+    
+    /**
+     * Remove all entries from this map. The capacity is retained.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < used.length; i++)
+        {
+            used[i] = false;
+            values[i] = 0;
+        }
+        size = 0;
+    }
+    
+    /**
+     * Passes each key and its associated value to the given consumer
+     * 
+     * @param consumer The consumer
+     */
+    public void forEach(EntryConsumer consumer)
+    {
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (used[i])
+            {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+    
+    /**
+     * Creates a new map that contains the same entries as this map,
+     * with boxed keys and values
+     * 
+     * @return The map
+     */
+    public Map<Integer, Integer> toMap()
+    {
+        Map<Integer, Integer> map = new LinkedHashMap<Integer, Integer>();
+        forEach((k, v) -> map.put(k, v));
+        return map;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return toMap().toString();
+    }
+    
+}
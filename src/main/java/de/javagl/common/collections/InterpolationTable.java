@@ -0,0 +1,396 @@
+/*
+ * www.javagl.de - Common
+ *
+ * Copyright (c) 2012-2014 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.common.collections;
+
+import java.util.Arrays;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * An immutable table for linear interpolation between sample points.<br>
+ * <br>
+ * The keys and values are stored in parallel <code>double[]</code> arrays.
+ * Lookups use a binary search over the keys, or a direct index
+ * computation when the keys are evenly spaced. The semantics are the
+ * same as those of 
+ * {@link DoubleMaps#getInterpolated(NavigableMap, double)}: Keys that 
+ * are smaller than the smallest key or larger than the largest key will 
+ * be mapped to the value of the smallest or largest key, respectively.<br>
+ * <br>
+ * Instances may be created with {@link #create(double[], double[])},
+ * {@link #createUniform(double, double, double[])} or
+ * {@link DoubleMaps#createInterpolationTable(NavigableMap)}.
+ */
+public final class InterpolationTable implements DoubleUnaryOperator
+{
+    /**
+     * The relative tolerance for detecting evenly spaced keys
+     */
+    private static final double UNIFORM_EPSILON = 1e-10;
+    
+    /**
+     * The keys, in strictly ascending order
+     */
+    private final double keys[];
+    
+    /**
+     * The values
+     */
+    private final double values[];
+    
+    /**
+     * Whether the keys are evenly spaced
+     */
+    private final boolean uniform;
+    
+    /**
+     * The inverse of the distance between two keys, if they are
+     * evenly spaced
+     */
+    private final double invStep;
+    
+    /**
+     * The index of the key <code>-0.0</code>, if the key <code>0.0</code>
+     * follows it, or -1 otherwise. The zero keys are distinct for 
+     * {@link Double#compare(double, double)}, but not for the primitive 
+     * comparisons that are used for the lookup.
+     */
+    private final int signedZeroIndex;
+    
+    /**
+     * Creates a new table that uses the given arrays (without copying)
+     * 
+     * @param keys The keys
+     * @param values The values
+     */
+    private InterpolationTable(double keys[], double values[])
+    {
+        this.keys = keys;
+        this.values = values;
+        int n = keys.length;
+        int z = -1;
+        for (int i = 0; i < n - 1; i++)
+        {
+            if (keys[i] == 0.0 && keys[i + 1] == 0.0)
+            {
+                z = i;
+                break;
+            }
+        }
+        this.signedZeroIndex = z;
+        if (n < 2 || z != -1)
+        {
+            this.uniform = false;
+            this.invStep = 0.0;
+        }
+        else
+        {
+            double first = keys[0];
+            double step = (keys[n - 1] - first) / (n - 1);
+            double epsilon = UNIFORM_EPSILON * (keys[n - 1] - first);
+            boolean u = true;
+            for (int i = 1; i < n - 1; i++)
+            {
+                if (Math.abs(keys[i] - (first + i * step)) > epsilon)
+                {
+                    u = false;
+                    break;
+                }
+            }
+            this.uniform = u;
+            this.invStep = 1.0 / step;
+        }
+    }
+    
+    /**
+     * Creates a new interpolation table from the given keys and values.
+     * The given arrays will be copied.
+     * 
+     * @param keys The keys. These must be strictly ascending, in the
+     * order that is imposed by {@link Double#compare(double, double)}
+     * @param values The values
+     * @return The {@link InterpolationTable}
+     * @throws IllegalArgumentException If the arrays are empty, have
+     * different lengths, or the keys are not strictly ascending or
+     * contain <code>NaN</code> values
+     */
+    public static InterpolationTable create(double keys[], double values[])
+    {
+        if (keys.length != values.length)
+        {
+            throw new IllegalArgumentException(
+                "There are " + keys.length + " keys but " 
+                + values.length + " values");
+        }
+        if (keys.length == 0)
+        {
+            throw new IllegalArgumentException("No keys given");
+        }
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (Double.isNaN(keys[i]))
+            {
+                throw new IllegalArgumentException(
+                    "The key at index " + i + " is NaN");
+            }
+            if (i > 0 && Double.compare(keys[i], keys[i - 1]) <= 0)
+            {
+                throw new IllegalArgumentException(
+                    "The keys are not strictly ascending at index " + i);
+            }
+        }
+        return new InterpolationTable(keys.clone(), values.clone());
+    }
+    
+    /**
+     * Creates a new interpolation table for the given values, which are
+     * assumed to be sampled at evenly spaced keys between the given 
+     * minimum and maximum key. The given array will be copied.
+     * 
+     * @param minKey The minimum key
+     * @param maxKey The maximum key
+     * @param values The values
+     * @return The {@link InterpolationTable}
+     * @throws IllegalArgumentException If the values are empty, or
+     * there is more than one value and the minimum key is not smaller
+     * than the maximum key
+     */
+    public static InterpolationTable createUniform(
+        double minKey, double maxKey, double values[])
+    {
+        int n = values.length;
+        if (n == 0)
+        {
+            throw new IllegalArgumentException("No values given");
+        }
+        if (n > 1 && !(minKey < maxKey))
+        {
+            throw new IllegalArgumentException(
+                "The minimum key " + minKey + " is not smaller than " 
+                + "the maximum key " + maxKey);
+        }
+        double keys[] = new double[n];
+        double step = n > 1 ? (maxKey - minKey) / (n - 1) : 0.0;
+        for (int i = 0; i < n; i++)
+        {
+            keys[i] = minKey + i * step;
+        }
+        if (n > 1)
+        {
+            keys[n - 1] = maxKey;
+        }
+        return new InterpolationTable(keys, values.clone());
+    }
+    
+    /**
+     * Creates a new interpolation table from the entries of the given map
+     * 
+     * @param map The map
+     * @return The {@link InterpolationTable}
+     * @throws IllegalArgumentException If the map is empty or contains
+     * <code>NaN</code> keys
+     */
+    static InterpolationTable create(
+        NavigableMap<Double, ? extends Number> map)
+    {
+        if (map.isEmpty())
+        {
+            throw new IllegalArgumentException("Empty map");
+        }
+        double keys[] = new double[map.size()];
+        double values[] = new double[map.size()];
+        int index = 0;
+        for (Entry<Double, ? extends Number> entry : map.entrySet())
+        {
+            keys[index] = entry.getKey();
+            values[index] = entry.getValue().doubleValue();
+            index++;
+        }
+        return create(keys, values);
+    }
+    
+    /**
+     * Returns the number of sample points in this table
+     * 
+     * @return The number of sample points
+     */
+    public int size()
+    {
+        return keys.length;
+    }
+    
+    /**
+     * Returns the key at the given index
+     * 
+     * @param index The index
+     * @return The key
+     * @throws IndexOutOfBoundsException If the index is negative or
+     * not smaller than {@link #size()}
+     */
+    public double getKey(int index)
+    {
+        return keys[index];
+    }
+    
+    /**
+     * Returns the value at the given index
+     * 
+     * @param index The index
+     * @return The value
+     * @throws IndexOutOfBoundsException If the index is negative or
+     * not smaller than {@link #size()}
+     */
+    public double getValue(int index)
+    {
+        return values[index];
+    }
+    
+    /**
+     * Returns whether the keys of this table are evenly spaced, so that
+     * lookups do not require a binary search
+     * 
+     * @return Whether the keys are evenly spaced
+     */
+    public boolean isUniform()
+    {
+        return uniform;
+    }
+    
+    /**
+     * Returns the linearly interpolated value for the given key
+     * 
+     * @param key The key
+     * @return The interpolated value
+     */
+    public double interpolate(double key)
+    {
+        int n = keys.length;
+        if (key == 0.0 && signedZeroIndex != -1)
+        {
+            // Both zeros are keys, and -0.0 is mapped to the value of -0.0
+            int offset = Double.doubleToRawLongBits(key) == 0L ? 1 : 0;
+            return values[signedZeroIndex + offset];
+        }
+        if (key <= keys[0])
+        {
+            return values[0];
+        }
+        // NaN is mapped to the value of the largest key, because it is
+        // considered to be larger than all keys by Double#compareTo
+        if (!(key < keys[n - 1]))
+        {
+            return values[n - 1];
+        }
+        int i = uniform ? uniformIndexOf(key) : searchIndexOf(key);
+        double k0 = keys[i];
+        double alpha = (key - k0) / (keys[i + 1] - k0);
+        double v0 = values[i];
+        return v0 + alpha * (values[i + 1] - v0);
+    }
+    
+    /**
+     * Computes the linearly interpolated value for each key in the given 
+     * input array, and writes it into the given output array. The given
+     * arrays may be identical.
+     * 
+     * @param in The keys
+     * @param out The array that will store the interpolated values
+     * @throws IllegalArgumentException If the output array is shorter 
+     * than the input array
+     */
+    public void interpolateAll(double in[], double out[])
+    {
+        if (out.length < in.length)
+        {
+            throw new IllegalArgumentException(
+                "The output array has a length of " + out.length 
+                + ", but must at least have a length of " + in.length);
+        }
+        for (int j = 0; j < in.length; j++)
+        {
+            out[j] = interpolate(in[j]);
+        }
+    }
+    
+    @Override
+    public double applyAsDouble(double operand)
+    {
+        return interpolate(operand);
+    }
+    
+    /**
+     * Returns the index of the largest key that is not larger than the
+     * given key, for evenly spaced keys. The given key must be strictly
+     * between the smallest and the largest key.
+     * 
+     * @param key The key
+     * @return The index
+     */
+    private int uniformIndexOf(double key)
+    {
+        int last = keys.length - 2;
+        int i = (int)((key - keys[0]) * invStep);
+        i = Math.max(0, Math.min(last, i));
+        
+        // Compensate for rounding errors in the index computation
+        if (key < keys[i])
+        {
+            i--;
+        }
+        else if (i < last && key >= keys[i + 1])
+        {
+            i++;
+        }
+        return i;
+    }
+    
+    /**
+     * Returns the index of the largest key that is not larger than the
+     * given key. The given key must be strictly between the smallest and 
+     * the largest key.
+     * 
+     * @param key The key
+     * @return The index
+     */
+    private int searchIndexOf(double key)
+    {
+        int index = Arrays.binarySearch(keys, key);
+        if (index >= 0)
+        {
+            return index;
+        }
+        return -index - 2;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "InterpolationTable[size=" + keys.length 
+            + ",uniform=" + uniform + "]";
+    }
+}
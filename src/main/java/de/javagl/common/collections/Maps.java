@@ -37,7 +37,10 @@ public class Maps
     /**
      * Increments the value that is stored for the given key in the given
      * map by one, or sets it to 1 if there was no value stored for the
-     * given key.
+     * given key.<br>
+     * <br>
+     * For frequent counting, an {@link ObjectIntMap} may be used, 
+     * which avoids boxing the count values.
      * 
      * @param <K> The key type
      * @param map The map 
@@ -95,7 +98,10 @@ public class Maps
     /**
      * Adds the given element to the list that is stored under the
      * given key. If the list does not yet exist, it is created and
-     * inserted into the map.
+     * inserted into the map.<br>
+     * <br>
+     * For grouping large numbers of elements, a {@link CompactMultimap}
+     * may be used, which does not create one list per key.
      * 
      * @param <K> The key type
      * @param <E> The element type
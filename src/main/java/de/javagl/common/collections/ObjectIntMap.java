@@ -0,0 +1,274 @@
+/*
+ * www.javagl.de - Common
+ *
+ * Copyright (c) 2012-2014 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.common.collections;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntBinaryOperator;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A hash map from object keys to primitive <code>int</code> values.
+ * The values are stored in a plain <code>int[]</code> array, so that
+ * counting and accumulating values does not involve any boxing.<br>
+ * <br>
+ * Keys that are not contained in the map are treated as being
+ * mapped to 0. <code>null</code> keys are not supported.<br>
+ * <br>
+ * This class is not thread-safe.
+ * 
+ * @param <K> The key type
+ */
+public final class ObjectIntMap<K> extends AbstractObjectKeyedMap<K>
+{
+    /**
+     * The values
+     */
+    private int values[];
+    
+    /**
+     * Creates a new, empty map
+     */
+    public ObjectIntMap()
+    {
+        this(DEFAULT_EXPECTED_SIZE);
+    }
+    
+    /**
+     * Creates a new, empty map that can store the given number of
+     * entries without being resized
+     * 
+     * @param expectedSize The expected size
+     * @throws IllegalArgumentException If the given size is negative
+     */
+    public ObjectIntMap(int expectedSize)
+    {
+        super(expectedSize);
+        this.values = new int[keys.length];
+    }
+    
+    /**
+     * Returns the value that is associated with the given key, or 0
+     * if the key is not contained in this map.
+     * 
+     * @param key The key
+     * @return The value
+     * @throws NullPointerException If the key is <code>null</code>
+     */
+    public int get(Object key)
+    {
+        return getOrDefault(key, 0);
+    }
+    
+    /**
+     * Returns the value that is associated with the given key, or the
+     * given default value if the key is not contained in this map.
+     * 
+     * @param key The key
+     * @param defaultValue The default value
+     * @return The value
+     * @throws NullPointerException If the key is <code>null</code>
+     */
+    public int getOrDefault(Object key, int defaultValue)
+    {
+        int slot = slotOf(key);
+        if (slot < 0)
+        {
+            return defaultValue;
+        }
+        return values[slot];
+    }
+    
+    /**
+     * Associate the given value with the given key
+     * 
+     * @param key The key
+     * @param value The value
+     * @return The previous value, or 0 if the key was not contained
+     * @throws NullPointerException If the key is <code>null</code>
+     */
+    public int put(K key, int value)
+    {
+        int slot = slotFor(key);
+        int oldValue = values[slot];
+        values[slot] = value;
+        return oldValue;
+    }
+    
+    /**
+     * Increments the value that is associated with the given key by one.
+     * If the key was not contained, it will be inserted with a value of 1.
+     * 
+     * @param key The key
+     * @return The new value
+     * @throws NullPointerException If the key is <code>null</code>
+     */
+    public int increment(K key)
+    {
+        return add(key, 1);
+    }
+    
+    /**
+     * Adds the given delta to the value that is associated with the 
+     * given key. If the key was not contained, it will be inserted 
+     * with the given delta as its value.
+     * 
+     * @param key The key
+     * @param delta The delta
+     * @return The new value
+     * @throws NullPointerException If the key is <code>null</code>
+     */
+    public int add(K key, int delta)
+    {
+        int slot = slotFor(key);
+        values[slot] += delta;
+        return values[slot];
+    }
+    
+    /**
+     * Merges the given value into this map. If the key was not contained,
+     * it will be inserted with the given value. Otherwise, the given
+     * function will be applied to the old value and the given value,
+     * and the result will be stored.
+     * 
+     * @param key The key
+     * @param value The value
+     * @param function The merging function
+     * @return The new value
+     * @throws NullPointerException If the key is <code>null</code>, or
+     * the key was contained and the function is <code>null</code>
+     */
+    public int merge(K key, int value, IntBinaryOperator function)
+    {
+        int slot = insertionSlotOf(key);
+        if (slot < 0)
+        {
+            slot = ~slot;
+            values[slot] = value;
+        }
+        else
+        {
+            values[slot] = function.applyAsInt(values[slot], value);
+        }
+        return values[slot];
+    }
+    
+    /**
+     * Removes the given key from this map
+     * 
+     * @param key The key
+     * @return The value that was associated with the key, or 0 if the
+     * key was not contained
+     * @throws NullPointerException If the key is <code>null</code>
+     */
+    public int remove(Object key)
+    {
+        int slot = slotOf(key);
+        if (slot < 0)
+        {
+            return 0;
+        }
+        int oldValue = values[slot];
+        removeSlot(slot);
+        return oldValue;
+    }
+    
+    /**
+     * Passes each key and its associated value to the given consumer
+     * 
+     * @param consumer The consumer
+     */
+    public void forEach(ObjIntConsumer<? super K> consumer)
+    {
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i] != null)
+            {
+                consumer.accept(keyAt(i), values[i]);
+            }
+        }
+    }
+    
+    /**
+     * Creates a new map that contains the same entries as this map,
+     * with boxed values
+     * 
+     * @return The map
+     */
+    public Map<K, Integer> toMap()
+    {
+        Map<K, Integer> map = new LinkedHashMap<K, Integer>();
+        forEach((k, v) -> map.put(k, v));
+        return map;
+    }
+    
+    /**
+     * Returns the slot of the given key, inserting it if necessary
+     * 
+     * @param key The key
+     * @return The slot
+     */
+    private int slotFor(K key)
+    {
+        int slot = insertionSlotOf(key);
+        return slot < 0 ? ~slot : slot;
+    }
+    
+    @Override
+    void relocateValues(int newSlots[], int newCapacity)
+    {
+        int newValues[] = new int[newCapacity];
+        for (int i = 0; i < newSlots.length; i++)
+        {
+            if (newSlots[i] >= 0)
+            {
+                newValues[newSlots[i]] = values[i];
+            }
+        }
+        values = newValues;
+    }
+    
+    @Override
+    void moveValue(int from, int to)
+    {
+        values[to] = values[from];
+        values[from] = 0;
+    }
+    
+    @Override
+    void clearValue(int slot)
+    {
+        values[slot] = 0;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return toMap().toString();
+    }
+    
+}
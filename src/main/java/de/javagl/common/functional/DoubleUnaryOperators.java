@@ -28,6 +28,8 @@ package de.javagl.common.functional;
 
 import java.util.function.DoubleUnaryOperator;
 
+import de.javagl.common.collections.InterpolationTable;
+
 /**
  * Utility methods to create {@link DoubleUnaryOperator} instances
  */
@@ -80,6 +82,24 @@ public class DoubleUnaryOperators
         };
     }
     
+    /**
+     * Returns a {@link DoubleUnaryOperator} that interpolates linearly
+     * between the given sample points. Arguments that are outside of 
+     * the range of the given keys will be mapped to the value of the 
+     * nearest key. The given arrays will be copied.
+     * 
+     * @param keys The keys. These must be strictly ascending.
+     * @param values The values
+     * @return The {@link DoubleUnaryOperator}
+     * @throws IllegalArgumentException If the arrays are empty, have
+     * different lengths, or the keys are not strictly ascending
+     */
+    public static DoubleUnaryOperator interpolate(
+        double keys[], double values[])
+    {
+        return InterpolationTable.create(keys, values);
+    }
+    
     /**
      * Returns a {@link DoubleUnaryOperator} that clamps the results from the
      * given function to the interval [min,max]
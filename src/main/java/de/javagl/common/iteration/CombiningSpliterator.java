@@ -0,0 +1,166 @@
+/*
+ * www.javagl.de - Common
+ *
+ * Copyright (c) 2012-2014 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.common.iteration;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Implementation of a spliterator that combines multiple other 
+ * spliterators. This is the splittable counterpart of the 
+ * {@link CombiningIterator}. Splitting first divides the sequence of 
+ * delegate spliterators, and then splits the single remaining delegate.
+ *
+ * @param <T> The type of the elements
+ */
+class CombiningSpliterator<T> implements Spliterator<T>
+{
+    /**
+     * The delegate spliterators
+     */
+    private final List<? extends Spliterator<? extends T>> spliterators;
+    
+    /**
+     * The index of the current delegate spliterator
+     */
+    private int current;
+    
+    /**
+     * The index after the last delegate spliterator that is covered
+     * by this spliterator
+     */
+    private final int end;
+    
+    /**
+     * Creates a spliterator that provides the elements of the given
+     * spliterators, in the range [start, end), one after another.<br>
+     * <br>
+     * The given list is assumed to be non-<code>null</code> and to 
+     * not contain <code>null</code> elements.
+     * 
+     * @param spliterators The delegate spliterators
+     * @param start The index of the first spliterator
+     * @param end The index after the last spliterator
+     */
+    CombiningSpliterator(
+        List<? extends Spliterator<? extends T>> spliterators, 
+        int start, int end)
+    {
+        this.spliterators = spliterators;
+        this.current = start;
+        this.end = end;
+    }
+    
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action)
+    {
+        while (current < end)
+        {
+            if (spliterators.get(current).tryAdvance(action))
+            {
+                return true;
+            }
+            current++;
+        }
+        return false;
+    }
+    
+    @Override
+    public void forEachRemaining(Consumer<? super T> action)
+    {
+        while (current < end)
+        {
+            spliterators.get(current).forEachRemaining(action);
+            current++;
+        }
+    }
+    
+    @Override
+    public Spliterator<T> trySplit()
+    {
+        int remaining = end - current;
+        if (remaining > 1)
+        {
+            int middle = (current + end) >>> 1;
+            Spliterator<T> prefix = 
+                new CombiningSpliterator<T>(spliterators, current, middle);
+            current = middle;
+            return prefix;
+        }
+        if (remaining == 1)
+        {
+            Spliterator<? extends T> split = 
+                spliterators.get(current).trySplit();
+            if (split == null)
+            {
+                return null;
+            }
+            return new CombiningSpliterator<T>(
+                Collections.singletonList(split), 0, 1);
+        }
+        return null;
+    }
+    
+    @Override
+    public long estimateSize()
+    {
+        long sum = 0;
+        for (int i = current; i < end; i++)
+        {
+            sum += spliterators.get(i).estimateSize();
+            if (sum < 0)
+            {
+                return Long.MAX_VALUE;
+            }
+        }
+        return sum;
+    }
+    
+    @Override
+    public int characteristics()
+    {
+        if (current >= end)
+        {
+            return SIZED | SUBSIZED;
+        }
+        int result = ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        long sum = 0;
+        for (int i = current; i < end; i++)
+        {
+            Spliterator<? extends T> spliterator = spliterators.get(i);
+            result &= spliterator.characteristics();
+            sum += spliterator.estimateSize();
+            if (sum < 0)
+            {
+                result &= ~(SIZED | SUBSIZED);
+            }
+        }
+        return result;
+    }
+}
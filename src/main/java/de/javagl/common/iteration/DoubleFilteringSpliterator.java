@@ -0,0 +1,148 @@
+/*
+ * www.javagl.de - Common
+ *
+ * Copyright (c) 2012-2014 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.common.iteration;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoublePredicate;
+
+/**
+ * A primitive <code>double</code> spliterator that provides the elements 
+ * from another spliterator, filtered with an {@link DoublePredicate}.
+ */
+class DoubleFilteringSpliterator
+    implements Spliterator.OfDouble, DoubleConsumer
+{
+    /**
+     * The backing spliterator
+     */
+    private final Spliterator.OfDouble spliterator;
+    
+    /**
+     * The predicate that will be applied to the
+     * elements of the backing spliterator.
+     */
+    private final DoublePredicate predicate;
+    
+    /**
+     * The last element that was received from the backing spliterator
+     * and matched the predicate
+     */
+    private double current;
+    
+    /**
+     * Whether the {@link #current} element is valid
+     */
+    private boolean hasCurrent;
+    
+    /**
+     * Creates a new filtering spliterator that provides only the elements
+     * of the given spliterator for which the predicate applies.<br>
+     * <br>
+     * The given arguments are assumed to be non-<code>null</code>
+     * 
+     * @param spliterator The backing spliterator
+     * @param predicate The predicate to apply to the elements
+     * of the backing spliterator. Only the elements that match this
+     * predicate will be provided.
+     */
+    DoubleFilteringSpliterator(
+        Spliterator.OfDouble spliterator, DoublePredicate predicate)
+    {
+        this.spliterator = spliterator;
+        this.predicate = predicate;
+    }
+    
+    @Override
+    public void accept(double t)
+    {
+        if (predicate.test(t))
+        {
+            current = t;
+            hasCurrent = true;
+        }
+    }
+    
+    @Override
+    public boolean tryAdvance(DoubleConsumer action)
+    {
+        hasCurrent = false;
+        while (!hasCurrent && spliterator.tryAdvance((DoubleConsumer)this))
+        {
+            // Advance until an element matches
+        }
+        if (!hasCurrent)
+        {
+            return false;
+        }
+        hasCurrent = false;
+        action.accept(current);
+        return true;
+    }
+    
+    @Override
+    public void forEachRemaining(DoubleConsumer action)
+    {
+        spliterator.forEachRemaining((double t) -> 
+        {
+            if (predicate.test(t))
+            {
+                action.accept(t);
+            }
+        });
+    }
+    
+    @Override
+    public Spliterator.OfDouble trySplit()
+    {
+        Spliterator.OfDouble split = spliterator.trySplit();
+        if (split == null)
+        {
+            return null;
+        }
+        return new DoubleFilteringSpliterator(split, predicate);
+    }
+    
+    @Override
+    public long estimateSize()
+    {
+        return spliterator.estimateSize();
+    }
+    
+    @Override
+    public int characteristics()
+    {
+        return spliterator.characteristics() & ~(SIZED | SUBSIZED);
+    }
+    
+    @Override
+    public Comparator<? super Double> getComparator()
+    {
+        return spliterator.getComparator();
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * www.javagl.de - Common
+ *
+ * Copyright (c) 2012-2014 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.common.iteration;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A spliterator that provides the elements from another spliterator,
+ * filtered with a <code>Predicate</code>. This is the splittable 
+ * counterpart of the {@link FilteringIterator}.
+ *
+ * @param <T> The type of the elements
+ */
+class FilteringSpliterator<T> implements Spliterator<T>, Consumer<T>
+{
+    /**
+     * The backing spliterator
+     */
+    private final Spliterator<? extends T> spliterator;
+    
+    /**
+     * The predicate that will be applied to the
+     * elements of the backing spliterator.
+     */
+    private final Predicate<? super T> predicate;
+    
+    /**
+     * The last element that was received from the backing spliterator
+     * and matched the predicate
+     */
+    private T current;
+    
+    /**
+     * Whether the {@link #current} element is valid
+     */
+    private boolean hasCurrent;
+    
+    /**
+     * Creates a new filtering spliterator that provides only the elements
+     * of the given spliterator for which the predicate applies.<br>
+     * <br>
+     * The given arguments are assumed to be non-<code>null</code>
+     * 
+     * @param spliterator The backing spliterator
+     * @param predicate The predicate to apply to the elements
+     * of the backing spliterator. Only the elements that match this
+     * predicate will be provided.
+     */
+    FilteringSpliterator(
+        Spliterator<? extends T> spliterator, 
+        Predicate<? super T> predicate)
+    {
+        this.spliterator = spliterator;
+        this.predicate = predicate;
+    }
+    
+    @Override
+    public void accept(T t)
+    {
+        if (predicate.test(t))
+        {
+            current = t;
+            hasCurrent = true;
+        }
+    }
+    
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action)
+    {
+        hasCurrent = false;
+        while (!hasCurrent && spliterator.tryAdvance(this))
+        {
+            // Advance until an element matches
+        }
+        if (!hasCurrent)
+        {
+            return false;
+        }
+        T result = current;
+        current = null;
+        hasCurrent = false;
+        action.accept(result);
+        return true;
+    }
+    
+    @Override
+    public void forEachRemaining(Consumer<? super T> action)
+    {
+        spliterator.forEachRemaining(t -> 
+        {
+            if (predicate.test(t))
+            {
+                action.accept(t);
+            }
+        });
+    }
+    
+    @Override
+    public Spliterator<T> trySplit()
+    {
+        Spliterator<? extends T> split = spliterator.trySplit();
+        if (split == null)
+        {
+            return null;
+        }
+        return new FilteringSpliterator<T>(split, predicate);
+    }
+    
+    @Override
+    public long estimateSize()
+    {
+        return spliterator.estimateSize();
+    }
+    
+    @Override
+    public int characteristics()
+    {
+        return spliterator.characteristics() & ~(SIZED | SUBSIZED);
+    }
+    
+    @Override
+    public Comparator<? super T> getComparator()
+    {
+        @SuppressWarnings("unchecked")
+        Comparator<? super T> comparator = 
+            (Comparator<? super T>) spliterator.getComparator();
+        return comparator;
+    }
+}
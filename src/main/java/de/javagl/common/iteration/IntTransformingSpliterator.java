@@ -0,0 +1,133 @@
+/*
+ * www.javagl.de - Common
+ *
+ * Copyright (c) 2012-2014 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.common.iteration;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * A primitive <code>int</code> spliterator over the results of applying 
+ * a {@link ToIntFunction} to the elements provided by another spliterator.
+ *
+ * @param <S> The input type
+ */
+class IntTransformingSpliterator<S>
+    implements Spliterator.OfInt, Consumer<S>
+{
+    /**
+     * The characteristics of the backing spliterator that are retained
+     */
+    private static final int RETAINED_CHARACTERISTICS = 
+        ORDERED | SIZED | SUBSIZED | IMMUTABLE | CONCURRENT;
+    
+    /**
+     * The backing spliterator
+     */
+    private final Spliterator<? extends S> spliterator;
+    
+    /**
+     * The {@link ToIntFunction} that will be applied to the
+     * elements of the backing spliterator.
+     */
+    private final ToIntFunction<? super S> function;
+    
+    /**
+     * The action that the current {@link #tryAdvance(IntConsumer)} call
+     * passes the transformed element to
+     */
+    private IntConsumer currentAction;
+    
+    /**
+     * Creates a new transforming spliterator that applies the given 
+     * function to the elements provided by the given spliterator.<br>
+     * <br>
+     * The given arguments are assumed to be non-<code>null</code>
+     * 
+     * @param spliterator The backing spliterator
+     * @param function The {@link ToIntFunction} to apply to the elements
+     * of the backing spliterator
+     */
+    IntTransformingSpliterator(
+        Spliterator<? extends S> spliterator, 
+        ToIntFunction<? super S> function)
+    {
+        this.spliterator = spliterator;
+        this.function = function;
+    }
+    
+    @Override
+    public void accept(S s)
+    {
+        currentAction.accept(function.applyAsInt(s));
+    }
+    
+    @Override
+    public boolean tryAdvance(IntConsumer action)
+    {
+        currentAction = action;
+        try
+        {
+            return spliterator.tryAdvance(this);
+        }
+        finally
+        {
+            currentAction = null;
+        }
+    }
+    
+    @Override
+    public void forEachRemaining(IntConsumer action)
+    {
+        spliterator.forEachRemaining(
+            s -> action.accept(function.applyAsInt(s)));
+    }
+    
+    @Override
+    public Spliterator.OfInt trySplit()
+    {
+        Spliterator<? extends S> split = spliterator.trySplit();
+        if (split == null)
+        {
+            return null;
+        }
+        return new IntTransformingSpliterator<S>(split, function);
+    }
+    
+    @Override
+    public long estimateSize()
+    {
+        return spliterator.estimateSize();
+    }
+    
+    @Override
+    public int characteristics()
+    {
+        return spliterator.characteristics() & RETAINED_CHARACTERISTICS;
+    }
+}
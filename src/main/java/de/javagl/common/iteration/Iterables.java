@@ -108,6 +108,13 @@ public class Iterables
                 return Iterators.iteratorOverIterables(
                     iterablesIterable.iterator());
             }
+            
+            @Override
+            public Spliterator<T> spliterator()
+            {
+                return MoreSpliterators.spliteratorOverIterables(
+                    iterablesIterable);
+            }
         };
     }
 
@@ -115,7 +122,11 @@ public class Iterables
     /**
      * Returns an iterable that provides iterators that are transforming
      * the elements provided by the iterators of the given iterable using
-     * the given function
+     * the given function.<br>
+     * <br>
+     * The spliterator of the returned iterable is based on the 
+     * spliterator of the given iterable, and may therefore be split
+     * for parallel processing.
      * 
      * @param <S> The element type 
      * @param <T> The value type 
@@ -137,13 +148,24 @@ public class Iterables
                 return new TransformingIterator<S, T>(
                     iterable.iterator(), function);
             }
+            
+            @Override
+            public Spliterator<T> spliterator()
+            {
+                return new TransformingSpliterator<S, T>(
+                    iterable.spliterator(), function);
+            }
         };
     }
 
     /**
      * Returns an iterable that provides an iterator that only returns the
      * elements provided by the iterator of the given iterable to which
-     * the given predicate applies.
+     * the given predicate applies.<br>
+     * <br>
+     * The spliterator of the returned iterable is based on the 
+     * spliterator of the given iterable, and may therefore be split
+     * for parallel processing.
      * 
      * @param <T> The element type 
      * @param iterable The delegate iterable
@@ -164,6 +186,13 @@ public class Iterables
                 return new FilteringIterator<T>(
                     iterable.iterator(), predicate);
             }
+            
+            @Override
+            public Spliterator<T> spliterator()
+            {
+                return new FilteringSpliterator<T>(
+                    iterable.spliterator(), predicate);
+            }
         };
     }
     
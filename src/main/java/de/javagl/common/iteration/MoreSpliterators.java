@@ -0,0 +1,258 @@
+/*
+ * www.javagl.de - Common
+ *
+ * Copyright (c) 2012-2014 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.common.iteration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.DoublePredicate;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Utility methods related to spliterators. These are the splittable
+ * counterparts of the methods in {@link Iterators}: The returned 
+ * spliterators report their size, characteristics and support splitting 
+ * whenever their sources do, so that they may be used as the basis
+ * of parallel streams.<br>
+ * <br>
+ * Unless otherwise noted, none of the parameters of these methods 
+ * may be <code>null</code>.
+ */
+public class MoreSpliterators
+{
+    /**
+     * Returns a spliterator that combines the given spliterators.
+     * 
+     * @param <T> The element type 
+     * @param spliterator0 The first spliterator
+     * @param spliterator1 The second spliterator
+     * @return The spliterator
+     */
+    public static <T> Spliterator<T> spliteratorOverSpliterators(
+        Spliterator<? extends T> spliterator0, 
+        Spliterator<? extends T> spliterator1)
+    {
+        Objects.requireNonNull(spliterator0, "The spliterator0 is null");
+        Objects.requireNonNull(spliterator1, "The spliterator1 is null");
+        List<Spliterator<? extends T>> spliterators = 
+            new ArrayList<Spliterator<? extends T>>(2);
+        spliterators.add(spliterator0);
+        spliterators.add(spliterator1);
+        return new CombiningSpliterator<T>(spliterators, 0, 2);
+    }
+    
+    /**
+     * Returns a spliterator that combines the given spliterators.
+     * 
+     * @param <T> The element type 
+     * @param spliterators The spliterators. May not contain 
+     * <code>null</code> elements.
+     * @return The spliterator
+     */
+    public static <T> Spliterator<T> spliteratorOverSpliterators(
+        Iterable<? extends Spliterator<? extends T>> spliterators)
+    {
+        Objects.requireNonNull(spliterators, "The spliterators are null");
+        List<Spliterator<? extends T>> list = 
+            new ArrayList<Spliterator<? extends T>>();
+        for (Spliterator<? extends T> spliterator : spliterators)
+        {
+            Objects.requireNonNull(spliterator, 
+                "The spliterators contain null");
+            list.add(spliterator);
+        }
+        return new CombiningSpliterator<T>(list, 0, list.size());
+    }
+    
+    /**
+     * Returns a spliterator that combines the spliterators of the
+     * given iterables.
+     * 
+     * @param <T> The element type 
+     * @param iterables The iterables. May not contain <code>null</code>
+     * elements.
+     * @return The spliterator
+     */
+    public static <T> Spliterator<T> spliteratorOverIterables(
+        Iterable<? extends Iterable<? extends T>> iterables)
+    {
+        Objects.requireNonNull(iterables, "The iterables are null");
+        List<Spliterator<? extends T>> list = 
+            new ArrayList<Spliterator<? extends T>>();
+        for (Iterable<? extends T> iterable : iterables)
+        {
+            Objects.requireNonNull(iterable, "The iterables contain null");
+            list.add(iterable.spliterator());
+        }
+        return new CombiningSpliterator<T>(list, 0, list.size());
+    }
+    
+    /**
+     * Creates a spliterator that passes the elements that are provided
+     * by the given delegate spliterator to the given function, and
+     * provides the resulting values
+     * 
+     * @param <S> The element type 
+     * @param <T> The value type 
+     * @param spliterator The delegate spliterator
+     * @param function The function
+     * @return The spliterator
+     */
+    public static <S, T> Spliterator<T> transformingSpliterator(
+        Spliterator<? extends S> spliterator, 
+        Function<? super S, ? extends T> function)
+    {
+        Objects.requireNonNull(spliterator, "The spliterator is null");
+        Objects.requireNonNull(function, "The function is null");
+        return new TransformingSpliterator<S, T>(spliterator, function);
+    }
+    
+    /**
+     * Creates a primitive <code>int</code> spliterator that passes the 
+     * elements that are provided by the given delegate spliterator to 
+     * the given function, and provides the resulting values
+     * 
+     * @param <S> The element type 
+     * @param spliterator The delegate spliterator
+     * @param function The function
+     * @return The spliterator
+     */
+    public static <S> Spliterator.OfInt intTransformingSpliterator(
+        Spliterator<? extends S> spliterator, 
+        ToIntFunction<? super S> function)
+    {
+        Objects.requireNonNull(spliterator, "The spliterator is null");
+        Objects.requireNonNull(function, "The function is null");
+        return new IntTransformingSpliterator<S>(spliterator, function);
+    }
+    
+    /**
+     * Creates a primitive <code>double</code> spliterator that passes the 
+     * elements that are provided by the given delegate spliterator to 
+     * the given function, and provides the resulting values
+     * 
+     * @param <S> The element type 
+     * @param spliterator The delegate spliterator
+     * @param function The function
+     * @return The spliterator
+     */
+    public static <S> Spliterator.OfDouble doubleTransformingSpliterator(
+        Spliterator<? extends S> spliterator, 
+        ToDoubleFunction<? super S> function)
+    {
+        Objects.requireNonNull(spliterator, "The spliterator is null");
+        Objects.requireNonNull(function, "The function is null");
+        return new DoubleTransformingSpliterator<S>(spliterator, function);
+    }
+    
+    /**
+     * Creates a spliterator that only provides the elements from the
+     * given spliterator to which the given predicate applies.
+     * 
+     * @param <T> The element type 
+     * @param spliterator The delegate spliterator
+     * @param predicate The predicate
+     * @return The spliterator
+     */
+    public static <T> Spliterator<T> filteringSpliterator(
+        Spliterator<? extends T> spliterator, 
+        Predicate<? super T> predicate)
+    {
+        Objects.requireNonNull(spliterator, "The spliterator is null");
+        Objects.requireNonNull(predicate, "The predicate is null");
+        return new FilteringSpliterator<T>(spliterator, predicate);
+    }
+    
+    /**
+     * Creates a primitive <code>int</code> spliterator that only provides 
+     * the elements from the given spliterator to which the given predicate 
+     * applies.
+     * 
+     * @param spliterator The delegate spliterator
+     * @param predicate The predicate
+     * @return The spliterator
+     */
+    public static Spliterator.OfInt intFilteringSpliterator(
+        Spliterator.OfInt spliterator, IntPredicate predicate)
+    {
+        Objects.requireNonNull(spliterator, "The spliterator is null");
+        Objects.requireNonNull(predicate, "The predicate is null");
+        return new IntFilteringSpliterator(spliterator, predicate);
+    }
+    
+    /**
+     * Creates a primitive <code>double</code> spliterator that only 
+     * provides the elements from the given spliterator to which the 
+     * given predicate applies.
+     * 
+     * @param spliterator The delegate spliterator
+     * @param predicate The predicate
+     * @return The spliterator
+     */
+    public static Spliterator.OfDouble doubleFilteringSpliterator(
+        Spliterator.OfDouble spliterator, DoublePredicate predicate)
+    {
+        Objects.requireNonNull(spliterator, "The spliterator is null");
+        Objects.requireNonNull(predicate, "The predicate is null");
+        return new DoubleFilteringSpliterator(spliterator, predicate);
+    }
+    
+    /**
+     * Creates a stream that provides the elements of the given iterable,
+     * based on its spliterator
+     * 
+     * @param <T> The element type
+     * @param iterable The iterable
+     * @param parallel Whether the stream should be parallel
+     * @return The stream
+     */
+    public static <T> Stream<T> stream(
+        Iterable<? extends T> iterable, boolean parallel)
+    {
+        Objects.requireNonNull(iterable, "The iterable is null");
+        
+        // Spliterators only provide elements, so this cast is safe
+        @SuppressWarnings("unchecked")
+        Spliterator<T> spliterator = (Spliterator<T>)iterable.spliterator();
+        return StreamSupport.stream(spliterator, parallel);
+    }
+    
+    /**
+     * Private constructor to prevent instantiation
+     */
+    private MoreSpliterators()
+    {
+        // Private constructor to prevent instantiation
+    }
+}
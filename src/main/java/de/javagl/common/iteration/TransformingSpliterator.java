@@ -0,0 +1,112 @@
+/*
+ * www.javagl.de - Common
+ *
+ * Copyright (c) 2012-2014 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package de.javagl.common.iteration;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A spliterator over the results of applying a {@link Function} to the
+ * elements provided by another spliterator. This is the splittable 
+ * counterpart of the {@link TransformingIterator}.
+ *
+ * @param <S> The input type
+ * @param <T> The output type
+ */
+class TransformingSpliterator<S, T> implements Spliterator<T>
+{
+    /**
+     * The characteristics of the backing spliterator that are retained
+     */
+    private static final int RETAINED_CHARACTERISTICS = 
+        ORDERED | SIZED | SUBSIZED | IMMUTABLE | CONCURRENT;
+    
+    /**
+     * The backing spliterator
+     */
+    private final Spliterator<? extends S> spliterator;
+    
+    /**
+     * The {@link Function} that will be applied to the
+     * elements of the backing spliterator.
+     */
+    private final Function<? super S, ? extends T> function;
+    
+    /**
+     * Creates a new transforming spliterator that applies the given 
+     * function to the elements provided by the given spliterator.<br>
+     * <br>
+     * The given arguments are assumed to be non-<code>null</code>
+     * 
+     * @param spliterator The backing spliterator
+     * @param function The {@link Function} to apply to the elements
+     * of the backing spliterator
+     */
+    TransformingSpliterator(
+        Spliterator<? extends S> spliterator, 
+        Function<? super S, ? extends T> function)
+    {
+        this.spliterator = spliterator;
+        this.function = function;
+    }
+    
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action)
+    {
+        return spliterator.tryAdvance(s -> action.accept(function.apply(s)));
+    }
+    
+    @Override
+    public void forEachRemaining(Consumer<? super T> action)
+    {
+        spliterator.forEachRemaining(s -> action.accept(function.apply(s)));
+    }
+    
+    @Override
+    public Spliterator<T> trySplit()
+    {
+        Spliterator<? extends S> split = spliterator.trySplit();
+        if (split == null)
+        {
+            return null;
+        }
+        return new TransformingSpliterator<S, T>(split, function);
+    }
+    
+    @Override
+    public long estimateSize()
+    {
+        return spliterator.estimateSize();
+    }
+    
+    @Override
+    public int characteristics()
+    {
+        return spliterator.characteristics() & RETAINED_CHARACTERISTICS;
+    }
+}
@@ -26,9 +26,9 @@
  */
 package de.javagl.common.ui;
 
+import de.javagl.common.ui.table.ColumnWidthAdjuster;
+
 import javax.swing.*;
-import javax.swing.table.TableCellRenderer;
-import javax.swing.table.TableColumn;
 import java.awt.*;
 import java.util.LinkedHashSet;
 import java.util.Set;
@@ -40,41 +40,18 @@ public class JTables
 {
     /**
      * Adjust the preferred widths of the columns of the given table
-     * depending on the contents of the cells and headers.
+     * depending on the contents of the cells and headers.<br>
+     * <br>
+     * For tables with many rows, only a sample of the rows is measured.
+     * In order to keep the widths up to date when the table changes,
+     * a {@link ColumnWidthAdjuster} may be installed.
      * 
      * @param table The table to adjust
      * @param maxWidth The maximum width a column may have
      */
     public static void adjustColumnWidths(JTable table, int maxWidth)
     {
-        final int safety = 20;
-        for (int c = 0; c < table.getColumnCount(); c++)
-        {
-            TableColumn column = table.getColumnModel().getColumn(c);
-
-            TableCellRenderer headerRenderer = column.getHeaderRenderer();
-            if (headerRenderer == null) {
-                headerRenderer = table.getTableHeader().getDefaultRenderer();
-            }
-            Component headerComponent = 
-                headerRenderer.getTableCellRendererComponent(
-                    table, column.getHeaderValue(), false, false, 0, 0);
-            int width = headerComponent.getPreferredSize().width;
-
-            for (int r = 0; r < table.getRowCount(); r++) 
-            {
-                TableCellRenderer cellRenderer = table.getCellRenderer(r, c);
-                Component cellComponent = 
-                    cellRenderer.getTableCellRendererComponent(
-                        table, table.getValueAt(r, c), 
-                        false, false, r, c);
-                Dimension d = cellComponent.getPreferredSize();
-                //System.out.println(
-                //    "Preferred is "+d.width+" for "+cellComponent);
-                width = Math.max(width, d.width);
-            }
-            column.setPreferredWidth(Math.min(maxWidth, width + safety));
-        }
+        new ColumnWidthAdjuster(table, maxWidth).adjust();
     }    
     
     /**
@@ -26,6 +26,7 @@
  */
 package de.javagl.common.ui;
 
+import de.javagl.common.ui.tree.index.TreeModelIndex;
 import de.javagl.common.ui.tree.renderer.GenericTreeCellRenderer;
 
 import javax.swing.*;
@@ -77,28 +78,90 @@ public class JTrees
         int rowHeight = treeCellRendererComponent.getPreferredSize().height + 2;
         tree.setRowHeight(rowHeight);
         
-        // Temporarily remove all listeners that would otherwise
-        // be flooded with TreeExpansionEvents
+        // Recursively expand all nodes of the tree, with the
+        // TreeExpansionListeners being suspended
+        TreePath rootPath = new TreePath(tree.getModel().getRoot());
+        List<TreeExpansionListener> expansionListeners =
+            removeTreeExpansionListeners(tree);
+        expandAllRecursively(tree, rootPath);
+        restoreTreeExpansionListeners(tree, expansionListeners);
+    }
+    
+    /**
+     * Expand all the given paths in the given tree, as one batch.<br>
+     * <br>
+     * Expanding many paths individually with {@link JTree#expandPath} 
+     * causes the tree UI to update its layout for each path. This 
+     * method temporarily removes all TreeExpansionListeners from the 
+     * tree (including the one of the tree UI), expands the paths, 
+     * and afterwards lets the listeners (and thus, the UI) update
+     * their state once.<br>
+     * <br>
+     * Note that the TreeExpansionListeners will <b>not</b> receive
+     * events for the individual paths.
+     * 
+     * @param tree The tree
+     * @param paths The paths to expand
+     */
+    public static void expandPaths(
+        JTree tree, Iterable<? extends TreePath> paths)
+    {
+        List<TreeExpansionListener> expansionListeners =
+            removeTreeExpansionListeners(tree);
+        for (TreePath path : paths)
+        {
+            tree.expandPath(path);
+        }
+        restoreTreeExpansionListeners(tree, expansionListeners);
+    }
+    
+    /**
+     * Remove all TreeExpansionListeners from the given tree, and 
+     * return them. This is used to temporarily suspend the events
+     * that would otherwise be fired for each expanded path.
+     * 
+     * @param tree The tree
+     * @return The listeners that have been removed
+     */
+    private static List<TreeExpansionListener> removeTreeExpansionListeners(
+        JTree tree)
+    {
         List<TreeExpansionListener> expansionListeners =
             Arrays.asList(tree.getTreeExpansionListeners());
         for (TreeExpansionListener expansionListener : expansionListeners)
         {
             tree.removeTreeExpansionListener(expansionListener);
         }
-        
-        // Recursively expand all nodes of the tree
-        TreePath rootPath = new TreePath(tree.getModel().getRoot());
-        expandAllRecursively(tree, rootPath);
-        
-        // Restore the listeners that the tree originally had
+        return expansionListeners;
+    }
+    
+    /**
+     * Add the given TreeExpansionListeners to the given tree, after
+     * they have been removed with {@link #removeTreeExpansionListeners},
+     * and trigger an update for them by collapsing and re-expanding
+     * the root path, if it is expanded.
+     * 
+     * @param tree The tree
+     * @param expansionListeners The listeners
+     */
+    private static void restoreTreeExpansionListeners(
+        JTree tree, List<TreeExpansionListener> expansionListeners)
+    {
         for (TreeExpansionListener expansionListener : expansionListeners)
         {
             tree.addTreeExpansionListener(expansionListener);
         }
-        
-        // Trigger an update for the TreeExpansionListeners
-        tree.collapsePath(rootPath);
-        tree.expandPath(rootPath);
+        Object root = tree.getModel().getRoot();
+        if (root == null)
+        {
+            return;
+        }
+        TreePath rootPath = new TreePath(root);
+        if (tree.isExpanded(rootPath))
+        {
+            tree.collapsePath(rootPath);
+            tree.expandPath(rootPath);
+        }
     }
     
     /**
@@ -156,7 +219,10 @@ public class JTrees
     }
     
     /**
-     * Count the number of nodes in the given tree model
+     * Count the number of nodes in the given tree model.<br>
+     * <br>
+     * This requires a traversal of the whole tree. For repeated queries,
+     * a {@link TreeModelIndex} may be used.
      * 
      * @param treeModel The tree model
      * @return The number of nodes
@@ -262,7 +328,10 @@ public class JTrees
     /**
      * Returns the parent of the given node in the given tree model.
      * This parent may be <code>null</code>, if the given node is
-     * the root node (or not contained in the tree model at all).
+     * the root node (or not contained in the tree model at all).<br>
+     * <br>
+     * This requires a search starting at the root. For repeated queries,
+     * a {@link TreeModelIndex} may be used.
      * 
      * @param treeModel The tree model
      * @param node The node
@@ -286,9 +355,10 @@ public class JTrees
     private static Object getParent(
         TreeModel treeModel, Object node, Object potentialParent)
     {
-        List<Object> children = getChildren(treeModel, potentialParent);
-        for (Object child : children)
+        int n = treeModel.getChildCount(potentialParent);
+        for (int i = 0; i < n; i++)
         {
+            Object child = treeModel.getChild(potentialParent, i);
             if (child == node)
             {
                 return potentialParent;
@@ -464,7 +534,11 @@ public class JTrees
     
     /**
      * Translates one TreePath to a new TreeModel. This methods assumes 
-     * DefaultMutableTreeNodes.
+     * DefaultMutableTreeNodes.<br>
+     * <br>
+     * This scans the children of each node along the path. When many
+     * paths have to be translated into the same model, then
+     * {@link TreeModelIndex#translatePath(TreePath)} may be used.
      * 
      * @param newTreeModel The new tree model
      * @param oldPath The old tree path
@@ -639,26 +713,15 @@ public class JTrees
         Function<Object, JButton> buttonFactory,
         Function<Object, String> textFactory)
     {
-        TreeCellRenderer treeCellrenderer = new GenericTreeCellRenderer()
-        {
-            @Override
-            protected void prepare(Object nodeObject, JPanel container)
-            {
-                container.setLayout(new BorderLayout(3, 0));
-                
-                JLabel textLabel = new JLabel();
-                String text = textFactory.apply(nodeObject); 
-                textLabel.setText(text);
-                container.add(textLabel, BorderLayout.CENTER);
-                
-                JButton button = buttonFactory.apply(nodeObject);
-                if (button != null)
-                {
-                    container.add(button, BorderLayout.WEST);
-                }
-            }
-        };
+        TreeCellRenderer treeCellrenderer = 
+            createButtonTreeCellRenderer(buttonFactory, textFactory);
         tree.setCellRenderer(treeCellrenderer);
+        
+        // The editor uses its own renderer instance, because the renderer
+        // component is re-used, and would otherwise be modified while
+        // other cells are painted
+        TreeCellRenderer editorTreeCellrenderer = 
+            createButtonTreeCellRenderer(buttonFactory, textFactory);
         tree.setEditable(true);
         DefaultCellEditor editor = new DefaultCellEditor(new JTextField())
         {
@@ -671,7 +734,7 @@ public class JTrees
             public Component getTreeCellEditorComponent(JTree tree, Object value,
                     boolean selected, boolean expanded, boolean leaf, int row) 
             {
-                return treeCellrenderer.getTreeCellRendererComponent(
+                return editorTreeCellrenderer.getTreeCellRendererComponent(
                     tree, value, selected, expanded, leaf, row, true);
             }
             @Override
@@ -683,6 +746,65 @@ public class JTrees
         tree.setCellEditor(editor);
     }
     
+    /**
+     * Create the {@link GenericTreeCellRenderer} for 
+     * {@link #applyButtonTreeCellRenderer(JTree, Function, Function)}.
+     * The label for the text is created once and re-used for all cells.
+     *  
+     * @param buttonFactory The factory for the buttons
+     * @param textFactory The factory for the texts
+     * @return The renderer
+     */
+    private static GenericTreeCellRenderer createButtonTreeCellRenderer(
+        Function<Object, JButton> buttonFactory,
+        Function<Object, String> textFactory)
+    {
+        return new GenericTreeCellRenderer()
+        {
+            /**
+             * The label for the text
+             */
+            private JLabel textLabel;
+            
+            /**
+             * The button that is currently shown
+             */
+            private JButton button;
+            
+            @Override
+            protected void initialize(JPanel container)
+            {
+                container.setLayout(new BorderLayout(3, 0));
+                textLabel = new JLabel();
+                container.add(textLabel, BorderLayout.CENTER);
+            }
+            
+            @Override
+            protected void update(Object nodeObject, JPanel container)
+            {
+                String text = textFactory.apply(nodeObject); 
+                textLabel.setText(text);
+                
+                // The same button may have been moved into the container
+                // of the other renderer in the meantime
+                JButton newButton = buttonFactory.apply(nodeObject);
+                if (newButton != button || 
+                    (button != null && button.getParent() != container))
+                {
+                    if (button != null)
+                    {
+                        container.remove(button);
+                    }
+                    button = newButton;
+                    if (button != null)
+                    {
+                        container.add(button, BorderLayout.WEST);
+                    }
+                }
+            }
+        };
+    }
+    
     
     /**
      * Private constructor to prevent instantiation
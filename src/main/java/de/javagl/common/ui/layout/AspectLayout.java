@@ -36,6 +36,12 @@ import java.awt.*;
  */
 public final class AspectLayout implements LayoutManager
 {
+    /**
+     * The number of columns and rows around the ideal solution that are
+     * examined when computing the grid size
+     */
+    private static final int GRID_SIZE_CANDIDATES = 2;
+    
     /**
      * The aspect ratio that should be maintained
      */
@@ -48,6 +54,30 @@ public final class AspectLayout implements LayoutManager
      */
     private final double alignment;
     
+    /**
+     * The container width for which the {@link #cachedGridSize} was
+     * computed
+     */
+    private int cachedContainerSizeX;
+    
+    /**
+     * The container height for which the {@link #cachedGridSize} was
+     * computed
+     */
+    private int cachedContainerSizeY;
+    
+    /**
+     * The number of components for which the {@link #cachedGridSize} was
+     * computed
+     */
+    private int cachedNumComponents;
+    
+    /**
+     * The grid size that was computed in the last layout pass, or 
+     * <code>null</code> if no grid size was computed yet
+     */
+    private Point cachedGridSize;
+    
     /**
      * Creates a new AspectLayout for the given aspect. This is
      * equivalent to calling  {@link #AspectLayout(double, double)}
@@ -99,41 +129,37 @@ public final class AspectLayout implements LayoutManager
             int totalSizeX = parent.getWidth() - (insetsX + insets.right);
             int totalSizeY = parent.getHeight() - (insetsY + insets.bottom);
             
-            Point gridSize = computeGridSize(parent, componentCount, aspect);
+            Point gridSize = computeGridSize(parent, componentCount);
             int cellSizeX = totalSizeX / gridSize.x;
             int cellSizeY = totalSizeY / gridSize.y;
             
-            for (int cx = 0; cx < gridSize.x; cx++)
+            // All cells have the same size, so the bounds of the 
+            // components inside their cells are computed only once
+            Rectangle childBounds = computeChildBounds(cellSizeX, cellSizeY);
+            for (int i = 0; i < componentCount; i++)
             {
-                for (int cy = 0; cy < gridSize.y; cy++)
-                {
-                    int componentIndex = cx + cy * gridSize.x;
-                    if (componentIndex < componentCount)
-                    {
-                        Component component = 
-                            parent.getComponent(componentIndex);
-                        int cellX = insetsX + cx * cellSizeX;
-                        int cellY = insetsY + cy * cellSizeY;
-                        layoutChild(component, 
-                            cellX, cellY, cellSizeX, cellSizeY);
-                    }
-                }
+                Component component = parent.getComponent(i);
+                int cx = i % gridSize.x;
+                int cy = i / gridSize.x;
+                int cellX = insetsX + cx * cellSizeX;
+                int cellY = insetsY + cy * cellSizeY;
+                component.setBounds(
+                    cellX + childBounds.x, cellY + childBounds.y, 
+                    childBounds.width, childBounds.height);
             }
         }
     }
 
     /**
-     * Lay out the given child component inside its parent, obeying
-     * the aspect ratio and alignment constraints of this layout.
+     * Compute the bounds of a child component inside a grid cell with
+     * the given size, obeying the aspect ratio and alignment constraints 
+     * of this layout. The resulting bounds are relative to the cell.
      * 
-     * @param component The child component
-     * @param cellX The (pixel) x-coordinate of the cell inside the parent
-     * @param cellY The (pixel) y-coordinate of the cell inside the parent
      * @param cellSizeX The cell size in x-direction, in pixels
      * @param cellSizeY The cell size in y-direction, in pixels
+     * @return The bounds of the child component inside the cell
      */
-    private void layoutChild(
-        Component component, int cellX, int cellY, int cellSizeX, int cellSizeY)
+    private Rectangle computeChildBounds(int cellSizeX, int cellSizeY)
     {
         int maxAspectW = (int)(cellSizeY * aspect);
         int maxAspectH = (int)(cellSizeX / aspect);
@@ -144,61 +170,167 @@ public final class AspectLayout implements LayoutManager
             int h = maxAspectH;
             int space = cellSizeY - h;
             int offset = (int)(alignment * space);
-            component.setBounds(cellX, cellY + offset, w, h);
-        }
-        else
-        {
-            int w = maxAspectW;
-            int h = cellSizeY;
-            int space = cellSizeX - w;
-            int offset = (int)(alignment * space);
-            component.setBounds(cellX + offset, cellY, w, h);
+            return new Rectangle(0, offset, w, h);
         }
+        int w = maxAspectW;
+        int h = cellSizeY;
+        int space = cellSizeX - w;
+        int offset = (int)(alignment * space);
+        return new Rectangle(offset, 0, w, h);
     }
     
     /**
      * Compute a grid size for the given container, for the given number 
-     * of components with the specified aspect ratio, optimizing the 
-     * number of rows/columns so that the space is used optimally.
+     * of components, optimizing the number of rows/columns so that the 
+     * space is used optimally.<br>
+     * <br>
+     * The result of the last call is cached, and returned when the
+     * size of the container and the number of components did not change.
      * 
      * @param container The container
      * @param numComponents The number of components
+     * @return A point (x,y) storing the (columns,rows) that the
+     * grid should have in order to waste as little space as possible
+     */
+    private Point computeGridSize(Container container, int numComponents)
+    {
+        int containerSizeX = container.getWidth();
+        int containerSizeY = container.getHeight();
+        if (cachedGridSize == null || 
+            cachedContainerSizeX != containerSizeX ||
+            cachedContainerSizeY != containerSizeY ||
+            cachedNumComponents != numComponents)
+        {
+            cachedGridSize = computeGridSize(
+                containerSizeX, containerSizeY, numComponents, aspect);
+            cachedContainerSizeX = containerSizeX;
+            cachedContainerSizeY = containerSizeY;
+            cachedNumComponents = numComponents;
+        }
+        return new Point(cachedGridSize);
+    }
+    
+    /**
+     * Compute a grid size for a container with the given size, for the 
+     * given number of components with the specified aspect ratio, 
+     * optimizing the number of rows/columns so that the space is 
+     * used optimally.<br>
+     * <br>
+     * When the cells should have the aspect ratio of the components,
+     * then the number of columns <code>c</code> and the number of 
+     * rows <code>n/c</code> have to fulfill
+     * <code>(sizeX/c) / (sizeY/(n/c)) = aspect</code>, so the
+     * ideal number of columns is <code>sqrt(n*sizeX/(sizeY*aspect))</code>.
+     * Since the numbers of columns and rows have to be integers, the
+     * wasted space is computed for a few numbers of columns and rows
+     * around this ideal solution, and the best one is returned.
+     * 
+     * @param containerSizeX The size of the container in x-direction
+     * @param containerSizeY The size of the container in y-direction
+     * @param numComponents The number of components
      * @param aspect The aspect ratio of the components
      * @return A point (x,y) storing the (columns,rows) that the
      * grid should have in order to waste as little space as possible
      */
-    private static Point computeGridSize(
-        Container container, int numComponents, double aspect)
+    static Point computeGridSize(int containerSizeX, int containerSizeY, 
+        int numComponents, double aspect)
     {
-        double containerSizeX = container.getWidth();
-        double containerSizeY = container.getHeight();
+        double idealGridSizeX = Math.sqrt(
+            numComponents * (double)containerSizeX / 
+            (containerSizeY * aspect));
+        if (Double.isNaN(idealGridSizeX))
+        {
+            idealGridSizeX = 1.0;
+        }
+        idealGridSizeX = Math.max(1.0, Math.min(numComponents, idealGridSizeX));
+        double idealGridSizeY = numComponents / idealGridSizeX;
+        
+        int minGridSizeX = (int)Math.floor(idealGridSizeX);
+        int minGridSizeY = (int)Math.floor(idealGridSizeY);
+        
         double minTotalWastedSpace = Double.MAX_VALUE;
         int minWasteGridSizeX = -1;
-        for (int gridSizeX = 1; gridSizeX <= numComponents; gridSizeX++)
+        for (int d = -GRID_SIZE_CANDIDATES; d <= GRID_SIZE_CANDIDATES + 1; d++)
         {
-            int gridSizeY = numComponents / gridSizeX;
-            if (gridSizeX * gridSizeY < numComponents)
+            // Candidates for the number of columns
+            int gridSizeX = minGridSizeX + d;
+            if (gridSizeX >= 1 && gridSizeX <= numComponents)
             {
-                gridSizeY++;
+                double totalWastedSpace = computeTotalWastedSpace(
+                    containerSizeX, containerSizeY, 
+                    numComponents, gridSizeX, aspect);
+                if (totalWastedSpace < minTotalWastedSpace || 
+                    (totalWastedSpace == minTotalWastedSpace && 
+                    gridSizeX < minWasteGridSizeX))
+                {
+                    minTotalWastedSpace = totalWastedSpace;
+                    minWasteGridSizeX = gridSizeX;
+                }
             }
-            double cellSizeX = containerSizeX / gridSizeX;
-            double cellSizeY = containerSizeY / gridSizeY;
-            double wastedSpace =
-                computeWastedSpace(cellSizeX, cellSizeY, aspect);
-            double totalWastedSpace = gridSizeX * gridSizeY * wastedSpace;
-            if (totalWastedSpace < minTotalWastedSpace)
+            
+            // Candidates for the number of rows, each with the 
+            // smallest number of columns that leads to this
+            // number of rows
+            int gridSizeY = minGridSizeY + d;
+            if (gridSizeY >= 1 && gridSizeY <= numComponents)
             {
-                minTotalWastedSpace = totalWastedSpace;
-                minWasteGridSizeX = gridSizeX;
+                gridSizeX = (numComponents + gridSizeY - 1) / gridSizeY;
+                double totalWastedSpace = computeTotalWastedSpace(
+                    containerSizeX, containerSizeY, 
+                    numComponents, gridSizeX, aspect);
+                if (totalWastedSpace < minTotalWastedSpace || 
+                    (totalWastedSpace == minTotalWastedSpace && 
+                    gridSizeX < minWasteGridSizeX))
+                {
+                    minTotalWastedSpace = totalWastedSpace;
+                    minWasteGridSizeX = gridSizeX;
+                }
             }
         }
         int gridSizeX = minWasteGridSizeX;
+        int gridSizeY = computeGridSizeY(numComponents, gridSizeX);
+        return new Point(gridSizeX, gridSizeY);
+    }
+    
+    /**
+     * Compute the number of rows that are required for the given number
+     * of components, when there are the given number of columns
+     * 
+     * @param numComponents The number of components
+     * @param gridSizeX The number of columns
+     * @return The number of rows
+     */
+    private static int computeGridSizeY(int numComponents, int gridSizeX)
+    {
         int gridSizeY = numComponents / gridSizeX;
         if (gridSizeX * gridSizeY < numComponents)
         {
             gridSizeY++;
         }
-        return new Point(gridSizeX, gridSizeY);
+        return gridSizeY;
+    }
+    
+    /**
+     * Compute the total wasted space that is implied by a grid with
+     * the given number of columns
+     * 
+     * @param containerSizeX The size of the container in x-direction
+     * @param containerSizeY The size of the container in y-direction
+     * @param numComponents The number of components
+     * @param gridSizeX The number of columns
+     * @param aspect The aspect ratio of the components
+     * @return The total wasted space
+     */
+    private static double computeTotalWastedSpace(
+        double containerSizeX, double containerSizeY, 
+        int numComponents, int gridSizeX, double aspect)
+    {
+        int gridSizeY = computeGridSizeY(numComponents, gridSizeX);
+        double cellSizeX = containerSizeX / gridSizeX;
+        double cellSizeY = containerSizeY / gridSizeY;
+        double wastedSpace =
+            computeWastedSpace(cellSizeX, cellSizeY, aspect);
+        return gridSizeX * gridSizeY * wastedSpace;
     }
     
     /**
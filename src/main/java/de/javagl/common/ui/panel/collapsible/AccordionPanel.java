@@ -39,7 +39,12 @@ import java.util.Map;
  * <br>
  * Note that the layout of this component is not supposed to be changed,
  * and adding or removing components should only be done via the
- * {@link #addToAccordion} or {@link #removeFromAccordion} methods.
+ * {@link #addToAccordion} or {@link #removeFromAccordion} methods.<br>
+ * <br>
+ * The {@link CollapsiblePanel} instances that are created by this class
+ * use the {@link CollapsiblePanel#setSnapshotAnimationEnabled(boolean)
+ * snapshot animation}, so that the contents of a panel are not laid out
+ * during each step of the animation.
  */
 public class AccordionPanel extends JPanel
 {
@@ -106,6 +111,7 @@ public class AccordionPanel extends JPanel
     {
         CollapsiblePanel collapsiblePanel = 
             GuiUtils.wrapCollapsible(title, component);
+        collapsiblePanel.setSnapshotAnimationEnabled(true);
         collapsiblePanel.setMinimized(minimized);
         contentPanel.add(collapsiblePanel);
         collapsiblePanels.put(component, collapsiblePanel);
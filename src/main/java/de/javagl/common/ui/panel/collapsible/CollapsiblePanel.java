@@ -31,10 +31,20 @@ import javax.swing.border.Border;
 import javax.swing.border.TitledBorder;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
 
 /**
  * Simple implementation of a collapsible panel. It is a panel with a 
- * titled border that may be collapsed to only show that title.
+ * titled border that may be collapsed to only show that title.<br>
+ * <br>
+ * By default, the transition between the collapsed and expanded state
+ * is animated by changing the height of the panel and laying out its
+ * contents for each step of the animation. When the 
+ * {@link #setSnapshotAnimationEnabled(boolean) snapshot animation} is
+ * enabled, then the contents are painted into an image once, and this
+ * image is painted during the animation, clipped to the current height. 
+ * The contents are then only laid out at the beginning and at the
+ * end of the animation. 
  */
 public class CollapsiblePanel extends JPanel
 {
@@ -74,6 +84,18 @@ public class CollapsiblePanel extends JPanel
      */
     private final int delayMS = 25;
     
+    /**
+     * Whether the snapshot animation is enabled
+     */
+    private boolean snapshotAnimationEnabled;
+    
+    /**
+     * The image containing the contents of this panel in its expanded
+     * state. This is only non-<code>null</code> while a snapshot 
+     * animation is running. 
+     */
+    private BufferedImage snapshot;
+    
     /**
      * A titled border that additionally paints a [+] or [-] in the
      * upper right corner to indicate whether the panel is currently
@@ -219,6 +241,32 @@ public class CollapsiblePanel extends JPanel
         return d.height;
     }
     
+    /**
+     * Set whether the transitions between the collapsed and expanded 
+     * state should be animated by painting a snapshot of the contents
+     * of this panel, instead of laying out the contents for each
+     * step of the animation. This is recommended for panels with
+     * contents that are expensive to lay out or to paint.
+     * 
+     * @param snapshotAnimationEnabled Whether the snapshot animation
+     * is enabled
+     */
+    public void setSnapshotAnimationEnabled(boolean snapshotAnimationEnabled)
+    {
+        this.snapshotAnimationEnabled = snapshotAnimationEnabled;
+    }
+    
+    /**
+     * Returns whether the snapshot animation is enabled
+     * 
+     * @return Whether the snapshot animation is enabled
+     * @see #setSnapshotAnimationEnabled(boolean)
+     */
+    public boolean isSnapshotAnimationEnabled()
+    {
+        return snapshotAnimationEnabled;
+    }
+    
     /**
      * Returns whether this panel is currently minimized (collapsed)
      * 
@@ -258,6 +306,7 @@ public class CollapsiblePanel extends JPanel
         }
         
         currentHeight = getHeight();
+        startSnapshotAnimation(currentHeight);
         double steps = (double)durationMS / delayMS;
         double delta = currentHeight - minimizedHeight;
         final int stepSize = (int)Math.ceil(delta / steps);
@@ -279,6 +328,7 @@ public class CollapsiblePanel extends JPanel
                     minimized = true;
                     timer.stop();
                     timer = null;
+                    snapshot = null;
                 }
                 revalidate();
             }
@@ -303,6 +353,7 @@ public class CollapsiblePanel extends JPanel
         double delta = targetHeight - currentHeight;
         final int stepSize = (int)Math.ceil(delta / steps);
         currentHeight = getHeight();
+        startSnapshotAnimation(targetHeight);
         
         //System.out.println("steps " + steps);
         //System.out.println("currentHeight " + currentHeight);
@@ -322,6 +373,7 @@ public class CollapsiblePanel extends JPanel
                     currentHeight = Integer.MAX_VALUE;
                     timer.stop();
                     timer = null;
+                    snapshot = null;
                 }
                 revalidate();
             }
@@ -329,8 +381,95 @@ public class CollapsiblePanel extends JPanel
         timer.setInitialDelay(0);
         timer.start();
     }
+    /**
+     * If the snapshot animation is enabled, and no snapshot has been
+     * created yet, then create the snapshot of the contents of this 
+     * panel, with the given height. If a snapshot already exists,
+     * then this is the snapshot of a previous animation that was 
+     * interrupted, and it will be re-used for the new animation.
+     * 
+     * @param height The height of the expanded panel
+     */
+    private void startSnapshotAnimation(int height)
+    {
+        if (snapshotAnimationEnabled && snapshot == null)
+        {
+            snapshot = createSnapshot(height);
+        }
+    }
+    
+    /**
+     * Create an image containing the children of this panel, laid out 
+     * for the given height of this panel. Returns <code>null</code> 
+     * if this panel or the given height is empty.
+     * 
+     * @param height The height
+     * @return The image
+     */
+    private BufferedImage createSnapshot(int height)
+    {
+        int width = getWidth();
+        int oldHeight = getHeight();
+        if (width <= 0 || height <= 0)
+        {
+            return null;
+        }
+        if (height != oldHeight)
+        {
+            setSize(width, height);
+            validate();
+        }
+        BufferedImage image = null;
+        GraphicsConfiguration graphicsConfiguration = 
+            getGraphicsConfiguration();
+        if (graphicsConfiguration != null)
+        {
+            image = graphicsConfiguration.createCompatibleImage(
+                width, height, Transparency.TRANSLUCENT);
+        }
+        else
+        {
+            image = new BufferedImage(
+                width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+        Graphics2D g = image.createGraphics();
+        g.setClip(0, 0, width, height);
+        super.paintChildren(g);
+        g.dispose();
+        if (height != oldHeight)
+        {
+            setSize(width, oldHeight);
+        }
+        return image;
+    }
     
+    @Override
+    public void doLayout()
+    {
+        // While the snapshot is animated, the children keep the 
+        // bounds that they had when the snapshot was created
+        if (snapshot == null)
+        {
+            super.doLayout();
+        }
+    }
     
+    @Override
+    protected void paintChildren(Graphics g)
+    {
+        if (snapshot == null)
+        {
+            super.paintChildren(g);
+            return;
+        }
+        Insets insets = getInsets();
+        Graphics gc = g.create();
+        gc.clipRect(insets.left, insets.top, 
+            getWidth() - insets.left - insets.right, 
+            getHeight() - insets.top - insets.bottom);
+        gc.drawImage(snapshot, 0, 0, null);
+        gc.dispose();
+    }
     
     @Override
     public Dimension getPreferredSize()
@@ -0,0 +1,649 @@
+/*
+ * www.javagl.de - Common - UI
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.common.ui.table;
+
+import java.awt.Component;
+import java.awt.FontMetrics;
+import java.awt.Insets;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.beans.PropertyChangeListener;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+import javax.swing.JComponent;
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableCellRenderer;
+import javax.swing.table.TableColumn;
+import javax.swing.table.TableColumnModel;
+import javax.swing.table.TableModel;
+
+/**
+ * A class that adjusts the preferred widths of the columns of a table,
+ * depending on the contents of the cells and headers.<br>
+ * <br>
+ * Measuring the preferred size of the renderer component for each cell
+ * of a large table is expensive. Therefore, when the table has more rows
+ * than the {@link #setSampleSize(int) sample size}, only a sample of the 
+ * rows is measured. This sample consists of
+ * <ul>
+ *   <li>the first and last rows</li>
+ *   <li>the rows that are currently visible</li>
+ *   <li>the row with the longest string value, for each column</li>
+ *   <li>rows that are evenly distributed over the table</li>
+ * </ul>
+ * The measured widths are cached for each column. When the adjuster
+ * is {@link #install() installed}, it listens to the table model, and 
+ * only measures the rows that are affected by a change. A full
+ * measurement is only done when the structure of the table changed,
+ * or when the widest row of a column was removed or changed.<br>
+ * <br>
+ * Alternatively, the widths may be computed with 
+ * {@link #adjustAsync(Executor)}, which measures the string 
+ * representations of all cells with the font metrics of the renderers,
+ * outside of the event dispatch thread.
+ */
+public final class ColumnWidthAdjuster
+{
+    /**
+     * The default sample size
+     */
+    private static final int DEFAULT_SAMPLE_SIZE = 200;
+    
+    /**
+     * The number of rows at the start and at the end of the table 
+     * that are always part of the sample
+     */
+    private static final int EDGE_ROWS = 10;
+    
+    /**
+     * The maximum number of rows that are examined when searching for
+     * the longest string value in a column
+     */
+    private static final int LONGEST_STRING_SCAN_LIMIT = 50000;
+    
+    /**
+     * A safety margin that is added to the measured widths
+     */
+    private static final int SAFETY = 20;
+    
+    /**
+     * The table
+     */
+    private final JTable table;
+    
+    /**
+     * The maximum width that a column may have
+     */
+    private final int maxWidth;
+    
+    /**
+     * The maximum number of rows that are measured in one pass
+     */
+    private int sampleSize;
+    
+    /**
+     * The preferred widths of the headers, indexed by model column
+     */
+    private int headerWidths[];
+    
+    /**
+     * The maximum measured widths of the cells, indexed by model column
+     */
+    private int cellWidths[];
+    
+    /**
+     * The model rows that contained the widest cell, indexed by model
+     * column, or -1 if the row is not known
+     */
+    private int widestRows[];
+    
+    /**
+     * The table model that this adjuster is currently attached to
+     */
+    private TableModel observedModel;
+    
+    /**
+     * The listener that updates the widths when the model changes
+     */
+    private final TableModelListener tableModelListener;
+    
+    /**
+     * The listener that moves the {@link #tableModelListener} to a 
+     * new model when the model of the table is changed
+     */
+    private final PropertyChangeListener modelPropertyListener;
+    
+    /**
+     * Creates a new adjuster for the given table. The adjuster will not
+     * be attached to the table. In order to update the widths when the
+     * table model changes, {@link #install()} has to be called.
+     * 
+     * @param table The table
+     * @param maxWidth The maximum width that a column may have
+     * @throws NullPointerException If the table is <code>null</code>
+     */
+    public ColumnWidthAdjuster(JTable table, int maxWidth)
+    {
+        this.table = Objects.requireNonNull(table, "The table is null");
+        this.maxWidth = maxWidth;
+        this.sampleSize = DEFAULT_SAMPLE_SIZE;
+        this.headerWidths = new int[0];
+        this.cellWidths = new int[0];
+        this.widestRows = new int[0];
+        this.tableModelListener = e -> tableChanged(e);
+        this.modelPropertyListener = e -> 
+        {
+            detachFromModel();
+            attachToModel();
+            adjust();
+        };
+    }
+    
+    /**
+     * Set the maximum number of rows that should be measured in one pass. 
+     * If a table (or a range of modified rows) contains at most this number
+     * of rows, then all rows will be measured.
+     * 
+     * @param sampleSize The sample size
+     * @throws IllegalArgumentException If the sample size is not positive
+     */
+    public void setSampleSize(int sampleSize)
+    {
+        if (sampleSize <= 0)
+        {
+            throw new IllegalArgumentException(
+                "The sample size must be positive, but is " + sampleSize);
+        }
+        this.sampleSize = sampleSize;
+    }
+    
+    /**
+     * Attach this adjuster to the table, so that the column widths are
+     * updated when the table model changes, and adjust the widths
+     */
+    public void install()
+    {
+        table.addPropertyChangeListener("model", modelPropertyListener);
+        attachToModel();
+        adjust();
+    }
+    
+    /**
+     * Detach this adjuster from the table
+     */
+    public void uninstall()
+    {
+        table.removePropertyChangeListener("model", modelPropertyListener);
+        detachFromModel();
+    }
+    
+    /**
+     * Attach the {@link #tableModelListener} to the current table model
+     */
+    private void attachToModel()
+    {
+        observedModel = table.getModel();
+        if (observedModel != null)
+        {
+            observedModel.addTableModelListener(tableModelListener);
+        }
+    }
+    
+    /**
+     * Detach the {@link #tableModelListener} from the observed model
+     */
+    private void detachFromModel()
+    {
+        if (observedModel != null)
+        {
+            observedModel.removeTableModelListener(tableModelListener);
+            observedModel = null;
+        }
+    }
+    
+    /**
+     * Measure the headers and a sample of the rows of the table, and 
+     * adjust the preferred widths of all columns
+     */
+    public void adjust()
+    {
+        int columnCount = table.getModel().getColumnCount();
+        resetCaches(columnCount);
+        measureHeaders();
+        for (int c = 0; c < columnCount; c++)
+        {
+            measureColumn(c);
+        }
+        applyWidths();
+    }
+    
+    /**
+     * Measure the headers and the string representations of all cells,
+     * using the font metrics of the renderers, and adjust the preferred 
+     * widths of all columns.<br>
+     * <br>
+     * This method must be called on the event dispatch thread. It prepares 
+     * one renderer component for each column, in order to obtain the font 
+     * and insets. The string widths are computed with the given executor, 
+     * and the resulting widths are applied on the event dispatch thread. 
+     * This means that the table model must allow its values to be read 
+     * from the executor thread. This method is intended for columns whose 
+     * renderers display the string representation of the values. 
+     * 
+     * @param executor The executor
+     */
+    public void adjustAsync(Executor executor)
+    {
+        TableModel model = table.getModel();
+        int columnCount = model.getColumnCount();
+        int rowCount = model.getRowCount();
+        FontMetrics fontMetrics[] = new FontMetrics[columnCount];
+        int paddings[] = new int[columnCount];
+        TableColumnModel columnModel = table.getColumnModel();
+        for (int viewColumn = 0; viewColumn < columnModel.getColumnCount(); 
+            viewColumn++)
+        {
+            int c = columnModel.getColumn(viewColumn).getModelIndex();
+            if (c >= columnCount)
+            {
+                continue;
+            }
+            Object value = rowCount == 0 ? "" : model.getValueAt(0, c);
+            TableCellRenderer renderer = getCellRenderer(viewColumn);
+            Component component = renderer.getTableCellRendererComponent(
+                table, value, false, false, 0, viewColumn);
+            fontMetrics[c] = component.getFontMetrics(component.getFont());
+            if (component instanceof JComponent)
+            {
+                Insets insets = ((JComponent)component).getInsets();
+                paddings[c] = insets.left + insets.right;
+            }
+        }
+        executor.execute(() -> 
+        {
+            int widths[] = new int[columnCount];
+            int rows[] = new int[columnCount];
+            Arrays.fill(rows, -1);
+            for (int c = 0; c < columnCount; c++)
+            {
+                if (fontMetrics[c] == null)
+                {
+                    continue;
+                }
+                for (int r = 0; r < rowCount; r++)
+                {
+                    String string = String.valueOf(model.getValueAt(r, c));
+                    int width = 
+                        fontMetrics[c].stringWidth(string) + paddings[c];
+                    if (width > widths[c])
+                    {
+                        widths[c] = width;
+                        rows[c] = r;
+                    }
+                }
+            }
+            SwingUtilities.invokeLater(() -> 
+            {
+                if (table.getModel() != model || 
+                    model.getColumnCount() != columnCount)
+                {
+                    return;
+                }
+                resetCaches(columnCount);
+                measureHeaders();
+                System.arraycopy(widths, 0, cellWidths, 0, columnCount);
+                System.arraycopy(rows, 0, widestRows, 0, columnCount);
+                applyWidths();
+            });
+        });
+    }
+    
+    /**
+     * Reset the caches for the given number of columns
+     * 
+     * @param columnCount The number of columns
+     */
+    private void resetCaches(int columnCount)
+    {
+        headerWidths = new int[columnCount];
+        cellWidths = new int[columnCount];
+        widestRows = new int[columnCount];
+        Arrays.fill(widestRows, -1);
+    }
+    
+    /**
+     * Measure the preferred widths of all headers
+     */
+    private void measureHeaders()
+    {
+        TableColumnModel columnModel = table.getColumnModel();
+        for (int viewColumn = 0; viewColumn < columnModel.getColumnCount(); 
+            viewColumn++)
+        {
+            TableColumn column = columnModel.getColumn(viewColumn);
+            int c = column.getModelIndex();
+            if (c >= headerWidths.length)
+            {
+                continue;
+            }
+            TableCellRenderer headerRenderer = column.getHeaderRenderer();
+            if (headerRenderer == null && table.getTableHeader() != null)
+            {
+                headerRenderer = table.getTableHeader().getDefaultRenderer();
+            }
+            if (headerRenderer != null)
+            {
+                Component headerComponent = 
+                    headerRenderer.getTableCellRendererComponent(
+                        table, column.getHeaderValue(), false, false, 0, 0);
+                headerWidths[c] = headerComponent.getPreferredSize().width;
+            }
+        }
+    }
+    
+    /**
+     * Measure a sample of all rows of the given model column
+     * 
+     * @param c The model column
+     */
+    private void measureColumn(int c)
+    {
+        cellWidths[c] = 0;
+        widestRows[c] = -1;
+        int rowCount = table.getModel().getRowCount();
+        BitSet rows = createSample(c, 0, rowCount, true);
+        measureRows(c, rows);
+    }
+    
+    /**
+     * Create the sample of model rows in the given range that should be 
+     * measured for the given model column
+     * 
+     * @param c The model column
+     * @param first The first row, inclusive
+     * @param end The last row, exclusive
+     * @param includeVisible Whether the visible rows should be included
+     * @return The rows
+     */
+    private BitSet createSample(int c, int first, int end, 
+        boolean includeVisible)
+    {
+        BitSet rows = new BitSet(end);
+        int n = end - first;
+        if (n <= sampleSize)
+        {
+            rows.set(first, end);
+            return rows;
+        }
+        rows.set(first, Math.min(end, first + EDGE_ROWS));
+        rows.set(Math.max(first, end - EDGE_ROWS), end);
+        int step = n / sampleSize;
+        for (int r = first; r < end; r += step)
+        {
+            rows.set(r);
+        }
+        if (includeVisible)
+        {
+            addVisibleRows(rows);
+        }
+        int longestRow = findLongestStringRow(c, first, end);
+        if (longestRow != -1)
+        {
+            rows.set(longestRow);
+        }
+        return rows;
+    }
+    
+    /**
+     * Add the model rows that are currently visible in the table to 
+     * the given set
+     * 
+     * @param rows The rows
+     */
+    private void addVisibleRows(BitSet rows)
+    {
+        Rectangle visibleRect = table.getVisibleRect();
+        if (visibleRect.isEmpty())
+        {
+            return;
+        }
+        int firstViewRow = table.rowAtPoint(visibleRect.getLocation());
+        if (firstViewRow == -1)
+        {
+            return;
+        }
+        int lastViewRow = table.rowAtPoint(new Point(
+            visibleRect.x, visibleRect.y + visibleRect.height - 1));
+        if (lastViewRow == -1)
+        {
+            lastViewRow = table.getRowCount() - 1;
+        }
+        int rowCount = table.getModel().getRowCount();
+        for (int viewRow = firstViewRow; viewRow <= lastViewRow; viewRow++)
+        {
+            // The row sorter may not yet have processed a model change,
+            // so the row index is validated against the model
+            int modelRow = table.convertRowIndexToModel(viewRow);
+            if (modelRow < rowCount)
+            {
+                rows.set(modelRow);
+            }
+        }
+    }
+    
+    /**
+     * Returns the model row in the given range whose value in the given 
+     * model column is the longest <code>CharSequence</code>, or -1 if 
+     * the range does not contain any <code>CharSequence</code>. Other
+     * values are not converted into strings, to keep this scan cheap. 
+     * If the range contains more than {@link #LONGEST_STRING_SCAN_LIMIT}
+     * rows, then only evenly distributed rows are examined.
+     * 
+     * @param c The model column
+     * @param first The first row, inclusive
+     * @param end The last row, exclusive
+     * @return The row
+     */
+    private int findLongestStringRow(int c, int first, int end)
+    {
+        TableModel model = table.getModel();
+        int longestRow = -1;
+        int longestLength = -1;
+        int step = Math.max(1, (end - first) / LONGEST_STRING_SCAN_LIMIT);
+        for (int r = first; r < end; r += step)
+        {
+            Object value = model.getValueAt(r, c);
+            if (!(value instanceof CharSequence))
+            {
+                continue;
+            }
+            int length = ((CharSequence)value).length();
+            if (length > longestLength)
+            {
+                longestLength = length;
+                longestRow = r;
+            }
+        }
+        return longestRow;
+    }
+    
+    /**
+     * Measure the preferred widths of the renderer components for the 
+     * given model rows in the given model column, and update the 
+     * {@link #cellWidths} and {@link #widestRows} accordingly.
+     * 
+     * @param c The model column
+     * @param rows The model rows
+     */
+    private void measureRows(int c, BitSet rows)
+    {
+        int viewColumn = table.convertColumnIndexToView(c);
+        if (viewColumn == -1)
+        {
+            return;
+        }
+        TableModel model = table.getModel();
+        TableCellRenderer cellRenderer = getCellRenderer(viewColumn);
+        for (int r = rows.nextSetBit(0); r >= 0; r = rows.nextSetBit(r + 1))
+        {
+            Component cellComponent = 
+                cellRenderer.getTableCellRendererComponent(
+                    table, model.getValueAt(r, c), 
+                    false, false, r, viewColumn);
+            int width = cellComponent.getPreferredSize().width;
+            if (width > cellWidths[c])
+            {
+                cellWidths[c] = width;
+                widestRows[c] = r;
+            }
+        }
+    }
+    
+    /**
+     * Returns the renderer for the cells of the given view column. This
+     * is the renderer of the column, or the default renderer for the 
+     * column class. The renderer is not obtained for a specific row, 
+     * because the row sorter of the table may not yet have processed 
+     * a change of the model when the widths are updated.
+     * 
+     * @param viewColumn The view column
+     * @return The renderer
+     */
+    private TableCellRenderer getCellRenderer(int viewColumn)
+    {
+        TableColumn column = table.getColumnModel().getColumn(viewColumn);
+        TableCellRenderer renderer = column.getCellRenderer();
+        if (renderer == null)
+        {
+            renderer = 
+                table.getDefaultRenderer(table.getColumnClass(viewColumn));
+        }
+        return renderer;
+    }
+    
+    /**
+     * Apply the cached widths to the columns of the table
+     */
+    private void applyWidths()
+    {
+        TableColumnModel columnModel = table.getColumnModel();
+        for (int viewColumn = 0; viewColumn < columnModel.getColumnCount(); 
+            viewColumn++)
+        {
+            TableColumn column = columnModel.getColumn(viewColumn);
+            int c = column.getModelIndex();
+            if (c >= cellWidths.length)
+            {
+                continue;
+            }
+            int width = Math.max(headerWidths[c], cellWidths[c]);
+            int preferredWidth = Math.min(maxWidth, width + SAFETY);
+            if (column.getPreferredWidth() != preferredWidth)
+            {
+                column.setPreferredWidth(preferredWidth);
+            }
+        }
+    }
+    
+    /**
+     * Update the widths based on the given event
+     * 
+     * @param e The event
+     */
+    private void tableChanged(TableModelEvent e)
+    {
+        int columnCount = table.getModel().getColumnCount();
+        if (e.getFirstRow() == TableModelEvent.HEADER_ROW ||
+            e.getLastRow() == Integer.MAX_VALUE ||
+            columnCount != cellWidths.length)
+        {
+            adjust();
+            return;
+        }
+        int first = e.getFirstRow();
+        int last = e.getLastRow();
+        int count = last - first + 1;
+        int minColumn = 0;
+        int maxColumn = columnCount - 1;
+        if (e.getColumn() != TableModelEvent.ALL_COLUMNS)
+        {
+            minColumn = e.getColumn();
+            maxColumn = e.getColumn();
+        }
+        for (int c = 0; c < columnCount; c++)
+        {
+            int widestRow = widestRows[c];
+            boolean affected = c >= minColumn && c <= maxColumn;
+            switch (e.getType())
+            {
+                case TableModelEvent.INSERT:
+                    if (widestRow >= first)
+                    {
+                        widestRows[c] = widestRow + count;
+                    }
+                    measureRows(c, createSample(c, first, last + 1, false));
+                    break;
+                    
+                case TableModelEvent.DELETE:
+                    if (widestRow > last)
+                    {
+                        widestRows[c] = widestRow - count;
+                    }
+                    else if (widestRow >= first)
+                    {
+                        measureColumn(c);
+                    }
+                    break;
+                    
+                default:
+                    if (!affected)
+                    {
+                        break;
+                    }
+                    if (widestRow >= first && widestRow <= last)
+                    {
+                        // The widest cell may have become smaller
+                        measureColumn(c);
+                    }
+                    else
+                    {
+                        measureRows(c, 
+                            createSample(c, first, last + 1, false));
+                    }
+                    break;
+            }
+        }
+        applyWidths();
+    }
+}
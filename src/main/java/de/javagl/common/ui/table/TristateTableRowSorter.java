@@ -29,19 +29,42 @@ package de.javagl.common.ui.table;
 import javax.swing.*;
 import javax.swing.table.TableModel;
 import javax.swing.table.TableRowSorter;
+import javax.swing.table.TableStringConverter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Implementation of a TableRowSorter that does not only toggle between
  * ASCENDING and DESCENDING, but between ASCENDING, DESCENDING and 
- * "unsorted"
+ * "unsorted".<br>
+ * <br>
+ * The sorter is intended for tables that receive a constant stream of
+ * small changes. The values and string values that are used for comparing
+ * and filtering the rows are cached for each column, and are only
+ * invalidated for the rows that are affected by a change. The
+ * view-to-model mapping is maintained incrementally: When a small number 
+ * of rows is inserted or updated, then these rows are placed into the 
+ * sorted view by a binary search, instead of re-sorting all rows. 
+ * (Large changes still cause all rows to be sorted, which is then done 
+ * with the cached values).<br>
+ * <br>
+ * In contrast to the default <code>TableRowSorter</code>, this sorter
+ * {@link #setSortsOnUpdates(boolean) sorts on updates} by default.
  *
  * @param <M> The model type
  */
 public final class TristateTableRowSorter<M extends TableModel> 
     extends TableRowSorter<M>
 {
+    /**
+     * The model wrapper that caches the values of the model. Note that
+     * this is assigned in {@link #setModel(TableModel)}, which is 
+     * called by the constructor of the super class, and thus must
+     * not have an initializer.
+     */
+    private CachingModelWrapper<M> cachingModelWrapper;
+    
     /**
      * Create a new sorter for the given model
      * 
@@ -50,6 +73,68 @@ public final class TristateTableRowSorter<M extends TableModel>
     public TristateTableRowSorter(M tableModel)
     {
         super(tableModel);
+        setSortsOnUpdates(true);
+    }
+    
+    @Override
+    public void setModel(M model)
+    {
+        super.setModel(model);
+        cachingModelWrapper = 
+            new CachingModelWrapper<M>(getModelWrapper());
+        setModelWrapper(cachingModelWrapper);
+    }
+    
+    @Override
+    public void setStringConverter(TableStringConverter stringConverter)
+    {
+        if (cachingModelWrapper != null)
+        {
+            cachingModelWrapper.clearStringValues();
+        }
+        super.setStringConverter(stringConverter);
+    }
+    
+    @Override
+    public void modelStructureChanged()
+    {
+        cachingModelWrapper.clear();
+        super.modelStructureChanged();
+    }
+
+    @Override
+    public void allRowsChanged()
+    {
+        cachingModelWrapper.clear();
+        super.allRowsChanged();
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow)
+    {
+        cachingModelWrapper.rowsInserted(firstRow, endRow);
+        super.rowsInserted(firstRow, endRow);
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow)
+    {
+        cachingModelWrapper.rowsDeleted(firstRow, endRow);
+        super.rowsDeleted(firstRow, endRow);
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow)
+    {
+        cachingModelWrapper.rowsUpdated(firstRow, endRow, -1);
+        super.rowsUpdated(firstRow, endRow);
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column)
+    {
+        cachingModelWrapper.rowsUpdated(firstRow, endRow, column);
+        super.rowsUpdated(firstRow, endRow, column);
     }
 
     @Override
@@ -109,5 +194,298 @@ public final class TristateTableRowSorter<M extends TableModel>
         }
         return new SortKey(key.getColumn(), SortOrder.ASCENDING);
     }
+    
+    
+    /**
+     * Implementation of a model wrapper that caches the values and string 
+     * values that are obtained from a delegate. The values are cached
+     * lazily, per column. The cache is kept consistent with the model by 
+     * the sorter, which passes all model changes to this wrapper before
+     * processing them.
+     * 
+     * @param <M> The model type
+     */
+    private static final class CachingModelWrapper<M extends TableModel> 
+        extends ModelWrapper<M, Integer>
+    {
+        /**
+         * The marker for values that have not been cached yet. (For the
+         * string values, <code>null</code> is used for this)
+         */
+        private static final Object UNCACHED = new Object();
+        
+        /**
+         * The delegate
+         */
+        private final ModelWrapper<M, Integer> delegate;
+        
+        /**
+         * The cached values, per column. An entry is <code>null</code> 
+         * until the values of the respective column are requested.
+         */
+        private Object values[][];
+        
+        /**
+         * The cached string values, per column. An entry is 
+         * <code>null</code> until the string values of the respective 
+         * column are requested.
+         */
+        private String stringValues[][];
+        
+        /**
+         * The number of rows that the cache arrays have been created for
+         */
+        private int rowCount;
+        
+        /**
+         * Creates a new wrapper for the given delegate
+         * 
+         * @param delegate The delegate
+         */
+        CachingModelWrapper(ModelWrapper<M, Integer> delegate)
+        {
+            this.delegate = delegate;
+            clear();
+        }
+        
+        /**
+         * Clear all cached values
+         */
+        void clear()
+        {
+            int columnCount = delegate.getColumnCount();
+            values = new Object[columnCount][];
+            stringValues = new String[columnCount][];
+            rowCount = delegate.getRowCount();
+        }
+        
+        /**
+         * Clear all cached string values
+         */
+        void clearStringValues()
+        {
+            Arrays.fill(stringValues, null);
+        }
+        
+        /**
+         * Will be called when the specified rows have been inserted
+         * 
+         * @param firstRow The first row, inclusive
+         * @param endRow The last row, inclusive
+         */
+        void rowsInserted(int firstRow, int endRow)
+        {
+            int count = endRow - firstRow + 1;
+            if (!isValidRange(firstRow, endRow, rowCount + count))
+            {
+                clear();
+                return;
+            }
+            for (int c = 0; c < values.length; c++)
+            {
+                if (values[c] != null)
+                {
+                    values[c] = insert(values[c], firstRow, count, 
+                        new Object[rowCount + count]);
+                    Arrays.fill(values[c], firstRow, endRow + 1, UNCACHED);
+                }
+                if (stringValues[c] != null)
+                {
+                    stringValues[c] = insert(stringValues[c], firstRow, count,
+                        new String[rowCount + count]);
+                }
+            }
+            rowCount += count;
+        }
+        
+        /**
+         * Will be called when the specified rows have been deleted
+         * 
+         * @param firstRow The first row, inclusive
+         * @param endRow The last row, inclusive
+         */
+        void rowsDeleted(int firstRow, int endRow)
+        {
+            int count = endRow - firstRow + 1;
+            if (!isValidRange(firstRow, endRow, rowCount))
+            {
+                clear();
+                return;
+            }
+            for (int c = 0; c < values.length; c++)
+            {
+                if (values[c] != null)
+                {
+                    values[c] = delete(values[c], firstRow, count, 
+                        new Object[rowCount - count]);
+                }
+                if (stringValues[c] != null)
+                {
+                    stringValues[c] = delete(stringValues[c], firstRow, count,
+                        new String[rowCount - count]);
+                }
+            }
+            rowCount -= count;
+        }
+        
+        /**
+         * Will be called when the specified rows have been updated
+         * 
+         * @param firstRow The first row, inclusive
+         * @param endRow The last row, inclusive
+         * @param column The column, or -1 if all columns are affected
+         */
+        void rowsUpdated(int firstRow, int endRow, int column)
+        {
+            if (!isValidRange(firstRow, endRow, rowCount) || 
+                column >= values.length)
+            {
+                clear();
+                return;
+            }
+            int minColumn = column == -1 ? 0 : column;
+            int maxColumn = column == -1 ? values.length - 1 : column;
+            for (int c = minColumn; c <= maxColumn; c++)
+            {
+                if (values[c] != null)
+                {
+                    Arrays.fill(values[c], firstRow, endRow + 1, UNCACHED);
+                }
+                if (stringValues[c] != null)
+                {
+                    Arrays.fill(stringValues[c], firstRow, endRow + 1, null);
+                }
+            }
+        }
+        
+        /**
+         * Returns whether the given range is a valid range of rows for
+         * a model with the given number of rows, which has to be equal
+         * to the actual number of rows of the model. If this is not the 
+         * case, then the cache is out of sync, and has to be cleared.
+         * 
+         * @param firstRow The first row, inclusive
+         * @param endRow The last row, inclusive
+         * @param expectedRowCount The expected row count
+         * @return Whether the range is valid
+         */
+        private boolean isValidRange(
+            int firstRow, int endRow, int expectedRowCount)
+        {
+            return firstRow >= 0 && endRow >= firstRow && 
+                endRow < expectedRowCount &&
+                expectedRowCount == delegate.getRowCount() &&
+                values.length == delegate.getColumnCount();
+        }
+        
+        /**
+         * Copy the given source array into the given target array, leaving
+         * a gap with the given size at the given index
+         * 
+         * @param <T> The element type
+         * @param source The source array
+         * @param index The index
+         * @param count The size of the gap
+         * @param target The target array
+         * @return The target array
+         */
+        private static <T> T[] insert(
+            T source[], int index, int count, T target[])
+        {
+            System.arraycopy(source, 0, target, 0, index);
+            System.arraycopy(source, index, target, index + count, 
+                source.length - index);
+            return target;
+        }
+        
+        /**
+         * Copy the given source array into the given target array, omitting
+         * the given number of elements starting at the given index
+         * 
+         * @param <T> The element type
+         * @param source The source array
+         * @param index The index
+         * @param count The number of elements to omit
+         * @param target The target array
+         * @return The target array
+         */
+        private static <T> T[] delete(
+            T source[], int index, int count, T target[])
+        {
+            System.arraycopy(source, 0, target, 0, index);
+            System.arraycopy(source, index + count, target, index, 
+                source.length - index - count);
+            return target;
+        }
+        
+        @Override
+        public M getModel()
+        {
+            return delegate.getModel();
+        }
+
+        @Override
+        public int getColumnCount()
+        {
+            return delegate.getColumnCount();
+        }
+
+        @Override
+        public int getRowCount()
+        {
+            return delegate.getRowCount();
+        }
+
+        @Override
+        public Object getValueAt(int row, int column)
+        {
+            if (column >= values.length || row >= rowCount)
+            {
+                return delegate.getValueAt(row, column);
+            }
+            Object columnValues[] = values[column];
+            if (columnValues == null)
+            {
+                columnValues = new Object[rowCount];
+                Arrays.fill(columnValues, UNCACHED);
+                values[column] = columnValues;
+            }
+            Object value = columnValues[row];
+            if (value == UNCACHED)
+            {
+                value = delegate.getValueAt(row, column);
+                columnValues[row] = value;
+            }
+            return value;
+        }
+
+        @Override
+        public String getStringValueAt(int row, int column)
+        {
+            if (column >= stringValues.length || row >= rowCount)
+            {
+                return delegate.getStringValueAt(row, column);
+            }
+            String columnStringValues[] = stringValues[column];
+            if (columnStringValues == null)
+            {
+                columnStringValues = new String[rowCount];
+                stringValues[column] = columnStringValues;
+            }
+            String stringValue = columnStringValues[row];
+            if (stringValue == null)
+            {
+                stringValue = delegate.getStringValueAt(row, column);
+                columnStringValues[row] = stringValue;
+            }
+            return stringValue;
+        }
+
+        @Override
+        public Integer getIdentifier(int row)
+        {
+            return delegate.getIdentifier(row);
+        }
+    }
 
-}
\ No newline at end of file
+}
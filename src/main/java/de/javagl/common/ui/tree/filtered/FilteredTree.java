@@ -33,6 +33,7 @@ import javax.swing.*;
 import javax.swing.event.TreeExpansionEvent;
 import javax.swing.event.TreeExpansionListener;
 import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreeNode;
 import javax.swing.tree.TreePath;
 import java.util.*;
 
@@ -67,15 +68,20 @@ public class FilteredTree
     private FilteredTreeModel treeModel;
     
     /**
-     * The set of tree paths that are expanded in the unfiltered state
+     * The set of delegate nodes that are expanded in the unfiltered state.
+     * These are stored by their identity, so that the corresponding
+     * paths in the filtered model can be restored by walking up the
+     * parent chain of each node, without having to search the children
+     * at each level of the tree.
      */
-    private final Set<TreePath> expandedPaths = new HashSet<TreePath>();
+    private final Set<TreeNode> expandedDelegateNodes = 
+        Collections.newSetFromMap(new IdentityHashMap<TreeNode, Boolean>());
 
     /**
-     * The TreeExpansionListener that maintains the expanded paths.
+     * The TreeExpansionListener that maintains the expanded nodes.
      * Then the tree is NOT filtered, then this listener will be
      * attached to the tree and store the expansion state of all
-     * paths. The stored paths will be used to restore the expansion
+     * nodes. The stored nodes will be used to restore the expansion
      * state when filtering is switched off.  
      */
     private final TreeExpansionListener expandedPathsListener = 
@@ -84,13 +90,21 @@ public class FilteredTree
         @Override
         public void treeExpanded(TreeExpansionEvent event)
         {
-            expandedPaths.add(event.getPath());
+            TreeNode delegateNode = getDelegateNode(event.getPath());
+            if (delegateNode != null)
+            {
+                expandedDelegateNodes.add(delegateNode);
+            }
         }
         
         @Override
         public void treeCollapsed(TreeExpansionEvent event)
         {
-            expandedPaths.remove(event.getPath());
+            TreeNode delegateNode = getDelegateNode(event.getPath());
+            if (delegateNode != null)
+            {
+                expandedDelegateNodes.remove(delegateNode);
+            }
         }
     };
 
@@ -140,8 +154,10 @@ public class FilteredTree
         this.treeModel = new FilteredTreeModel(model);
         this.tree.setModel(treeModel);
         
+        expandedDelegateNodes.clear();
         if (expandedDescendants != null)
         {
+            List<TreePath> translatedPaths = new ArrayList<TreePath>();
             while (expandedDescendants.hasMoreElements())
             {
                 TreePath expanded = expandedDescendants.nextElement();
@@ -149,9 +165,15 @@ public class FilteredTree
                     JTrees.translatePath(treeModel, expanded);
                 if (translatedPath != null)
                 {
-                    this.tree.expandPath(translatedPath);
+                    translatedPaths.add(translatedPath);
+                    TreeNode delegateNode = getDelegateNode(translatedPath);
+                    if (delegateNode != null)
+                    {
+                        expandedDelegateNodes.add(delegateNode);
+                    }
                 }
             }
+            JTrees.expandPaths(tree, translatedPaths);
         }
     }
     
@@ -170,10 +192,7 @@ public class FilteredTree
         if (filter == null)
         {
             treeModel.setFilter(filter);
-            for (TreePath path : expandedPaths)
-            {
-                tree.expandPath(path);
-            }
+            restoreExpandedPaths();
         }
         else
         {
@@ -189,4 +208,145 @@ public class FilteredTree
         }
     }
     
+    /**
+     * Restore the expansion state of the unfiltered tree, based on the
+     * {@link #expandedDelegateNodes}. The paths for the nodes are created 
+     * by walking up the parent chain of each node, re-using the paths that 
+     * have already been created for the ancestors, and then expanded in a 
+     * single batch. Nodes that are no longer contained in the model are 
+     * removed from the set of expanded nodes. Nodes that have a collapsed
+     * ancestor are not expanded, because this would also expand the 
+     * ancestor.
+     */
+    private void restoreExpandedPaths()
+    {
+        Map<TreeNode, TreePath> paths = 
+            new IdentityHashMap<TreeNode, TreePath>();
+        Map<TreeNode, Boolean> visible = 
+            new IdentityHashMap<TreeNode, Boolean>();
+        List<TreePath> expandedPaths = new ArrayList<TreePath>();
+        Iterator<TreeNode> iterator = expandedDelegateNodes.iterator();
+        while (iterator.hasNext())
+        {
+            TreeNode delegateNode = iterator.next();
+            TreePath path = createPath(delegateNode, paths);
+            if (path == null)
+            {
+                iterator.remove();
+            }
+            else if (isVisible(delegateNode.getParent(), visible))
+            {
+                expandedPaths.add(path);
+            }
+        }
+        JTrees.expandPaths(tree, expandedPaths);
+    }
+    
+    /**
+     * Returns whether the children of the given delegate node are visible
+     * according to the {@link #expandedDelegateNodes}, meaning that the 
+     * node and all its ancestors, except for the root, are expanded. The 
+     * given map serves as a cache for the results of this method.
+     * 
+     * @param delegateNode The delegate node
+     * @param visible The cached results
+     * @return Whether the children of the node are visible
+     */
+    private boolean isVisible(
+        TreeNode delegateNode, Map<TreeNode, Boolean> visible)
+    {
+        if (delegateNode == null || delegateNode.getParent() == null)
+        {
+            return true;
+        }
+        Boolean cached = visible.get(delegateNode);
+        if (cached != null)
+        {
+            return cached;
+        }
+        boolean result = expandedDelegateNodes.contains(delegateNode) &&
+            isVisible(delegateNode.getParent(), visible);
+        visible.put(delegateNode, result);
+        return result;
+    }
+    
+    /**
+     * Create the path in the (unfiltered) filtered tree model that leads 
+     * to the node that corresponds to the given delegate node. The given 
+     * map contains the paths that have already been created, and will 
+     * receive the paths that are created for the node and its ancestors. 
+     * If the node is not contained in the model, then <code>null</code> 
+     * is returned.
+     * 
+     * @param delegateNode The delegate node
+     * @param paths The paths that have already been created
+     * @return The path
+     */
+    private TreePath createPath(
+        TreeNode delegateNode, Map<TreeNode, TreePath> paths)
+    {
+        Deque<TreeNode> chain = new ArrayDeque<TreeNode>();
+        TreePath path = null;
+        TreeNode current = delegateNode;
+        while (current != null)
+        {
+            path = paths.get(current);
+            if (path != null)
+            {
+                break;
+            }
+            chain.push(current);
+            current = current.getParent();
+        }
+        if (path == null)
+        {
+            // The path has to start at the root of the model
+            TreeNode delegateRoot = chain.peek();
+            if (treeModel.getFilteredNode(delegateRoot) != 
+                treeModel.getRoot())
+            {
+                return null;
+            }
+        }
+        while (!chain.isEmpty())
+        {
+            TreeNode node = chain.pop();
+            FilteredTreeNode filteredNode = treeModel.getFilteredNode(node);
+            if (filteredNode == null)
+            {
+                return null;
+            }
+            if (path == null)
+            {
+                path = new TreePath(filteredNode);
+            }
+            else
+            {
+                path = path.pathByAddingChild(filteredNode);
+            }
+            paths.put(node, path);
+        }
+        return path;
+    }
+    
+    /**
+     * Returns the delegate node for the last component of the given path,
+     * or <code>null</code> if the last path component is not a node of
+     * a filtered tree model
+     * 
+     * @param path The path
+     * @return The delegate node
+     */
+    private static TreeNode getDelegateNode(TreePath path)
+    {
+        Object lastPathComponent = path.getLastPathComponent();
+        if (lastPathComponent instanceof FilteredTreeNode)
+        {
+            FilteredTreeNode filteredTreeNode = 
+                (FilteredTreeNode)lastPathComponent;
+            return filteredTreeNode.getDelegateNode();
+        }
+        return null;
+    }
+    
 }
\ No newline at end of file
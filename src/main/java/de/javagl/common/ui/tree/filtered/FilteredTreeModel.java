@@ -32,7 +32,6 @@ import javax.swing.event.TreeModelListener;
 import javax.swing.tree.*;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.stream.Stream;
 
 /*
  * NOTE: This model is a first step towards a general, filtered tree model,
@@ -194,19 +193,20 @@ public class FilteredTreeModel implements TreeModel
     
     
     /**
-     * Returns the stream of nodes that results from filtering the given
-     * stream with the current {@link TreeModelFilter} and mapping them
-     * to the filtered nodes
+     * Returns the filtered node that corresponds to the given delegate
+     * node, if the delegate node is accepted by the current 
+     * {@link TreeModelFilter}. Otherwise, <code>null</code> is returned.
      * 
-     * @param delegateNodes The delegate nodes
-     * @return The stream of filtered nodes 
+     * @param delegateNode The delegate node
+     * @return The filtered node, or <code>null</code>
      */
-    Stream<TreeNode> getFiltered(Stream<TreeNode> delegateNodes)
+    FilteredTreeNode getFilteredIfAccepted(TreeNode delegateNode)
     {
-        return delegateNodes
-            .filter(delegateNode -> filter.acceptNode(this, delegateNode))
-            .map(delegateNode -> delegateToThis.get(delegateNode))
-            .filter(filteredNode -> filteredNode != null);
+        if (!filter.acceptNode(this, delegateNode))
+        {
+            return null;
+        }
+        return (FilteredTreeNode)delegateToThis.get(delegateNode);
     }
 
     /**
@@ -28,8 +28,9 @@ package de.javagl.common.ui.tree.filtered;
 
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.TreeNode;
-import java.util.*;
-import java.util.stream.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
 
 /**
  * A tree node that models another tree node in a {@link FilteredTreeModel}
@@ -51,11 +52,26 @@ class FilteredTreeNode extends DefaultMutableTreeNode
      */
     private final TreeNode delegateNode;
     
+    /**
+     * An empty array of children
+     */
+    private static final FilteredTreeNode[] NO_CHILDREN = 
+        new FilteredTreeNode[0];
+    
     /**
      * The FilteredTreeNodes that correspond to the children of the
-     * delegate node that passed the filter
+     * delegate node that passed the filter. This is <code>null</code>
+     * until the children are requested for the first time after the
+     * filter changed.
+     */
+    private FilteredTreeNode filteredChildren[];
+    
+    /**
+     * The index of this node in the {@link #filteredChildren} of its
+     * parent, as of the time when these children have been computed. 
+     * This is only a hint, and has to be validated before it is used. 
      */
-    private Vector<TreeNode> filteredChildren;
+    private int indexInParent;
 
     /**
      * Default constructor
@@ -71,6 +87,16 @@ class FilteredTreeNode extends DefaultMutableTreeNode
         this.filteredChildren = null;
     }
 
+    /**
+     * Returns the delegate node that is represented by this node
+     * 
+     * @return The delegate node
+     */
+    TreeNode getDelegateNode()
+    {
+        return delegateNode;
+    }
+
     @Override
     public boolean isLeaf()
     {
@@ -117,54 +143,104 @@ class FilteredTreeNode extends DefaultMutableTreeNode
     /**
      * Returns the children of this node. These are the {@link FilteredTreeNode}
      * instances that correspond to the children of the delegate node.
+     * They are computed in one pass over the children of the delegate
+     * node, and each child receives its index as its 
+     * {@link #indexInParent}.
      * 
      * @return The filtered children
      */
-    private Vector<TreeNode> getFilteredChildren()
+    private FilteredTreeNode[] getFilteredChildren()
     {
         if (filteredChildren == null)
         {
-            @SuppressWarnings("unchecked")
-            Enumeration<? extends TreeNode> enumeration = 
-                delegateNode.children();
-            Stream<TreeNode> stream = enumerationAsStream(enumeration);
-            filteredChildren = 
-                filteredTreeModel.getFiltered(stream)
-                    .collect(Collectors.toCollection(Vector::new));
+            int delegateChildCount = delegateNode.getChildCount();
+            if (delegateChildCount == 0)
+            {
+                filteredChildren = NO_CHILDREN;
+                return filteredChildren;
+            }
+            FilteredTreeNode children[] = 
+                new FilteredTreeNode[delegateChildCount];
+            int n = 0;
+            for (int i = 0; i < delegateChildCount; i++)
+            {
+                TreeNode delegateChild = delegateNode.getChildAt(i);
+                FilteredTreeNode child = 
+                    filteredTreeModel.getFilteredIfAccepted(delegateChild);
+                if (child != null)
+                {
+                    child.indexInParent = n;
+                    children[n] = child;
+                    n++;
+                }
+            }
+            if (n < delegateChildCount)
+            {
+                children = Arrays.copyOf(children, n);
+            }
+            filteredChildren = children;
         }
         return filteredChildren;
     }
     
     /**
      * Notify this node and all its children that the filter criterion
-     * changes, and the {@link #filteredChildren} have to be recomputed
+     * changes, and the {@link #filteredChildren} have to be recomputed.
+     * Only the children that have actually been computed are visited.
      */
     void notifyFilterChanged()
     {
-        for (TreeNode child : getFilteredChildren())
+        if (filteredChildren != null)
         {
-            ((FilteredTreeNode)child).notifyFilterChanged();
+            for (FilteredTreeNode child : filteredChildren)
+            {
+                child.notifyFilterChanged();
+            }
+            filteredChildren = null;
         }
-        filteredChildren = null;
     }
     
 
     @Override
     public int getIndex(TreeNode node)
     {
-        return getFilteredChildren().indexOf(node);
+        FilteredTreeNode children[] = getFilteredChildren();
+        if (node instanceof FilteredTreeNode)
+        {
+            int index = ((FilteredTreeNode)node).indexInParent;
+            if (index >= 0 && index < children.length && 
+                children[index] == node)
+            {
+                return index;
+            }
+        }
+        for (int i = 0; i < children.length; i++)
+        {
+            if (node != null && node.equals(children[i]))
+            {
+                return i;
+            }
+        }
+        return -1;
     }
 
     @Override
     public int getChildCount()
     {
-        return getFilteredChildren().size();
+        return getFilteredChildren().length;
     }
 
     @Override
     public TreeNode getChildAt(int childIndex)
     {
-        return getFilteredChildren().get(childIndex);
+        FilteredTreeNode children[] = getFilteredChildren();
+        if (childIndex < 0 || childIndex >= children.length)
+        {
+            throw new ArrayIndexOutOfBoundsException(
+                "Index " + childIndex + " is not in [0," + 
+                children.length + ")");
+        }
+        return children[childIndex];
     }
 
     @Override
@@ -177,7 +253,7 @@ class FilteredTreeNode extends DefaultMutableTreeNode
     @SuppressWarnings({ "rawtypes" })
     public Enumeration children()
     {
-        return getFilteredChildren().elements();
+        return Collections.enumeration(Arrays.asList(getFilteredChildren()));
     }
 
     @Override
@@ -201,33 +277,5 @@ class FilteredTreeNode extends DefaultMutableTreeNode
     {
         return delegateNode.hashCode();
     }
-
-    
-    /**
-     * Returns a new stream that has the same contents as the given enumeration
-     * 
-     * @param e The enumeration
-     * @return The stream
-     */
-    private static <T> Stream<T> enumerationAsStream(Enumeration<? extends T> e)
-    {
-        Iterator<T> iterator = new Iterator<T>()
-        {
-            @Override
-            public T next()
-            {
-                return e.nextElement();
-            }
-
-            @Override
-            public boolean hasNext()
-            {
-                return e.hasMoreElements();
-            }
-        };
-        return StreamSupport.stream(
-            Spliterators.spliteratorUnknownSize(
-                iterator, Spliterator.ORDERED), false);
-    }
     
 }
\ No newline at end of file
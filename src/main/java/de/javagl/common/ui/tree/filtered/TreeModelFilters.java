@@ -70,6 +70,7 @@ public class TreeModelFilters
     public static TreeModelFilter containsLeafContainingStringIgnoreCase(
         final String string)
     {
+        final String lowerCaseString = string.toLowerCase();
         return new TreeModelFilter()
         {
             @Override
@@ -78,7 +79,7 @@ public class TreeModelFilters
                 if (node.isLeaf())
                 {
                     if (String.valueOf(node).toLowerCase().contains(
-                        string.toLowerCase())) 
+                        lowerCaseString)) 
                     {
                         return true;
                     }
@@ -113,13 +114,14 @@ public class TreeModelFilters
     public static TreeModelFilter containsStringIgnoreCase(
         final String string)
     {
+        final String lowerCaseString = string.toLowerCase();
         return new TreeModelFilter()
         {
             @Override
             public boolean acceptNode(TreeModel treeModel, TreeNode node)
             {
                 if (String.valueOf(node).toLowerCase().contains(
-                    string.toLowerCase())) 
+                    lowerCaseString)) 
                 {
                     return true;
                 }
@@ -133,6 +135,45 @@ public class TreeModelFilters
                 return false;
             }
 
+            @Override
+            public String toString()
+            {
+                return "TreeModelFilter[" +
+                    "containsStringIgnoreCase("+string+")]";
+            }
+        };        
+    }
+    
+    /**
+     * Returns a {@link TreeModelFilter} that behaves like the one 
+     * returned by {@link #containsLeafContainingStringIgnoreCase(String)},
+     * but answers its queries using the given {@link TreeSearchIndex}.<br>
+     * <br>
+     * The nodes that are passed to the filter must be nodes of the tree 
+     * model that the index was created for. Nodes that are not contained 
+     * in this tree model are not accepted.<br>
+     * <br>
+     * The filter does not take ownership of the index. The index may be 
+     * shared by several filters, and the caller that created it is 
+     * responsible for calling {@link TreeSearchIndex#detach()} when it 
+     * is no longer needed.
+     * 
+     * @param index The {@link TreeSearchIndex}
+     * @param string The string that must be contained in the node string
+     * @return The new {@link TreeModelFilter}
+     */
+    public static TreeModelFilter containsLeafContainingStringIgnoreCase(
+        final TreeSearchIndex index, final String string)
+    {
+        final String lowerCaseString = string.toLowerCase();
+        return new TreeModelFilter()
+        {
+            @Override
+            public boolean acceptNode(TreeModel treeModel, TreeNode node)
+            {
+                return index.accepts(node, lowerCaseString, true);
+            }
+
             @Override
             public String toString()
             {
@@ -142,6 +183,45 @@ public class TreeModelFilters
         };        
     }
     
+    /**
+     * Returns a {@link TreeModelFilter} that behaves like the one 
+     * returned by {@link #containsStringIgnoreCase(String)}, but answers 
+     * its queries using the given {@link TreeSearchIndex}.<br>
+     * <br>
+     * The nodes that are passed to the filter must be nodes of the tree 
+     * model that the index was created for. Nodes that are not contained 
+     * in this tree model are not accepted.<br>
+     * <br>
+     * The filter does not take ownership of the index. The index may be 
+     * shared by several filters, and the caller that created it is 
+     * responsible for calling {@link TreeSearchIndex#detach()} when it 
+     * is no longer needed.
+     * 
+     * @param index The {@link TreeSearchIndex}
+     * @param string The string that must be contained in the node string
+     * @return The new {@link TreeModelFilter}
+     */
+    public static TreeModelFilter containsStringIgnoreCase(
+        final TreeSearchIndex index, final String string)
+    {
+        final String lowerCaseString = string.toLowerCase();
+        return new TreeModelFilter()
+        {
+            @Override
+            public boolean acceptNode(TreeModel treeModel, TreeNode node)
+            {
+                return index.accepts(node, lowerCaseString, false);
+            }
+
+            @Override
+            public String toString()
+            {
+                return "TreeModelFilter[" +
+                    "containsStringIgnoreCase("+string+")]";
+            }
+        };        
+    }
+    
     
     /**
      * Private constructor to prevent instantiation
@@ -0,0 +1,688 @@
+/*
+ * www.javagl.de - Common - UI
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.common.ui.tree.filtered;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreeNode;
+
+/**
+ * An index for searching the string representations of the nodes of a 
+ * tree model, ignoring upper/lower case. It may be used for creating
+ * {@link TreeModelFilter} instances that do not have to re-examine the 
+ * whole subtree of each node that they are asked about: 
+ * See {@link TreeModelFilters#containsStringIgnoreCase(TreeSearchIndex, 
+ * String)} and {@link TreeModelFilters#containsLeafContainingStringIgnoreCase(
+ * TreeSearchIndex, String)}.<br>
+ * <br>
+ * The index stores the lower case string of each node, and a mapping
+ * from all 3-character sequences (trigrams) to the nodes whose string 
+ * contains them. A query determines the candidate nodes from the 
+ * trigram with the fewest nodes, checks them, and marks each match 
+ * and its ancestors in a bit set. The result of the last query is 
+ * cached.<br>
+ * <br>
+ * The index attaches itself as a listener to the tree model, and is 
+ * updated incrementally when nodes are inserted, removed or changed. 
+ * When the structure of the tree model changes, the index is rebuilt. 
+ * Like the tree model itself, this class is not thread-safe, and is 
+ * intended to be used on the event dispatch thread. The filters that 
+ * use the index do not detach it. When the index is no longer needed,
+ * {@link #detach()} should be called by whoever created it.
+ */
+public final class TreeSearchIndex
+{
+    /**
+     * The length of the n-grams that are stored in the index
+     */
+    private static final int N = 3;
+    
+    /**
+     * A simple growable list of <code>int</code> values
+     */
+    private static final class IntList
+    {
+        /**
+         * The elements
+         */
+        int elements[] = new int[4];
+        
+        /**
+         * The number of elements
+         */
+        int size;
+        
+        /**
+         * Add the given element
+         * 
+         * @param element The element
+         */
+        void add(int element)
+        {
+            if (size == elements.length)
+            {
+                elements = Arrays.copyOf(elements, size * 2);
+            }
+            elements[size++] = element;
+        }
+        
+        /**
+         * Remove the first occurrence of the given element, if present
+         * 
+         * @param element The element
+         */
+        void remove(int element)
+        {
+            for (int i = 0; i < size; i++)
+            {
+                if (elements[i] == element)
+                {
+                    System.arraycopy(
+                        elements, i + 1, elements, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * The tree model
+     */
+    private final TreeModel treeModel;
+    
+    /**
+     * The listener that keeps this index up to date
+     */
+    private final TreeModelListener treeModelListener;
+    
+    /**
+     * The mapping from nodes to their IDs
+     */
+    private final Map<Object, Integer> ids;
+    
+    /**
+     * The nodes, indexed by their ID. Entries for removed nodes
+     * are <code>null</code>.
+     */
+    private Object nodes[];
+    
+    /**
+     * The lower case strings of the nodes, indexed by their ID
+     */
+    private String texts[];
+    
+    /**
+     * The IDs of the parents of the nodes, or -1 for the root
+     */
+    private int parents[];
+    
+    /**
+     * The number of IDs that have been assigned
+     */
+    private int idCount;
+    
+    /**
+     * The number of IDs that belong to removed nodes
+     */
+    private int removedCount;
+    
+    /**
+     * The mapping from n-gram keys to the IDs of the nodes whose string
+     * contains the n-gram. These lists may contain IDs of removed nodes, 
+     * which are sorted out during a query. When the string of a node
+     * changes, its ID is removed from the lists of the n-grams that the
+     * new string no longer contains.
+     */
+    private final Map<Long, IntList> postings;
+    
+    /**
+     * A counter for the modifications of this index
+     */
+    private int modificationCount;
+    
+    /**
+     * The (lower case) string of the last query
+     */
+    private String lastQuery;
+    
+    /**
+     * Whether the last query was restricted to leaf nodes
+     */
+    private boolean lastLeavesOnly;
+    
+    /**
+     * The {@link #modificationCount} at the time of the last query
+     */
+    private int lastModificationCount;
+    
+    /**
+     * The result of the last query
+     */
+    private BitSet lastResult;
+    
+    /**
+     * Creates a new search index for the given tree model. The index 
+     * will immediately be built, and attached as a listener to the model.
+     * 
+     * @param treeModel The tree model
+     * @throws NullPointerException If the model is <code>null</code>
+     */
+    public TreeSearchIndex(TreeModel treeModel)
+    {
+        this.treeModel = Objects.requireNonNull(
+            treeModel, "The treeModel may not be null");
+        this.ids = new IdentityHashMap<Object, Integer>();
+        this.postings = new HashMap<Long, IntList>();
+        this.treeModelListener = new TreeModelListener()
+        {
+            @Override
+            public void treeNodesInserted(TreeModelEvent e)
+            {
+                handleNodesInserted(e);
+            }
+            
+            @Override
+            public void treeNodesRemoved(TreeModelEvent e)
+            {
+                handleNodesRemoved(e);
+            }
+            
+            @Override
+            public void treeNodesChanged(TreeModelEvent e)
+            {
+                handleNodesChanged(e);
+            }
+            
+            @Override
+            public void treeStructureChanged(TreeModelEvent e)
+            {
+                rebuild();
+            }
+        };
+        rebuild();
+        treeModel.addTreeModelListener(treeModelListener);
+    }
+    
+    /**
+     * Detach this index from its tree model. After this method has been
+     * called, the index will no longer be updated.
+     */
+    public void detach()
+    {
+        treeModel.removeTreeModelListener(treeModelListener);
+    }
+    
+    /**
+     * Returns the tree model that this index was created for
+     * 
+     * @return The tree model
+     */
+    public TreeModel getTreeModel()
+    {
+        return treeModel;
+    }
+    
+    /**
+     * Rebuild the whole index
+     */
+    private void rebuild()
+    {
+        ids.clear();
+        postings.clear();
+        nodes = new Object[64];
+        texts = new String[64];
+        parents = new int[64];
+        idCount = 0;
+        removedCount = 0;
+        modificationCount++;
+        Object root = treeModel.getRoot();
+        if (root != null)
+        {
+            addSubtree(root, -1);
+        }
+    }
+    
+    /**
+     * Add the given node and all its descendants to this index
+     * 
+     * @param node The node
+     * @param parentId The ID of the parent node, or -1 for the root
+     */
+    private void addSubtree(Object node, int parentId)
+    {
+        Deque<Object> stack = new ArrayDeque<Object>();
+        addNode(node, parentId);
+        stack.push(node);
+        while (!stack.isEmpty())
+        {
+            Object current = stack.pop();
+            int currentId = ids.get(current);
+            int n = treeModel.getChildCount(current);
+            for (int i = 0; i < n; i++)
+            {
+                Object child = treeModel.getChild(current, i);
+                addNode(child, currentId);
+                stack.push(child);
+            }
+        }
+    }
+    
+    /**
+     * Add the given node to this index
+     * 
+     * @param node The node
+     * @param parentId The ID of the parent node, or -1 for the root
+     */
+    private void addNode(Object node, int parentId)
+    {
+        if (idCount == nodes.length)
+        {
+            int newLength = nodes.length * 2;
+            nodes = Arrays.copyOf(nodes, newLength);
+            texts = Arrays.copyOf(texts, newLength);
+            parents = Arrays.copyOf(parents, newLength);
+        }
+        int id = idCount++;
+        ids.put(node, id);
+        nodes[id] = node;
+        parents[id] = parentId;
+        setText(id, normalize(node));
+    }
+    
+    /**
+     * Set the given text for the node with the given ID, and add the 
+     * ID to the postings of all n-grams of the text
+     * 
+     * @param id The ID
+     * @param text The normalized text
+     */
+    private void setText(int id, String text)
+    {
+        texts[id] = text;
+        for (int i = 0; i + N <= text.length(); i++)
+        {
+            Long key = key(text, i);
+            IntList list = postings.get(key);
+            if (list == null)
+            {
+                list = new IntList();
+                postings.put(key, list);
+            }
+            if (list.size == 0 || list.elements[list.size - 1] != id)
+            {
+                list.add(id);
+            }
+        }
+    }
+    
+    /**
+     * Remove the given node and all its descendants from this index.
+     * The descendants are obtained from the tree model, assuming that
+     * the removed subtree itself is still intact.
+     * 
+     * @param node The node
+     */
+    private void removeSubtree(Object node)
+    {
+        Deque<Object> stack = new ArrayDeque<Object>();
+        stack.push(node);
+        while (!stack.isEmpty())
+        {
+            Object current = stack.pop();
+            Integer id = ids.remove(current);
+            if (id != null)
+            {
+                nodes[id] = null;
+                texts[id] = null;
+                removedCount++;
+                int n = treeModel.getChildCount(current);
+                for (int i = 0; i < n; i++)
+                {
+                    stack.push(treeModel.getChild(current, i));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Handle the given insertion event
+     * 
+     * @param e The event
+     */
+    private void handleNodesInserted(TreeModelEvent e)
+    {
+        Object children[] = e.getChildren();
+        Integer parentId = ids.get(e.getTreePath().getLastPathComponent());
+        if (children == null || parentId == null)
+        {
+            rebuild();
+            return;
+        }
+        for (Object child : children)
+        {
+            addSubtree(child, parentId);
+        }
+        modificationCount++;
+    }
+    
+    /**
+     * Handle the given removal event
+     * 
+     * @param e The event
+     */
+    private void handleNodesRemoved(TreeModelEvent e)
+    {
+        Object children[] = e.getChildren();
+        if (children == null)
+        {
+            rebuild();
+            return;
+        }
+        for (Object child : children)
+        {
+            removeSubtree(child);
+        }
+        modificationCount++;
+        if (removedCount > idCount - removedCount)
+        {
+            rebuild();
+        }
+    }
+    
+    /**
+     * Handle the given change event, by updating the texts of the
+     * changed nodes
+     * 
+     * @param e The event
+     */
+    private void handleNodesChanged(TreeModelEvent e)
+    {
+        Object children[] = e.getChildren();
+        if (children == null)
+        {
+            // The root changed
+            Object root = treeModel.getRoot();
+            Integer id = ids.get(root);
+            if (id != null)
+            {
+                updateText(id, root);
+            }
+        }
+        else
+        {
+            for (Object child : children)
+            {
+                Integer id = ids.get(child);
+                if (id != null)
+                {
+                    updateText(id, child);
+                }
+            }
+        }
+        modificationCount++;
+    }
+    
+    /**
+     * Update the text for the given node, if it changed, removing the
+     * ID of the node from the postings of the n-grams that are no longer
+     * contained in the text, and adding it to those of the new n-grams
+     * 
+     * @param id The ID of the node
+     * @param node The node
+     */
+    private void updateText(int id, Object node)
+    {
+        String oldText = texts[id];
+        String text = normalize(node);
+        if (text.equals(oldText))
+        {
+            return;
+        }
+        Set<Long> oldKeys = keys(oldText);
+        Set<Long> newKeys = keys(text);
+        texts[id] = text;
+        for (Long key : oldKeys)
+        {
+            if (!newKeys.contains(key))
+            {
+                IntList list = postings.get(key);
+                if (list != null)
+                {
+                    list.remove(id);
+                    if (list.size == 0)
+                    {
+                        postings.remove(key);
+                    }
+                }
+            }
+        }
+        for (Long key : newKeys)
+        {
+            if (!oldKeys.contains(key))
+            {
+                IntList list = postings.get(key);
+                if (list == null)
+                {
+                    list = new IntList();
+                    postings.put(key, list);
+                }
+                list.add(id);
+            }
+        }
+    }
+    
+    /**
+     * Returns the set of keys of all n-grams of the given text
+     * 
+     * @param text The text
+     * @return The keys
+     */
+    private static Set<Long> keys(String text)
+    {
+        Set<Long> keys = new HashSet<Long>();
+        for (int i = 0; i + N <= text.length(); i++)
+        {
+            keys.add(key(text, i));
+        }
+        return keys;
+    }
+    
+    /**
+     * Returns the normalized text of the given node
+     * 
+     * @param node The node
+     * @return The text
+     */
+    private static String normalize(Object node)
+    {
+        return String.valueOf(node).toLowerCase();
+    }
+    
+    /**
+     * Returns the key of the n-gram that starts at the given index
+     * of the given string
+     * 
+     * @param s The string
+     * @param index The index
+     * @return The key
+     */
+    private static long key(String s, int index)
+    {
+        long key = 0;
+        for (int i = 0; i < N; i++)
+        {
+            key = (key << 16) | s.charAt(index + i);
+        }
+        return key;
+    }
+    
+    /**
+     * Returns whether the given node is accepted by a filter for the 
+     * given lower case string. A node is accepted if the lower case
+     * version of its string representation, or that of any of its 
+     * descendants, contains the given string. If <code>leavesOnly</code> is
+     * <code>true</code>, then only the strings of leaf nodes are 
+     * examined. Nodes that are not contained in the tree model are
+     * not accepted.
+     * 
+     * @param node The node
+     * @param lowerCaseString The lower case string
+     * @param leavesOnly Whether only leaf nodes should be examined
+     * @return Whether the node is accepted
+     */
+    boolean accepts(
+        Object node, String lowerCaseString, boolean leavesOnly)
+    {
+        Integer id = ids.get(node);
+        if (id == null)
+        {
+            return false;
+        }
+        return query(lowerCaseString, leavesOnly).get(id);
+    }
+    
+    /**
+     * Returns the set of IDs of the nodes that match the given query,
+     * or have a descendant that matches the given query. 
+     * 
+     * @param query The lower case query string
+     * @param leavesOnly Whether only leaf nodes should be examined
+     * @return The result
+     */
+    private BitSet query(String query, boolean leavesOnly)
+    {
+        if (lastResult != null && 
+            lastModificationCount == modificationCount &&
+            lastLeavesOnly == leavesOnly &&
+            query.equals(lastQuery))
+        {
+            return lastResult;
+        }
+        BitSet result = new BitSet(idCount);
+        if (query.length() < N)
+        {
+            for (int id = 0; id < idCount; id++)
+            {
+                checkCandidate(id, query, leavesOnly, result);
+            }
+        }
+        else
+        {
+            IntList candidates = null;
+            for (int i = 0; i + N <= query.length(); i++)
+            {
+                IntList list = postings.get(key(query, i));
+                if (list == null)
+                {
+                    candidates = null;
+                    break;
+                }
+                if (candidates == null || list.size < candidates.size)
+                {
+                    candidates = list;
+                }
+            }
+            if (candidates != null)
+            {
+                for (int i = 0; i < candidates.size; i++)
+                {
+                    int id = candidates.elements[i];
+                    checkCandidate(id, query, leavesOnly, result);
+                }
+            }
+        }
+        lastQuery = query;
+        lastLeavesOnly = leavesOnly;
+        lastModificationCount = modificationCount;
+        lastResult = result;
+        return result;
+    }
+    
+    /**
+     * Check whether the node with the given ID matches the given query,
+     * and if so, mark it and all its ancestors in the given result
+     * 
+     * @param id The ID of the node
+     * @param query The lower case query string
+     * @param leavesOnly Whether only leaf nodes should be examined
+     * @param result The result
+     */
+    private void checkCandidate(
+        int id, String query, boolean leavesOnly, BitSet result)
+    {
+        if (result.get(id))
+        {
+            // The node and all its ancestors are already marked
+            return;
+        }
+        String text = texts[id];
+        if (text == null || !text.contains(query))
+        {
+            return;
+        }
+        if (leavesOnly && !isLeaf(nodes[id]))
+        {
+            return;
+        }
+        int current = id;
+        while (current != -1 && !result.get(current))
+        {
+            result.set(current);
+            current = parents[current];
+        }
+    }
+    
+    /**
+     * Returns whether the given node is a leaf, in the same way as
+     * it is determined by the filters in {@link TreeModelFilters}
+     * 
+     * @param node The node
+     * @return Whether the node is a leaf
+     */
+    private boolean isLeaf(Object node)
+    {
+        if (node instanceof TreeNode)
+        {
+            return ((TreeNode)node).isLeaf();
+        }
+        return treeModel.isLeaf(node);
+    }
+}
@@ -0,0 +1,560 @@
+/*
+ * www.javagl.de - Common - UI
+ *
+ * Copyright (c) 2013-2015 Marco Hutter - http://www.javagl.de
+ * 
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package de.javagl.common.ui.tree.index;
+
+import de.javagl.common.ui.JTrees;
+
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+import java.util.*;
+
+/**
+ * An index for the nodes of a {@link TreeModel}. It stores the parent 
+ * of each node, the index of each node in its parent, and lazily 
+ * computes and caches the tree path of each node. It attaches itself 
+ * as a listener to the tree model, and updates itself when nodes are 
+ * inserted or removed, or the structure of the model changes.<br>
+ * <br>
+ * This allows answering the queries of {@link JTrees#getParent}, 
+ * {@link JTrees#createTreePathToRoot}, {@link JTrees#translatePath} 
+ * and {@link JTrees#countNodes} in O(depth) or O(1), instead of 
+ * searching the tree. <br>
+ * <br>
+ * Nodes are identified by their identity, consistent with the methods 
+ * in {@link JTrees}. The index relies on the tree model firing proper 
+ * events for all changes. Like the tree model itself, this class is 
+ * not thread-safe, and is intended to be used on the event dispatch 
+ * thread. When the index is no longer needed, {@link #detach()} should
+ * be called.
+ */
+public final class TreeModelIndex
+{
+    /**
+     * The information that is stored for each node
+     */
+    private static final class NodeInfo
+    {
+        /**
+         * The parent node, or <code>null</code> for the root
+         */
+        Object parent;
+        
+        /**
+         * The index of the node in its parent, or -1 for the root
+         */
+        int index;
+        
+        /**
+         * The children of the node, as they have been reported by the
+         * tree model when the node was indexed, or when the last
+         * insertion or removal event for the node was received
+         */
+        Object children[];
+        
+        /**
+         * The cached tree path, or <code>null</code> if it was not
+         * computed yet
+         */
+        TreePath treePath;
+        
+        /**
+         * A lazily created mapping from user objects to the children
+         * of this node, as used in {@link TreeModelIndex#translatePath}.
+         * This is <code>null</code> if it was not computed yet, or had
+         * to be invalidated due to changes of the children.
+         */
+        Map<Object, Object> childrenByUserObject;
+    }
+    
+    /**
+     * The tree model
+     */
+    private final TreeModel treeModel;
+    
+    /**
+     * The mapping from nodes to their {@link NodeInfo}
+     */
+    private final Map<Object, NodeInfo> nodeInfos;
+    
+    /**
+     * The listener that keeps this index up to date
+     */
+    private final TreeModelListener treeModelListener;
+    
+    /**
+     * Creates a new index for the given tree model. The index will
+     * immediately be built, and attached as a listener to the model.
+     * 
+     * @param treeModel The tree model
+     * @throws NullPointerException If the model is <code>null</code>
+     */
+    public TreeModelIndex(TreeModel treeModel)
+    {
+        this.treeModel = Objects.requireNonNull(
+            treeModel, "The treeModel may not be null");
+        this.nodeInfos = new IdentityHashMap<Object, NodeInfo>();
+        this.treeModelListener = new TreeModelListener()
+        {
+            @Override
+            public void treeNodesInserted(TreeModelEvent e)
+            {
+                handleNodesInserted(e);
+            }
+            
+            @Override
+            public void treeNodesRemoved(TreeModelEvent e)
+            {
+                handleNodesRemoved(e);
+            }
+            
+            @Override
+            public void treeNodesChanged(TreeModelEvent e)
+            {
+                handleNodesChanged(e);
+            }
+            
+            @Override
+            public void treeStructureChanged(TreeModelEvent e)
+            {
+                handleStructureChanged(e);
+            }
+        };
+        rebuild();
+        treeModel.addTreeModelListener(treeModelListener);
+    }
+    
+    /**
+     * Detach this index from its tree model. After this method has been
+     * called, the index will no longer be updated.
+     */
+    public void detach()
+    {
+        treeModel.removeTreeModelListener(treeModelListener);
+    }
+    
+    /**
+     * Returns the tree model that this index was created for
+     * 
+     * @return The tree model
+     */
+    public TreeModel getTreeModel()
+    {
+        return treeModel;
+    }
+    
+    /**
+     * Rebuild the whole index
+     */
+    private void rebuild()
+    {
+        nodeInfos.clear();
+        Object root = treeModel.getRoot();
+        if (root != null)
+        {
+            addSubtree(root, null, -1);
+        }
+    }
+    
+    /**
+     * Add the given node and all its descendants to this index
+     * 
+     * @param node The node
+     * @param parent The parent, or <code>null</code> for the root
+     * @param index The index of the node in its parent
+     */
+    private void addSubtree(Object node, Object parent, int index)
+    {
+        Deque<Object> stack = new ArrayDeque<Object>();
+        NodeInfo info = new NodeInfo();
+        info.parent = parent;
+        info.index = index;
+        nodeInfos.put(node, info);
+        stack.push(node);
+        while (!stack.isEmpty())
+        {
+            Object current = stack.pop();
+            NodeInfo currentInfo = nodeInfos.get(current);
+            currentInfo.children = obtainChildren(current);
+            for (int i = 0; i < currentInfo.children.length; i++)
+            {
+                Object child = currentInfo.children[i];
+                NodeInfo childInfo = new NodeInfo();
+                childInfo.parent = current;
+                childInfo.index = i;
+                nodeInfos.put(child, childInfo);
+                stack.push(child);
+            }
+        }
+    }
+    
+    /**
+     * Obtain the children of the given node from the tree model
+     * 
+     * @param node The node
+     * @return The children
+     */
+    private Object[] obtainChildren(Object node)
+    {
+        int n = treeModel.getChildCount(node);
+        Object children[] = new Object[n];
+        for (int i = 0; i < n; i++)
+        {
+            children[i] = treeModel.getChild(node, i);
+        }
+        return children;
+    }
+    
+    /**
+     * Remove the given node and all its descendants from this index.
+     * The descendants are determined from the children that have been
+     * recorded in this index, because the tree model may already have
+     * been modified.
+     * 
+     * @param node The node
+     */
+    private void removeSubtree(Object node)
+    {
+        NodeInfo info = nodeInfos.remove(node);
+        if (info == null)
+        {
+            return;
+        }
+        Deque<NodeInfo> stack = new ArrayDeque<NodeInfo>();
+        stack.push(info);
+        while (!stack.isEmpty())
+        {
+            NodeInfo current = stack.pop();
+            for (Object child : current.children)
+            {
+                NodeInfo childInfo = nodeInfos.remove(child);
+                if (childInfo != null)
+                {
+                    stack.push(childInfo);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Update the recorded children of the given parent and their 
+     * indices, and invalidate its mapping from user objects to children
+     * 
+     * @param parent The parent
+     */
+    private void reindexChildren(Object parent)
+    {
+        NodeInfo parentInfo = nodeInfos.get(parent);
+        if (parentInfo == null)
+        {
+            return;
+        }
+        parentInfo.childrenByUserObject = null;
+        parentInfo.children = obtainChildren(parent);
+        for (int i = 0; i < parentInfo.children.length; i++)
+        {
+            NodeInfo info = nodeInfos.get(parentInfo.children[i]);
+            if (info != null)
+            {
+                info.index = i;
+            }
+        }
+    }
+    
+    /**
+     * Handle the given insertion event
+     * 
+     * @param e The event
+     */
+    private void handleNodesInserted(TreeModelEvent e)
+    {
+        Object parent = e.getTreePath().getLastPathComponent();
+        Object children[] = e.getChildren();
+        int indices[] = e.getChildIndices();
+        if (children == null || indices == null || !contains(parent))
+        {
+            handleStructureChanged(e);
+            return;
+        }
+        for (int i = 0; i < children.length; i++)
+        {
+            addSubtree(children[i], parent, indices[i]);
+        }
+        reindexChildren(parent);
+    }
+    
+    /**
+     * Handle the given removal event
+     * 
+     * @param e The event
+     */
+    private void handleNodesRemoved(TreeModelEvent e)
+    {
+        Object parent = e.getTreePath().getLastPathComponent();
+        Object children[] = e.getChildren();
+        if (children == null)
+        {
+            handleStructureChanged(e);
+            return;
+        }
+        for (Object child : children)
+        {
+            removeSubtree(child);
+        }
+        reindexChildren(parent);
+    }
+    
+    /**
+     * Handle the given change event. The structure is not affected, but
+     * the user objects of the children may have changed.
+     * 
+     * @param e The event
+     */
+    private void handleNodesChanged(TreeModelEvent e)
+    {
+        TreePath treePath = e.getTreePath();
+        if (treePath == null)
+        {
+            return;
+        }
+        NodeInfo info = nodeInfos.get(treePath.getLastPathComponent());
+        if (info != null)
+        {
+            info.childrenByUserObject = null;
+        }
+        if (e.getChildren() == null && info != null && info.parent != null)
+        {
+            // The node itself changed, so the mapping of its parent
+            // may also have to be updated 
+            NodeInfo parentInfo = nodeInfos.get(info.parent);
+            if (parentInfo != null)
+            {
+                parentInfo.childrenByUserObject = null;
+            }
+        }
+    }
+    
+    /**
+     * Handle the given structure change event
+     * 
+     * @param e The event
+     */
+    private void handleStructureChanged(TreeModelEvent e)
+    {
+        TreePath treePath = e.getTreePath();
+        if (treePath == null || treePath.getParentPath() == null)
+        {
+            rebuild();
+            return;
+        }
+        Object node = treePath.getLastPathComponent();
+        NodeInfo info = nodeInfos.get(node);
+        if (info == null)
+        {
+            rebuild();
+            return;
+        }
+        removeSubtree(node);
+        addSubtree(node, info.parent, info.index);
+        NodeInfo newInfo = nodeInfos.get(node);
+        newInfo.treePath = info.treePath;
+    }
+    
+    /**
+     * Returns whether the given node is contained in the tree model
+     * 
+     * @param node The node
+     * @return Whether the node is contained
+     */
+    public boolean contains(Object node)
+    {
+        return nodeInfos.containsKey(node);
+    }
+    
+    /**
+     * Returns the number of nodes in the tree model. This is the same
+     * value that is returned by {@link JTrees#countNodes(TreeModel)}.
+     * 
+     * @return The number of nodes
+     */
+    public int getNodeCount()
+    {
+        return nodeInfos.size();
+    }
+    
+    /**
+     * Returns the parent of the given node in the tree model. This parent 
+     * is <code>null</code> if the given node is the root node, or not
+     * contained in the tree model.
+     * 
+     * @param node The node
+     * @return The parent
+     */
+    public Object getParent(Object node)
+    {
+        NodeInfo info = nodeInfos.get(node);
+        if (info == null)
+        {
+            return null;
+        }
+        return info.parent;
+    }
+    
+    /**
+     * Returns the index of the given node in its parent, or -1 if the
+     * given node is the root node, or not contained in the tree model
+     * 
+     * @param node The node
+     * @return The index in the parent
+     */
+    public int getIndexInParent(Object node)
+    {
+        NodeInfo info = nodeInfos.get(node);
+        if (info == null)
+        {
+            return -1;
+        }
+        return info.index;
+    }
+    
+    /**
+     * Returns the tree path from the root to the given node, or 
+     * <code>null</code> if the node is not contained in the tree model.
+     * The paths are cached, so that this method will usually return in 
+     * O(1), and at most in O(depth).
+     * 
+     * @param node The node
+     * @return The tree path
+     */
+    public TreePath getTreePath(Object node)
+    {
+        NodeInfo info = nodeInfos.get(node);
+        if (info == null)
+        {
+            return null;
+        }
+        return getTreePath(node, info);
+    }
+    
+    /**
+     * Returns the tree path from the root to the given node
+     * 
+     * @param node The node
+     * @param info The {@link NodeInfo} of the node
+     * @return The tree path
+     */
+    private TreePath getTreePath(Object node, NodeInfo info)
+    {
+        if (info.treePath == null)
+        {
+            if (info.parent == null)
+            {
+                info.treePath = new TreePath(node);
+            }
+            else
+            {
+                NodeInfo parentInfo = nodeInfos.get(info.parent);
+                TreePath parentPath = getTreePath(info.parent, parentInfo);
+                info.treePath = parentPath.pathByAddingChild(node);
+            }
+        }
+        return info.treePath;
+    }
+    
+    /**
+     * Translates a tree path from another tree model into this tree 
+     * model, in the same way as 
+     * {@link JTrees#translatePath(TreeModel, TreePath)}: The path is 
+     * identified based on the equality of the user objects of 
+     * <code>DefaultMutableTreeNode</code>s.<br>
+     * <br>
+     * The children of each node are looked up in a hash map that is
+     * created lazily, so that the translation usually takes O(depth).
+     * If multiple children of one node have equal user objects, then
+     * the first one will be used.
+     * 
+     * @param oldPath The old tree path
+     * @return The new tree path, or <code>null</code> if there is no
+     * corresponding path in the tree model
+     */
+    public TreePath translatePath(TreePath oldPath)
+    {
+        Object node = treeModel.getRoot();
+        if (node == null)
+        {
+            return null;
+        }
+        for (int i = 1; i < oldPath.getPathCount(); i++)
+        {
+            Object oldElement = oldPath.getPathComponent(i);
+            Object oldUserObject = 
+                JTrees.getUserObjectFromTreeNode(oldElement);
+            node = getChildWith(node, oldUserObject);
+            if (node == null)
+            {
+                return null;
+            }
+        }
+        return getTreePath(node);
+    }
+    
+    /**
+     * Returns the child of the given node that has the given user object,
+     * or <code>null</code> if there is no such child
+     * 
+     * @param node The node
+     * @param userObject The user object
+     * @return The child
+     */
+    private Object getChildWith(Object node, Object userObject)
+    {
+        NodeInfo info = nodeInfos.get(node);
+        if (info == null)
+        {
+            return null;
+        }
+        if (info.childrenByUserObject == null)
+        {
+            Object children[] = info.children;
+            Map<Object, Object> map = 
+                new HashMap<Object, Object>(children.length * 2);
+            for (int i = children.length - 1; i >= 0; i--)
+            {
+                Object child = children[i];
+                if (child instanceof DefaultMutableTreeNode)
+                {
+                    map.put(JTrees.getUserObjectFromTreeNode(child), child);
+                }
+            }
+            info.childrenByUserObject = map;
+        }
+        return info.childrenByUserObject.get(userObject);
+    }
+}
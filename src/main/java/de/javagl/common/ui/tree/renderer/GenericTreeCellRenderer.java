@@ -27,13 +27,40 @@
 package de.javagl.common.ui.tree.renderer;
 
 import javax.swing.*;
+import javax.swing.border.Border;
 import javax.swing.tree.DefaultTreeCellRenderer;
 import javax.swing.tree.TreeCellRenderer;
 import java.awt.*;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * Base implementation of a {@link TreeCellRenderer} that allows
- * adding arbitrary components to the tree cells. 
+ * adding arbitrary components to the tree cells.<br>
+ * <br>
+ * The renderer creates one component tree, and re-uses it for all 
+ * cells, only updating its state for each call to 
+ * {@link #getTreeCellRendererComponent}. Subclasses may either 
+ * <ul>
+ *   <li>
+ *     override {@link #prepare(Object, JPanel)}, to fill the (then empty)
+ *     container with new components for each cell, or
+ *   </li>
+ *   <li>
+ *     override {@link #initialize(JPanel)} to create the components
+ *     once, and {@link #update(Object, JPanel)} to update them for
+ *     each cell, so that rendering does not allocate new components.
+ *   </li>
+ * </ul>
+ * Optionally, the renderer may cache the preferred sizes of the
+ * cells, by their value. This is only valid when the preferred size 
+ * of a cell depends only on the value that is displayed in the cell,
+ * and not on the selection-, expansion- or focus state. The cache
+ * may be cleared with {@link #clearPreferredSizeCache()}.<br>
+ * <br>
+ * Since the component is shared, a renderer instance should not be used 
+ * for creating the component of a cell editor, while it is also used 
+ * for rendering the cells of a tree. 
  */
 public abstract class GenericTreeCellRenderer implements TreeCellRenderer
 {
@@ -42,75 +69,205 @@ public abstract class GenericTreeCellRenderer implements TreeCellRenderer
      */
     private final DefaultTreeCellRenderer delegate = 
         new DefaultTreeCellRenderer();
+    
+    /**
+     * Whether the preferred sizes should be cached
+     */
+    private final boolean cachingPreferredSizes;
+    
+    /**
+     * The cached preferred sizes. This is <code>null</code> if the
+     * preferred sizes are not cached.
+     */
+    private final Map<Object, Dimension> preferredSizes;
+    
+    /**
+     * The component that is returned as the renderer component. 
+     * This is created lazily, in the first call to 
+     * {@link #getTreeCellRendererComponent}
+     */
+    private RendererPanel component;
+    
+    /**
+     * The label for the icon
+     */
+    private JLabel iconLabel;
+    
+    /**
+     * The container that receives the components of the subclasses
+     */
+    private ContainerPanel container;
+    
+    /**
+     * The layout that the container has by default
+     */
+    private final LayoutManager defaultContainerLayout = new GridLayout(1,1);
+    
+    /**
+     * The border for cells that are not selected
+     */
+    private final Border emptyBorder = 
+        BorderFactory.createEmptyBorder(1, 1, 1, 1);
+    
+    /**
+     * The border for selected cells. This is created lazily, and 
+     * re-created when the border selection color changes.
+     */
+    private Border selectionBorder;
+    
+    /**
+     * The color of the {@link #selectionBorder}
+     */
+    private Color selectionBorderColor;
+    
+    /**
+     * Default constructor. The preferred sizes of the cells will not
+     * be cached.
+     */
+    public GenericTreeCellRenderer()
+    {
+        this(false);
+    }
+    
+    /**
+     * Creates a new renderer
+     * 
+     * @param cachingPreferredSizes Whether the preferred sizes of the 
+     * cells should be cached, by the value that is displayed in the cell
+     */
+    public GenericTreeCellRenderer(boolean cachingPreferredSizes)
+    {
+        this.cachingPreferredSizes = cachingPreferredSizes;
+        if (cachingPreferredSizes)
+        {
+            this.preferredSizes = new WeakHashMap<Object, Dimension>();
+        }
+        else
+        {
+            this.preferredSizes = null;
+        }
+    }
+    
+    /**
+     * Clear the cache of preferred sizes. This should be called when
+     * the preferred size of any cell may have changed. If this renderer
+     * does not cache the preferred sizes, then this method has no effect.
+     */
+    public void clearPreferredSizeCache()
+    {
+        if (preferredSizes != null)
+        {
+            preferredSizes.clear();
+        }
+    }
+    
+    /**
+     * Create the component tree that will be re-used for all cells
+     */
+    private void createComponent()
+    {
+        component = new RendererPanel();
+        component.setOpaque(false);
+
+        iconLabel = new JLabel();
+        component.add(iconLabel, BorderLayout.WEST);
+
+        container = new ContainerPanel();
+        component.add(container, BorderLayout.CENTER);
+        
+        initialize(container);
+    }
 
     @Override
     public Component getTreeCellRendererComponent(
         JTree tree, Object value, boolean selected, boolean expanded, 
         boolean leaf, int row, boolean hasFocus) 
     {
+        if (component == null)
+        {
+            createComponent();
+        }
         delegate.getTreeCellRendererComponent(
             tree, value, selected, expanded, leaf, row, hasFocus);
-        JPanel component = new JPanel(new BorderLayout(5, 0));
-        component.setOpaque(false);
-
-        JLabel iconLabel = new JLabel();
         iconLabel.setIcon(delegate.getIcon());
-        component.add(iconLabel, BorderLayout.WEST);
-
-        JPanel container = new JPanel(new GridLayout(1,1))
-        {
-            /**
-             * Serial UID
-             */
-            private static final long serialVersionUID = -7852184126192862958L;
 
-            @Override
-            protected void paintComponent(Graphics g) 
-            {
-                super.paintComponent(g);
-                g.setColor(getBackgroundColor());
-                g.fillRect(0, 0, getWidth(), getHeight());
-            }
+        container.highlighted = selected || hasFocus;
+        component.value = value;
         
-            /**
-             * Returns the background color based on selection and focus
-             * 
-             * @return The background color
-             */
-            private Color getBackgroundColor()
-            {
-                if (selected || hasFocus)
-                {
-                    return delegate.getBackgroundSelectionColor();
-                }
-                Color color = delegate.getBackgroundNonSelectionColor();
-                if (color == null)
-                {
-                    return delegate.getBackground();
-                }
-                return color;
-            }
-        };
-        component.add(container, BorderLayout.CENTER);
-        
-        prepare(value, container);
+        update(value, container);
 
         if (selected || hasFocus)
         {
-            container.setBorder(BorderFactory.createLineBorder(
-                delegate.getBorderSelectionColor()));
+            container.setBorder(getSelectionBorder());
             container.setBackground(
                 delegate.getBackgroundSelectionColor());
         }
         else
         {
-            container.setBorder(
-                BorderFactory.createEmptyBorder(1, 1, 1, 1));
+            container.setBorder(emptyBorder);
             container.setBackground(null);
         }
-
         return component;
     }
+    
+    /**
+     * Returns the border for selected cells
+     * 
+     * @return The border
+     */
+    private Border getSelectionBorder()
+    {
+        Color color = delegate.getBorderSelectionColor();
+        if (selectionBorder == null || 
+            (color == null ? 
+                selectionBorderColor != null : 
+                !color.equals(selectionBorderColor)))
+        {
+            selectionBorder = BorderFactory.createLineBorder(color);
+            selectionBorderColor = color;
+        }
+        return selectionBorder;
+    }
+    
+    /**
+     * Will be called once, when the component tree of this renderer is
+     * created. Subclasses may override this method in order to add 
+     * components to the given container, which may then be updated
+     * in {@link #update(Object, JPanel)}.<br>
+     * <br>
+     * The container initially has a <code>GridLayout(1,1)</code>.
+     * 
+     * @param container The target container
+     */
+    protected void initialize(JPanel container)
+    {
+        // Empty default implementation
+    }
+    
+    /**
+     * Will be called in order to update the returned cell renderer 
+     * component for displaying the given object. The given container
+     * is the same for all calls.<br>
+     * <br>
+     * The default implementation removes all components from the 
+     * container, resets its layout to the initial one, and calls 
+     * {@link #prepare(Object, JPanel)}. Subclasses
+     * that override this method in order to update components that have
+     * been created in {@link #initialize(JPanel)} should not call this
+     * implementation.
+     * 
+     * @param nodeObject The tree node object
+     * @param container The target container
+     */
+    protected void update(Object nodeObject, JPanel container)
+    {
+        container.removeAll();
+        if (container.getLayout() != defaultContainerLayout)
+        {
+            container.setLayout(defaultContainerLayout);
+        }
+        prepare(nodeObject, container);
+    }
 
     /**
      * This method will be called in order to prepare the returned cell 
@@ -126,4 +283,97 @@ public abstract class GenericTreeCellRenderer implements TreeCellRenderer
     {
         // Empty default implementation
     }
-}
\ No newline at end of file
+    
+    /**
+     * The panel that is returned as the renderer component. It may
+     * return a cached preferred size for the current value.
+     */
+    private final class RendererPanel extends JPanel
+    {
+        /**
+         * Serial UID
+         */
+        private static final long serialVersionUID = 3866530734592154717L;
+        
+        /**
+         * The value that is currently displayed
+         */
+        private transient Object value;
+        
+        /**
+         * Default constructor
+         */
+        RendererPanel()
+        {
+            super(new BorderLayout(5, 0));
+        }
+        
+        @Override
+        public Dimension getPreferredSize()
+        {
+            if (!cachingPreferredSizes || value == null)
+            {
+                return super.getPreferredSize();
+            }
+            Dimension preferredSize = preferredSizes.get(value);
+            if (preferredSize == null)
+            {
+                preferredSize = super.getPreferredSize();
+                preferredSizes.put(value, preferredSize);
+            }
+            return new Dimension(preferredSize);
+        }
+    }
+    
+    /**
+     * The panel that contains the components of the subclasses, and 
+     * paints the background based on the selection and focus state
+     */
+    private final class ContainerPanel extends JPanel
+    {
+        /**
+         * Serial UID
+         */
+        private static final long serialVersionUID = -7852184126192862958L;
+        
+        /**
+         * Whether the cell is selected or has the focus
+         */
+        private boolean highlighted;
+        
+        /**
+         * Default constructor
+         */
+        ContainerPanel()
+        {
+            super(defaultContainerLayout);
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) 
+        {
+            super.paintComponent(g);
+            g.setColor(getBackgroundColor());
+            g.fillRect(0, 0, getWidth(), getHeight());
+        }
+    
+        /**
+         * Returns the background color based on selection and focus
+         * 
+         * @return The background color
+         */
+        private Color getBackgroundColor()
+        {
+            if (highlighted)
+            {
+                return delegate.getBackgroundSelectionColor();
+            }
+            Color color = delegate.getBackgroundNonSelectionColor();
+            if (color == null)
+            {
+                return delegate.getBackground();
+            }
+            return color;
+        }
+    }
+}
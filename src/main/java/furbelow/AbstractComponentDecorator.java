@@ -19,6 +19,9 @@ import java.awt.event.HierarchyEvent;
 import java.awt.event.HierarchyListener;
 import java.awt.event.HierarchyBoundsListener;
 import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
+import java.awt.event.MouseWheelListener;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
 import java.beans.PropertyChangeEvent;
@@ -47,6 +50,13 @@ import javax.swing.border.LineBorder;
  * not necessarily need to be the same as the decorated component's bounds.
  * The decoration may extend beyond the decorated component bounds, or it may
  * be reduced to a smaller region.  
+ * <p>
+ * Decorations are painted by a single shared host component per layer of
+ * the target's {@link JLayeredPane}, which paints all of that layer's
+ * decorations in one pass.  A decoration's {@link #getPainter() painter} is
+ * only added to the layered pane itself when it needs to receive events
+ * (mouse listeners, a tool tip, a cursor, or focus).  All decorators of a
+ * given component share a single set of listeners on that component.
  */
 // NOTE: OSX 1.6 lacks hierarchy events that w32 sends on layer changes
 
@@ -71,9 +81,8 @@ public abstract class AbstractComponentDecorator {
     
     private Painter painter;
     private JComponent component;
-    private Container parent;
-    private Component layerRoot;
-    private Listener listener;
+    private PainterHost host;
+    private Decorations decorations;
     private int layerOffset;
     private int position;
     private Rectangle bounds;
@@ -103,12 +112,8 @@ public abstract class AbstractComponentDecorator {
         this.layerOffset = layerOffset;
         this.position = position;
         this.bounds = DEFAULT_BOUNDS;
-        parent = c.getParent();
         painter = new Painter();
-        listener = new Listener();
-        component.addHierarchyListener(listener);
-        component.addHierarchyBoundsListener(listener);
-        component.addComponentListener(listener);
+        decorations = Decorations.add(this);
         attach();
     }
 
@@ -146,14 +151,18 @@ public abstract class AbstractComponentDecorator {
     
     /** Use this to change the visibility of the decoration. */
     public void setVisible(boolean visible) {
-        painter.setVisible(visible);
+        if (visible != painter.isVisible()) {
+            painter.setVisible(visible);
+            if (host != null) {
+                host.updateBounds();
+                repaint();
+            }
+        }
     }
 
     protected void attach() {
-        if (layerRoot != null) {
-            layerRoot.removePropertyChangeListener(listener);
-            layerRoot = null;
-        }
+        Component layerRoot = null;
+        PainterHost newHost = null;
         RootPaneContainer rpc = (RootPaneContainer)
             SwingUtilities.getAncestorOfClass(RootPaneContainer.class, component);
         if (rpc != null
@@ -190,42 +199,57 @@ public abstract class AbstractComponentDecorator {
                 }
                 painter.setDecoratedLayer(base);
                 layerRoot = layeredChild;
-                layerRoot.addPropertyChangeListener(listener);
             }
-            lp.add(painter, new Integer(layer), position);
-        }
-        else {
-            // Always detach when the target component's window is null
-            // or is not a suitable container,
-            // otherwise we might prevent GC of the component
-            Container parent = painter.getParent();
-            if (parent != null) {
-                parent.remove(painter);
+            newHost = PainterHost.getHost(lp, layer);
+        }
+        // Always detach when the target component's window is null
+        // or is not a suitable container,
+        // otherwise we might prevent GC of the component
+        if (newHost != host) {
+            if (host != null) {
+                Rectangle b = painter.getBounds();
+                JLayeredPane lp = host.layeredPane;
+                host.remove(this);
+                lp.repaint(b.x, b.y, b.width, b.height);
+            }
+            host = newHost;
+            if (host != null) {
+                host.add(this, position);
             }
         }
+        updatePainterParent();
         // Track size changes in the decorated component's parent
-        if (parent != null) {
-            parent.removeComponentListener(listener);
+        decorations.track(component.getParent(), layerRoot);
+        synch();
+    }
+
+    /** Add the painter to the layered pane only if it needs to receive
+     * events; otherwise the decoration is painted by the shared host alone.
+     */
+    private void updatePainterParent() {
+        Container parent = painter.getParent();
+        if (host != null && painter.isInteractive()) {
+            JLayeredPane lp = host.layeredPane;
+            if (parent != lp || JLayeredPane.getLayer(painter) != host.layer) {
+                lp.add(painter, Integer.valueOf(host.layer), position);
+            }
         }
-        parent = component.getParent();
-        if (parent != null) {
-            parent.addComponentListener(listener);
+        else if (parent != null) {
+            parent.remove(painter);
         }
-        synch();
     }
 
     /** Ensure the size of the decorator matches the current 
      * decoration bounds with appropriate clipping to viewports.
      */
     protected void synch() {
-        Container painterParent = painter.getParent();
-        if (painterParent != null) {
+        if (host != null) {
             Rectangle decorated = getDecorationBounds();
             Rectangle clipRect = clipDecorationBounds(decorated);
 
             Point pt = SwingUtilities.convertPoint(component,
                                                    clipRect.x, clipRect.y, 
-                                                   painterParent);
+                                                   host.layeredPane);
             if (clipRect.width <= 0 || clipRect.height <= 0) {
                 setPainterBounds(-1, -1, 0, 0);
                 setVisible(false);
@@ -234,7 +258,6 @@ public abstract class AbstractComponentDecorator {
                 setPainterBounds(pt.x, pt.y, clipRect.width, clipRect.height);
                 setVisible(true);
             }
-            painterParent.repaint();
         }
     }
 
@@ -276,7 +299,7 @@ public abstract class AbstractComponentDecorator {
         else if (component.getParent() != null) {
             // Only apply the clip if it is actually smaller than the 
             // component's visible area
-            if (component != painter.getParent()
+            if (host != null && component != host.layeredPane
                 && (visible.x > 0 || visible.y > 0
                     || visible.width < component.getWidth()
                     || visible.height < component.getHeight())) {
@@ -332,7 +355,15 @@ public abstract class AbstractComponentDecorator {
     }
     
     protected void setPainterBounds(int x, int y, int w, int h) {
+        Rectangle old = painter.getBounds();
         painter.setBounds(x, y, w, h);
+        if (host != null) {
+            host.updateBounds();
+            if (old.x != x || old.y != y 
+                || old.width != w || old.height != h) {
+                host.layeredPane.repaint(old.x, old.y, old.width, old.height);
+            }
+        }
         repaint();
     }
     
@@ -353,9 +384,9 @@ public abstract class AbstractComponentDecorator {
 
     /** Force a refresh of the underlying component and its decoration. */
     public void repaint() {
-        JLayeredPane p = (JLayeredPane)painter.getParent();
-        if (p != null) {
-            p.repaint(painter.getBounds());
+        PainterHost current = host;
+        if (current != null) {
+            current.layeredPane.repaint(painter.getBounds());
         }
     }
     
@@ -369,22 +400,17 @@ public abstract class AbstractComponentDecorator {
             return;
         }
 
-        component.removeHierarchyListener(listener);
-        component.removeHierarchyBoundsListener(listener);
-        component.removeComponentListener(listener);
-        if (parent != null) {
-            parent.removeComponentListener(listener);
-            parent = null;
-        }
-        if (layerRoot != null) {
-            layerRoot.removePropertyChangeListener(listener);
-            layerRoot = null;
+        decorations.remove(this);
+        if (host != null) {
+            Rectangle bounds = painter.getBounds();
+            JLayeredPane lp = host.layeredPane;
+            host.remove(this);
+            host = null;
+            lp.repaint(bounds.x, bounds.y, bounds.width, bounds.height);
         }
         Container painterParent = painter.getParent();
         if (painterParent != null) {
-            Rectangle bounds = painter.getBounds();
             painterParent.remove(painter);
-            painterParent.repaint(bounds.x, bounds.y, bounds.width, bounds.height);
         }
         component.repaint();
         component = null;
@@ -450,6 +476,7 @@ public abstract class AbstractComponentDecorator {
                 || oldCursor != null && !oldCursor.equals(cursor)) {
                 this.cursor = cursor;
                 super.setCursor(cursor);
+                interactionChanged();
             }
         }
 
@@ -460,10 +487,70 @@ public abstract class AbstractComponentDecorator {
             return cursor != null ? cursor : component.getCursor();
         }
 
-        /** Delegate to the containing decorator to perform the paint.
+        public void setFocusable(boolean focusable) {
+            super.setFocusable(focusable);
+            interactionChanged();
+        }
+        public void setToolTipText(String text) {
+            super.setToolTipText(text);
+            interactionChanged();
+        }
+        public void addMouseListener(MouseListener l) {
+            super.addMouseListener(l);
+            interactionChanged();
+        }
+        public void removeMouseListener(MouseListener l) {
+            super.removeMouseListener(l);
+            interactionChanged();
+        }
+        public void addMouseMotionListener(MouseMotionListener l) {
+            super.addMouseMotionListener(l);
+            interactionChanged();
+        }
+        public void removeMouseMotionListener(MouseMotionListener l) {
+            super.removeMouseMotionListener(l);
+            interactionChanged();
+        }
+        public void addMouseWheelListener(MouseWheelListener l) {
+            super.addMouseWheelListener(l);
+            interactionChanged();
+        }
+        public void removeMouseWheelListener(MouseWheelListener l) {
+            super.removeMouseWheelListener(l);
+            interactionChanged();
+        }
+        /** Returns whether this painter needs to be in the layered pane
+         * in order to receive events, show a tooltip or a cursor.
          */
+        boolean isInteractive() {
+            return cursor != null || isFocusable()
+                || getToolTipText() != null
+                || getMouseListeners().length > 0
+                || getMouseMotionListeners().length > 0
+                || getMouseWheelListeners().length > 0;
+        }
+        private void interactionChanged() {
+            // Ignore changes made while the painter is being constructed
+            if (painter == this) {
+                updatePainterParent();
+            }
+        }
+        /** The painter itself may not be displayable, so forward repaints
+         * to the layered pane.
+         */
+        public void repaint(long tm, int x, int y, int w, int h) {
+            PainterHost current = host;
+            if (current != null) {
+                current.layeredPane.repaint(tm, getX() + x, getY() + y, w, h);
+            }
+        }
+        /** Decorations are painted by the shared {@link PainterHost}. */
         public void paintComponent(Graphics g) {
-            if (!component.isShowing())
+        }
+        /** Delegate to the containing decorator to perform the paint.
+         */
+        void paintDecoration(Graphics g) {
+            if (component == null || !component.isShowing())
                 return;
             Graphics g2 = g.create();
             g2.translate(-originOffset.x, -originOffset.y);
@@ -606,16 +693,23 @@ public abstract class AbstractComponentDecorator {
             List painters = new ArrayList();
             List components = new ArrayList();
             for (int i=kids.length-1;i >=0; i--) {
-                if (kids[i] instanceof Painter) {
-                    Painter p = (Painter)kids[i];
-                    if (p.isBackgroundDecoration() 
-                        && p.getDecoratedLayer() == layer) {
-                        painters.add(p);
-                        if (p.isShowing()) {
-                            area.add(new Area(p.getBounds()));
+                if (kids[i] instanceof PainterHost) {
+                    List decorators = ((PainterHost)kids[i]).decorators;
+                    for (int j=0;j < decorators.size();j++) {
+                        Painter p = ((AbstractComponentDecorator)
+                                     decorators.get(j)).painter;
+                        if (p.isBackgroundDecoration() 
+                            && p.getDecoratedLayer() == layer) {
+                            painters.add(p);
+                            if (p.isShowing() && p.isVisible()) {
+                                area.add(new Area(p.getBounds()));
+                            }
                         }
                     }
                 }
+                else if (kids[i] instanceof Painter) {
+                    // Event-only painters don't paint anything
+                }
                 else if (lp.getLayer(kids[i]) == layer
                          && kids[i] instanceof JComponent) {
                     components.add(kids[i]);
@@ -642,8 +736,10 @@ public abstract class AbstractComponentDecorator {
             // Paint the bg decorators
             for (Iterator i=painters.iterator();i.hasNext();) {
                 Painter p = (Painter)i.next();
-                if (p.isShowing()) {
-                    p.paint(g.create(p.getX(), p.getY(), p.getWidth(), p.getHeight()));
+                if (p.isShowing() && p.isVisible()) {
+                    Graphics g2 = g.create(p.getX(), p.getY(), p.getWidth(), p.getHeight());
+                    p.paintDecoration(g2);
+                    g2.dispose();
                 }
             }
             // Paint foreground for the area
@@ -664,17 +760,191 @@ public abstract class AbstractComponentDecorator {
         }
     }
 
-    /** Tracks changes to component configuration. */
-    private final class Listener extends ComponentAdapter 
+    /** Paints all decorations within one layer of a layered pane, in
+     * z-order, clipped to the area being repainted.  There is at most one
+     * host per layer, so the number of decorations doesn't affect the number
+     * of children in the layered pane.  The host bounds cover the visible
+     * decorations, and it never contains any points, so it is transparent
+     * to mouse events and cursors.
+     */
+    private static final class PainterHost extends JComponent {
+        private static final long serialVersionUID = 1L;
+        private static String key(int layer) {
+            return "painterHost for layer " + layer;
+        }
+        /** Returns the host for the given layer, creating it if needed. */
+        static PainterHost getHost(JLayeredPane lp, int layer) {
+            PainterHost host = (PainterHost)lp.getClientProperty(key(layer));
+            if (host == null) {
+                host = new PainterHost(lp, layer);
+                lp.putClientProperty(key(layer), host);
+                lp.add(host, Integer.valueOf(layer), TOP);
+            }
+            return host;
+        }
+        private final JLayeredPane layeredPane;
+        private final int layer;
+        /** Decorators, from bottom to top. */
+        private final List decorators = new ArrayList();
+        private final Rectangle tmp = new Rectangle();
+        private PainterHost(JLayeredPane lp, int layer) {
+            this.layeredPane = lp;
+            this.layer = layer;
+            setFocusable(false);
+            setBounds(0, 0, 0, 0);
+        }
+        void add(AbstractComponentDecorator d, int position) {
+            if (position == TOP) {
+                decorators.add(d);
+            }
+            else {
+                decorators.add(0, d);
+            }
+            updateBounds();
+        }
+        void remove(AbstractComponentDecorator d) {
+            decorators.remove(d);
+            if (decorators.size() == 0) {
+                layeredPane.remove(this);
+                layeredPane.putClientProperty(key(layer), null);
+            }
+            else {
+                updateBounds();
+            }
+        }
+        /** Set the bounds to the union of all visible decorations. */
+        void updateBounds() {
+            Rectangle union = null;
+            for (int i=0;i < decorators.size();i++) {
+                Painter p = ((AbstractComponentDecorator)decorators.get(i)).painter;
+                if (p.isVisible() && p.getWidth() > 0 && p.getHeight() > 0) {
+                    if (union == null) {
+                        union = p.getBounds();
+                    }
+                    else {
+                        union.add(p.getBounds(tmp));
+                    }
+                }
+            }
+            if (union == null) {
+                union = new Rectangle(0, 0, 0, 0);
+            }
+            if (!union.equals(getBounds(tmp))) {
+                setBounds(union);
+            }
+        }
+        public boolean contains(int x, int y) {
+            return false;
+        }
+        /** Paint each visible decoration which intersects the clip. */
+        protected void paintComponent(Graphics g) {
+            Rectangle clip = g.getClipBounds();
+            Object[] list = decorators.toArray();
+            for (int i=0;i < list.length;i++) {
+                Painter p = ((AbstractComponentDecorator)list[i]).painter;
+                if (!p.isVisible() || p.getWidth() <= 0 || p.getHeight() <= 0)
+                    continue;
+                Rectangle r = p.getBounds(tmp);
+                r.translate(-getX(), -getY());
+                if (clip != null && !clip.intersects(r))
+                    continue;
+                Graphics g2 = g.create(r.x, r.y, r.width, r.height);
+                p.paintDecoration(g2);
+                g2.dispose();
+            }
+        }
+        public String toString() {
+            return key(layer) + " on " + layeredPane;
+        }
+    }
+
+    /** Tracks changes to component configuration on behalf of all
+     * decorators of a given component.
+     */
+    private static final class Decorations extends ComponentAdapter 
         implements HierarchyListener, HierarchyBoundsListener,
                    PropertyChangeListener {
+        private static final String KEY = "decorations";
+        /** Register the given decorator with the shared listener of its
+         * component, creating the listener if needed.
+         */
+        static Decorations add(AbstractComponentDecorator d) {
+            JComponent c = d.getComponent();
+            Decorations ds = (Decorations)c.getClientProperty(KEY);
+            if (ds == null) {
+                ds = new Decorations(c);
+                c.putClientProperty(KEY, ds);
+                c.addHierarchyListener(ds);
+                c.addHierarchyBoundsListener(ds);
+                c.addComponentListener(ds);
+            }
+            ds.decorators.add(d);
+            return ds;
+        }
+        private final JComponent component;
+        private final List decorators = new ArrayList();
+        private Container parent;
+        private Component layerRoot;
+        private Decorations(JComponent c) {
+            this.component = c;
+        }
+        void remove(AbstractComponentDecorator d) {
+            decorators.remove(d);
+            if (decorators.size() == 0) {
+                component.removeHierarchyListener(this);
+                component.removeHierarchyBoundsListener(this);
+                component.removeComponentListener(this);
+                track(null, null);
+                component.putClientProperty(KEY, null);
+            }
+        }
+        /** Track size changes in the component's parent and layer
+         * changes of the layered pane child containing the component.
+         */
+        void track(Container parent, Component layerRoot) {
+            if (parent != this.parent) {
+                if (this.parent != null) {
+                    this.parent.removeComponentListener(this);
+                }
+                this.parent = parent;
+                if (parent != null) {
+                    parent.addComponentListener(this);
+                }
+            }
+            if (layerRoot != this.layerRoot) {
+                if (this.layerRoot != null) {
+                    this.layerRoot.removePropertyChangeListener(this);
+                }
+                this.layerRoot = layerRoot;
+                if (layerRoot != null) {
+                    layerRoot.addPropertyChangeListener(this);
+                }
+            }
+        }
+        private AbstractComponentDecorator[] getDecorators() {
+            return (AbstractComponentDecorator[])decorators.toArray(new AbstractComponentDecorator[decorators.size()]);
+        }
         // NOTE: OSX (1.6) doesn't generate these the same as w32
         public void hierarchyChanged(HierarchyEvent e) {
             if ((e.getChangeFlags() & HierarchyEvent.PARENT_CHANGED) != 0) {
-                attach();
+                AbstractComponentDecorator[] ds = getDecorators();
+                for (int i=0;i < ds.length;i++) {
+                    ds[i].attach();
+                }
+            }
+        }
+        private void synch() {
+            AbstractComponentDecorator[] ds = getDecorators();
+            for (int i=0;i < ds.length;i++) {
+                ds[i].synch();
+            }
+        }
+        private void setVisible(boolean visible) {
+            AbstractComponentDecorator[] ds = getDecorators();
+            for (int i=0;i < ds.length;i++) {
+                ds[i].setVisible(visible);
             }
         }
-
         public void ancestorResized(HierarchyEvent e) {
             synch();
         }
@@ -683,7 +953,10 @@ public abstract class AbstractComponentDecorator {
         }
         public void propertyChange(PropertyChangeEvent e) {
             if (JLayeredPane.LAYER_PROPERTY.equals(e.getPropertyName())) {
-                attach();
+                AbstractComponentDecorator[] ds = getDecorators();
+                for (int i=0;i < ds.length;i++) {
+                    ds[i].attach();
+                }
             }
         }
         public void componentMoved(ComponentEvent e) {
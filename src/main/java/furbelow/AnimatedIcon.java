@@ -95,8 +95,9 @@ public class AnimatedIcon implements Icon {
                     }
                 }
                 if (is != null) {
+                    // Only the block structure is needed to count frames
                     GifDecoder decoder = new GifDecoder();
-                    decoder.read(is);
+                    decoder.probe(is);
                     boolean animated = decoder.getFrameCount() > 1;
                     decoded.put(image, Boolean.valueOf(animated));
                     return animated;
@@ -49,6 +49,10 @@ public class ComponentIcon implements Icon {
         this.component = c;
         this.includeBorder = includeBorder;
     }
+    /** Returns whether the component's border is included. */
+    public boolean isBorderIncluded() {
+        return includeBorder;
+    }
     public int getIconHeight() {
         int h = component.getHeight();
         if (h != 0 && !includeBorder) {
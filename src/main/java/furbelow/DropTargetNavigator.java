@@ -29,6 +29,7 @@ import java.awt.dnd.DragSourceDropEvent;
 import java.awt.dnd.DragSourceEvent;
 import java.awt.dnd.DragSourceListener;
 import java.awt.dnd.DragSourceMotionListener;
+import java.awt.event.AWTEventListener;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
@@ -124,7 +125,9 @@ public class DropTargetNavigator implements DragSourceListener, DragSourceMotion
     }
     private DragSource dragSource;
     private Map restoreMap = new HashMap();
-    private Map timers = new WeakHashMap();
+    private NavigationTimer timer = new NavigationTimer();
+    private TargetIndex index;
+    private boolean indexUnavailable;
     private DropTrackingQueue queue;
     public DropTargetNavigator() {
         this(DragSource.getDefaultDragSource());
@@ -211,9 +214,33 @@ public class DropTargetNavigator implements DragSourceListener, DragSourceMotion
         }
         return target;
     }
+    /** Returns the index of drop targets for the current drag, creating
+     * it if needed.  Returns null if the index can't track component
+     * changes (e.g. due to security restrictions).
+     */
+    private TargetIndex getIndex() {
+        if (index == null && !indexUnavailable) {
+            try {
+                index = new TargetIndex();
+            }
+            catch(SecurityException e) {
+                indexUnavailable = true;
+            }
+        }
+        return index;
+    }
+    /** Discard the index of drop targets once the drag leaves. */
+    private void endDrag() {
+        if (index != null) {
+            index.dispose();
+            index = null;
+        }
+    }
     private void update(Point screen) {
         if (screen != null) {
-            Map comps = getComponents(screen);
+            TargetIndex targets = getIndex();
+            Map comps = targets != null
+                ? targets.getComponents(screen) : getComponents(screen);
             restore(comps.keySet());
             for (Iterator i=comps.keySet().iterator();i.hasNext();) {
                 Component c = (Component)i.next();
@@ -245,17 +272,7 @@ public class DropTargetNavigator implements DragSourceListener, DragSourceMotion
         }
         Navigator navigator = getNavigator(c);
         if (navigator != null) {
-            NavigationTimer timer = (NavigationTimer)timers.get(c);
-            if (timer != null) {
-                if (!timer.update(where)) {
-                    timer = null;
-                }
-            }
-            else {
-                timer = new NavigationTimer(c, where);
-                timers.put(c, timer);
-                timer.start();
-            }
+            timer.update(c, where);
         }
     }
     
@@ -336,6 +353,7 @@ public class DropTargetNavigator implements DragSourceListener, DragSourceMotion
             restoreMap.clear();
         }
         restore(Collections.EMPTY_LIST);
+        endDrag();
     }
     
     private Navigator getNavigator(Component c) {
@@ -371,9 +389,7 @@ public class DropTargetNavigator implements DragSourceListener, DragSourceMotion
                 Runnable action = (Runnable)restoreMap.get(c);
                 action.run();
                 i.remove();
-                NavigationTimer timer = (NavigationTimer)timers.get(c);
-                if (timer != null)
-                    timer.dispose();
+                timer.cancel(c);
             }
         }
     }
@@ -381,6 +397,7 @@ public class DropTargetNavigator implements DragSourceListener, DragSourceMotion
         dragSource.removeDragSourceListener(this);
         dragSource.removeDragSourceMotionListener(this);
         dragSource = null;
+        endDrag();
         if (queue != null) {
             queue.dispose();
             queue = null;
@@ -398,6 +415,10 @@ public class DropTargetNavigator implements DragSourceListener, DragSourceMotion
                     Point loc = me.getComponent().getLocationOnScreen();
                     loc.translate(me.getX(), me.getY());
                     update(loc);
+                    if (me.getID() == MouseEvent.MOUSE_EXITED
+                        || me.getID() == MouseEvent.MOUSE_RELEASED) {
+                        endDrag();
+                    }
                 }
             }
             super.dispatchEvent(e);
@@ -407,39 +428,325 @@ public class DropTargetNavigator implements DragSourceListener, DragSourceMotion
             catch(EmptyStackException e) { }
         }
     }
-    private class NavigationTimer extends Timer implements ActionListener {
-        private Component component;
+    /** A navigation waiting for the cursor to rest over its component. */
+    private static class Navigation {
         private Point origin, current;
         private Runnable undo;
-        public NavigationTimer(Component c, Point where) {
+        private long due;
+    }
+    /** Single timer for all pending navigations, which fires when the
+     * earliest of them is due.
+     */
+    private class NavigationTimer extends Timer implements ActionListener {
+        private Map pending = new WeakHashMap();
+        public NavigationTimer() {
             super(navigationDelay, null);
-            this.component = c;
-            this.origin = current = where;
-            this.undo = (Runnable)restoreMap.get(c);
             addActionListener(this);
             setRepeats(false);
         }
-        public boolean update(Point current) {
-            this.current = current;
-            int dx = Math.abs(current.x - origin.x);
-            int dy = Math.abs(current.y - origin.y);
-            if (dx > 5 || dy > 5) {
-                dispose();
-                return false;
+        /** Start a navigation of the given component or update the
+         * location of its pending navigation.  A pending navigation is
+         * canceled if the cursor moves too far. 
+         */
+        public void update(Component c, Point where) {
+            Navigation n = (Navigation)pending.get(c);
+            if (n != null) {
+                n.current = where;
+                int dx = Math.abs(where.x - n.origin.x);
+                int dy = Math.abs(where.y - n.origin.y);
+                if (dx > 5 || dy > 5) {
+                    cancel(c);
+                }
+            }
+            else {
+                n = new Navigation();
+                n.origin = n.current = where;
+                n.undo = (Runnable)restoreMap.get(c);
+                n.due = System.currentTimeMillis() + getNavigationDelay();
+                pending.put(c, n);
+                schedule();
             }
-            return true;
         }
-        public void dispose() {
-            stop();
-            timers.remove(component);
+        public void cancel(Component c) {
+            if (pending.remove(c) != null) {
+                schedule();
+            }
+        }
+        private void schedule() {
+            long next = Long.MAX_VALUE;
+            for (Iterator i=pending.values().iterator();i.hasNext();) {
+                next = Math.min(next, ((Navigation)i.next()).due);
+            }
+            if (next == Long.MAX_VALUE) {
+                stop();
+            }
+            else {
+                long delay = next - System.currentTimeMillis();
+                setInitialDelay((int)Math.max(0, delay));
+                restart();
+            }
         }
         public void actionPerformed(ActionEvent e) {
-            Navigator navigator = getNavigator(component);
-            Runnable r = navigator.navigate(component, current, undo);
-            if (r != null) {
-                restoreMap.put(component, r);
+            long now = System.currentTimeMillis();
+            Map due = new HashMap();
+            for (Iterator i=pending.entrySet().iterator();i.hasNext();) {
+                Map.Entry entry = (Map.Entry)i.next();
+                Navigation n = (Navigation)entry.getValue();
+                if (n.due <= now) {
+                    due.put(entry.getKey(), n);
+                    i.remove();
+                }
+            }
+            for (Iterator i=due.entrySet().iterator();i.hasNext();) {
+                Map.Entry entry = (Map.Entry)i.next();
+                Component component = (Component)entry.getKey();
+                Navigation n = (Navigation)entry.getValue();
+                Navigator navigator = getNavigator(component);
+                Runnable r = navigator.navigate(component, n.current, n.undo);
+                if (r != null) {
+                    restoreMap.put(component, r);
+                }
+            }
+            schedule();
+        }
+    }
+    /** Index of the components of all windows for the duration of a
+     * drag.  Each window's components are kept in a grid of their visible
+     * bounds, so finding the drop target under the cursor doesn't require
+     * walking the hierarchy on every drag event.  A window's grid is 
+     * rebuilt lazily after any component or container change within it.
+     */
+    private class TargetIndex implements AWTEventListener {
+        private static final long EVENT_MASK = AWTEvent.COMPONENT_EVENT_MASK
+            | AWTEvent.CONTAINER_EVENT_MASK | AWTEvent.WINDOW_EVENT_MASK;
+        private List windows;
+        private Map grids = new HashMap();
+        public TargetIndex() {
+            Toolkit.getDefaultToolkit().addAWTEventListener(this, EVENT_MASK);
+        }
+        public void dispose() {
+            Toolkit.getDefaultToolkit().removeAWTEventListener(this);
+        }
+        public void eventDispatched(AWTEvent e) {
+            Object src = e.getSource();
+            if (src instanceof Window) {
+                // Windows may have been shown, hidden or moved
+                windows = null;
+                grids.remove(src);
+            }
+            else if (src instanceof Component) {
+                Window w = SwingUtilities.getWindowAncestor((Component)src);
+                if (w != null) {
+                    grids.remove(w);
+                }
+            }
+        }
+        /** Equivalent to {@link DropTargetNavigator#getComponents(Point)}, 
+         * except that windows which aren't showing are ignored.
+         */
+        public Map getComponents(Point screen) {
+            if (windows == null) {
+                windows = getWindows(null);
+            }
+            Map comps = new HashMap();
+            for (Iterator i=windows.iterator();i.hasNext();) {
+                Window w = (Window)i.next();
+                if (!w.isShowing())
+                    continue;
+                TargetGrid grid = (TargetGrid)grids.get(w);
+                if (grid == null) {
+                    grid = new TargetGrid(w);
+                    grids.put(w, grid);
+                }
+                int x = screen.x - w.getX();
+                int y = screen.y - w.getY();
+                int idx = grid.find(x, y);
+                if (idx != -1) {
+                    comps.put(grid.targets[idx], 
+                              new Point(x - grid.targetX[idx], 
+                                        y - grid.targetY[idx]));
+                }
+            }
+            return comps;
+        }
+    }
+    /** Visible bounds of a window's components, in window coordinates,
+     * stored in hierarchy order and bucketed into a uniform grid.  Lookup
+     * gives the same result as {@link #findComponentAt}.
+     */
+    private static class TargetGrid {
+        private static final int CELL_SIZE = 128;
+        private int count;
+        // Number of entries within the content pane, which come first
+        private int primaryCount;
+        private Component[] targets = new Component[64];
+        private int[] targetX = new int[64];
+        private int[] targetY = new int[64];
+        private Rectangle[] bounds = new Rectangle[64];
+        // The component of each entry, which may differ from the target,
+        // and its location, to ask it whether it contains a point
+        private Component[] components = new Component[64];
+        private int[] componentX = new int[64];
+        private int[] componentY = new int[64];
+        // Index past the last descendant of each entry
+        private int[] end = new int[64];
+        private int columns, rows;
+        private int[][] cells;
+        private int[] cellCounts;
+
+        public TargetGrid(Container w) {
+            RootPaneContainer rpc = findRootPaneContainer(w);
+            Container contentPane = null;
+            if (rpc != null) {
+                contentPane = rpc.getContentPane();
+                Point p = SwingUtilities.convertPoint(contentPane, 0, 0, w);
+                Rectangle clip = new Rectangle(p.x, p.y, contentPane.getWidth(), 
+                                               contentPane.getHeight());
+                Component tabs = SwingUtilities.getAncestorOfClass(JTabbedPane.class, contentPane);
+                Point tp = tabs != null ? SwingUtilities.convertPoint(tabs, 0, 0, w) : null;
+                add(contentPane, p.x, p.y, clip, tabs, tp, null);
+            }
+            primaryCount = count;
+            add(w, 0, 0, new Rectangle(0, 0, w.getWidth(), w.getHeight()), 
+                null, null, contentPane);
+            columns = Math.max(1, (w.getWidth() + CELL_SIZE - 1) / CELL_SIZE);
+            rows = Math.max(1, (w.getHeight() + CELL_SIZE - 1) / CELL_SIZE);
+            cells = new int[columns * rows][];
+            cellCounts = new int[columns * rows];
+            for (int i=0;i < count;i++) {
+                Rectangle r = bounds[i];
+                int c0 = Math.max(0, r.x / CELL_SIZE);
+                int c1 = Math.min(columns-1, (r.x + r.width - 1) / CELL_SIZE);
+                int r0 = Math.max(0, r.y / CELL_SIZE);
+                int r1 = Math.min(rows-1, (r.y + r.height - 1) / CELL_SIZE);
+                for (int row=r0;row <= r1;row++) {
+                    for (int col=c0;col <= c1;col++) {
+                        addToCell(row * columns + col, i);
+                    }
+                }
+            }
+        }
+
+        /** Add the given component and its visible descendants, in the
+         * same order as {@link SwingUtilities#getDeepestComponentAt} 
+         * visits them.  The tabbed pane is the nearest enclosing 
+         * {@link JTabbedPane}, which becomes the target of all of its
+         * descendants. 
+         */
+        private void add(Component c, int x, int y, Rectangle clip,
+                         Component tabs, Point tabsLocation, Component skip) {
+            int idx = count++;
+            ensureCapacity(count);
+            targets[idx] = tabs != null ? tabs : c;
+            targetX[idx] = tabs != null ? tabsLocation.x : x;
+            targetY[idx] = tabs != null ? tabsLocation.y : y;
+            bounds[idx] = clip;
+            components[idx] = c;
+            componentX[idx] = x;
+            componentY[idx] = y;
+            if (c instanceof Container) {
+                if (c instanceof JTabbedPane) {
+                    tabs = c;
+                    tabsLocation = new Point(x, y);
+                }
+                Component[] kids = ((Container)c).getComponents();
+                for (int i=0;i < kids.length;i++) {
+                    Component kid = kids[i];
+                    if (kid == skip || !kid.isVisible())
+                        continue;
+                    int kx = x + kid.getX();
+                    int ky = y + kid.getY();
+                    Rectangle kclip = clip.intersection(new Rectangle(kx, ky, kid.getWidth(), kid.getHeight()));
+                    if (kclip.isEmpty())
+                        continue;
+                    add(kid, kx, ky, kclip, tabs, tabsLocation, skip);
+                }
+            }
+            end[idx] = count;
+        }
+
+        private void ensureCapacity(int size) {
+            if (size > targets.length) {
+                int length = Math.max(size, targets.length * 2);
+                Component[] newTargets = new Component[length];
+                System.arraycopy(targets, 0, newTargets, 0, targets.length);
+                targets = newTargets;
+                Rectangle[] newBounds = new Rectangle[length];
+                System.arraycopy(bounds, 0, newBounds, 0, bounds.length);
+                bounds = newBounds;
+                Component[] newComponents = new Component[length];
+                System.arraycopy(components, 0, newComponents, 0, components.length);
+                components = newComponents;
+                componentX = grow(componentX, length);
+                componentY = grow(componentY, length);
+                targetX = grow(targetX, length);
+                targetY = grow(targetY, length);
+                end = grow(end, length);
+            }
+        }
+
+        private static int[] grow(int[] array, int length) {
+            int[] copy = new int[length];
+            System.arraycopy(array, 0, copy, 0, array.length);
+            return copy;
+        }
+
+        private void addToCell(int cell, int idx) {
+            int[] list = cells[cell];
+            if (list == null) {
+                list = cells[cell] = new int[8];
+            }
+            else if (cellCounts[cell] == list.length) {
+                list = cells[cell] = grow(list, list.length * 2);
+            }
+            list[cellCounts[cell]++] = idx;
+        }
+
+        /** Return the index of the deepest component at the given point,
+         * preferring the content pane, or -1 if there is none.
+         */
+        public int find(int x, int y) {
+            if (x < 0 || y < 0)
+                return -1;
+            int col = x / CELL_SIZE;
+            int row = y / CELL_SIZE;
+            if (col >= columns || row >= rows)
+                return -1;
+            int cell = row * columns + col;
+            int idx = find(cell, x, y, 0, primaryCount);
+            if (idx == -1) {
+                idx = find(cell, x, y, primaryCount, count);
+            }
+            return idx;
+        }
+
+        /** The entries containing the point are the path from the root
+         * to the deepest component, followed by any components obscured by
+         * that path.  Since entries are in hierarchy order, the result is 
+         * the first containing entry that isn't followed by one of its
+         * descendants.  As with {@link Component#contains}, a component
+         * which doesn't contain the point hides its descendants.
+         */
+        private int find(int cell, int x, int y, int from, int to) {
+            int[] list = cells[cell];
+            int size = cellCounts[cell];
+            int last = -1;
+            int skip = -1;
+            for (int i=0;i < size;i++) {
+                int idx = list[i];
+                if (idx < from || idx >= to || idx < skip
+                    || !bounds[idx].contains(x, y))
+                    continue;
+                if (last != -1 && idx >= end[last])
+                    break;
+                if (!components[idx].contains(x - componentX[idx], 
+                                              y - componentY[idx])) {
+                    skip = end[idx];
+                    continue;
+                }
+                last = idx;
             }
-            dispose();
+            return last;
         }
     }
     /** Find the first instance of {@link RootPaneContainer} in the given
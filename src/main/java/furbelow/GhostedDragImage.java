@@ -19,14 +19,22 @@ import java.awt.Dimension;
 import java.awt.Frame;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
 import java.awt.Point;
 import java.awt.Rectangle;
+import java.awt.Transparency;
 import java.awt.Window;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import javax.swing.Icon;
 import javax.swing.JComponent;
 import javax.swing.JLayeredPane;
@@ -40,10 +48,16 @@ import javax.swing.Timer;
  * When the image is no longer needed, invoke {@link #dispose}, which
  * hides the graphic immediately, or {@link #returnToOrigin}, which 
  * moves the image to its original location prior to invoking 
- * {@link #dispose}.
+ * {@link #dispose}.<p>
+ * The translucent image is rendered once and shared by all ghosts of the
+ * same drag source, so moving the ghost only repaints its old and new 
+ * bounds with a single image copy.
  */
 public class GhostedDragImage extends AbstractComponentDecorator {
 
+    /** Most recent translucent rendering for each drag source. */
+    private static final Map ghostImages = new WeakHashMap();
+
     private Icon icon;
     // drag origin, relative to drag source
     private Point origin;
@@ -54,6 +68,7 @@ public class GhostedDragImage extends AbstractComponentDecorator {
     private List ghosts = new ArrayList();
     private Component dragSource;
     private float ghostAlpha = DragHandler.DEFAULT_GHOST_ALPHA;
+    private Image ghostImage;
 
     /** Create a ghosted drag image, using the given icon.
      * @param dragSource source of the drag  
@@ -111,7 +126,11 @@ public class GhostedDragImage extends AbstractComponentDecorator {
 
     /** Set the transparency of the ghosted image. */
     public void setAlpha(float alpha) {
-        ghostAlpha = alpha;
+        if (alpha != ghostAlpha) {
+            ghostAlpha = alpha;
+            ghostImage = null;
+            repaint();
+        }
     }
     
     /** Ensure the decorator cursor matches the drag cursor, or we get
@@ -175,35 +194,121 @@ public class GhostedDragImage extends AbstractComponentDecorator {
     }
     /** Paint the supplied image with transparency. */
     public void paint(Graphics graphics) {
-        Rectangle r = getDecorationBounds();
-        Graphics2D g = (Graphics2D)graphics.create();
+        Image image = getGhostImage();
+        if (image != null) {
+            Rectangle r = getDecorationBounds();
+            graphics.drawImage(image, r.x + CURSOR_SIZE, r.y + CURSOR_SIZE, null);
+        }
+    }
+
+    /** Return the icon rendered with the current transparency, reusing
+     * the image of the previous ghost of the same drag source if it used
+     * the same icon, size and transparency.
+     */
+    private Image getGhostImage() {
+        if (ghostImage == null) {
+            int w = icon.getIconWidth();
+            int h = icon.getIconHeight();
+            if (w <= 0 || h <= 0)
+                return null;
+            synchronized(ghostImages) {
+                GhostImage cached = (GhostImage)ghostImages.get(dragSource);
+                if (cached == null || !cached.matches(icon, ghostAlpha)) {
+                    cached = new GhostImage(icon, ghostAlpha, 
+                                            createGhostImage(w, h));
+                    ghostImages.put(dragSource, cached);
+                }
+                ghostImage = cached.image;
+            }
+        }
+        return ghostImage;
+    }
+
+    /** Render the icon into a translucent image compatible with the
+     * screen, so that it may be accelerated.
+     */
+    private Image createGhostImage(int w, int h) {
+        GraphicsConfiguration gc = getComponent().getGraphicsConfiguration();
+        BufferedImage image = gc != null
+            ? gc.createCompatibleImage(w, h, Transparency.TRANSLUCENT)
+            : new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setFont(getComponent().getFont());
+        g.setColor(getComponent().getForeground());
         g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, ghostAlpha));
-        g.translate(CURSOR_SIZE, CURSOR_SIZE);
-        icon.paintIcon(getPainter(), g, r.x, r.y);
+        icon.paintIcon(getPainter(), g, 0, 0);
         g.dispose();
+        return image;
+    }
+
+    /** A translucent rendering of an icon. */
+    private static class GhostImage {
+        // The icon may refer to the drag source, which is the cache key
+        private Reference icon;
+        private int width, height;
+        private float alpha;
+        private Image image;
+        public GhostImage(Icon icon, float alpha, Image image) {
+            this.icon = new WeakReference(icon);
+            this.width = icon.getIconWidth();
+            this.height = icon.getIconHeight();
+            this.alpha = alpha;
+            this.image = image;
+        }
+        public boolean matches(Icon icon, float alpha) {
+            return this.icon.get() == icon && this.alpha == alpha
+                && width == icon.getIconWidth() && height == icon.getIconHeight();
+        }
     }
 
     private static final int SLIDE_INTERVAL = 1000/24;
+    /** Ghosts currently returning to their origin. */
+    private static final List returning = new ArrayList();
+    /** Shared by all returning ghosts. */
+    private static Timer slideTimer;
     /** Animate the ghosted image returning to its origin. */
     public void returnToOrigin() {
         setCursor(null);
-        final Timer timer = new Timer(SLIDE_INTERVAL, null);
-        timer.addActionListener(new ActionListener() {
-            public void actionPerformed(ActionEvent e) {
-                int dx = (origin.x - location.x)/2;
-                int dy = (origin.y - location.y)/2;
-                if (dx != 0 || dy != 0) {
-                    Point loc = dragSource.getLocationOnScreen();
-                    Point where = new Point(loc.x + location.x + dx - imageOffset.x,
-                                            loc.y + location.y + dy - imageOffset.y);
-                    move(where);
-                }
-                else {
-                    timer.stop();
-                    dispose();
+        if (!returning.contains(this)) {
+            returning.add(this);
+        }
+        if (slideTimer == null) {
+            slideTimer = new Timer(SLIDE_INTERVAL, new ActionListener() {
+                public void actionPerformed(ActionEvent e) {
+                    Object[] ghosts = returning.toArray();
+                    for (int i=0;i < ghosts.length;i++) {
+                        GhostedDragImage ghost = (GhostedDragImage)ghosts[i];
+                        if (!ghost.slide()) {
+                            returning.remove(ghost);
+                        }
+                    }
+                    if (returning.size() == 0) {
+                        slideTimer.stop();
+                    }
                 }
-            }
-        });
-        timer.start();
+            });
+        }
+        if (!slideTimer.isRunning()) {
+            slideTimer.start();
+        }
+    }
+
+    /** Move halfway back to the origin, disposing of the ghost and
+     * returning false once it has arrived.
+     */
+    private boolean slide() {
+        if (getComponent() == null)
+            return false;
+        int dx = (origin.x - location.x)/2;
+        int dy = (origin.y - location.y)/2;
+        if (dx != 0 || dy != 0) {
+            Point loc = dragSource.getLocationOnScreen();
+            Point where = new Point(loc.x + location.x + dx - imageOffset.x,
+                                    loc.y + location.y + dy - imageOffset.y);
+            move(where);
+            return true;
+        }
+        dispose();
+        return false;
     }
 }
\ No newline at end of file
@@ -88,10 +88,12 @@ public class GifDecoder {
     // LZW decoder working arrays
     protected short[] prefix;
     protected byte[] suffix;
-    protected byte[] pixelStack;
+    protected int[] lengths; // length of the string for each code
     protected byte[] pixels;
     protected ArrayList frames; // frames read from current file
     protected int frameCount;
+    protected boolean probing; // skip color tables and image data
+    protected boolean indexedFrames; // keep a single frame indexed
 
     static class GifFrame {
         public GifFrame(BufferedImage im, int del) {
@@ -119,6 +121,21 @@ public class GifDecoder {
         return delay;
     }
 
+    /**
+     * Sets whether the first frame is kept as a
+     * <code>TYPE_BYTE_INDEXED</code> image using the GIF color table,
+     * instead of being expanded to 32-bit pixels. Once a second frame is
+     * read, the first one is expanded, since later frames are composited
+     * over it. The frame is also expanded if it needs an opaque
+     * background around the image.
+     * 
+     * @param indexed
+     *            whether to keep single frames indexed
+     */
+    public void setIndexedFrames(boolean indexed) {
+        indexedFrames = indexed;
+    }
+
     /**
      * Gets the number of frames read from file.
      * 
@@ -195,6 +212,66 @@ public class GifDecoder {
         }
         // copy each source line to the appropriate place in the
         // destination
+        int[] lines = getLines();
+        for (int i = 0; i < ih; i++) {
+            int line = lines[i];
+            if (line < height) {
+                int k = line * width;
+                int dx = k + ix; // start of line in dest
+                int dlim = dx + iw; // end of dest line
+                if ((k + width) < dlim) {
+                    dlim = k + width; // past dest edge
+                }
+                int sx = i * iw; // start of line in source
+                if (transparency) {
+                    while (dx < dlim) {
+                        // map color and insert in destination, leaving
+                        // transparent pixels alone
+                        int c = act[pixels[sx++] & 0xff];
+                        if (c != 0) {
+                            dest[dx] = c;
+                        }
+                        dx++;
+                    }
+                }
+                else {
+                    while (dx < dlim) {
+                        dest[dx++] = act[pixels[sx++] & 0xff];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the current frame's color indices into an indexed image,
+     * which is otherwise filled with the transparent color.
+     */
+    protected void setIndexedPixels() {
+        byte[] dest = ((DataBufferByte)image.getRaster().getDataBuffer())
+                                                                        .getData();
+        if (dest == pixels) {
+            return; // decoded in place
+        }
+        if (ix != 0 || iy != 0 || iw < width || ih < height) {
+            Arrays.fill(dest, (byte)transIndex);
+        }
+        int[] lines = getLines();
+        int n = Math.min(iw, width - ix);
+        for (int i = 0; i < ih && n > 0; i++) {
+            int line = lines[i];
+            if (line < height) {
+                System.arraycopy(pixels, i * iw, dest, line * width + ix, n);
+            }
+        }
+    }
+
+    /**
+     * Returns the destination line for each source line of the current
+     * frame, taking interlacing into account.
+     */
+    protected int[] getLines() {
+        int[] lines = new int[ih];
         int pass = 1;
         int inc = 8;
         int iline = 0;
@@ -219,33 +296,44 @@ public class GifDecoder {
                 line = iline;
                 iline += inc;
             }
-            line += iy;
-            if (line < height) {
-                int k = line * width;
-                int dx = k + ix; // start of line in dest
-                int dlim = dx + iw; // end of dest line
-                if ((k + width) < dlim) {
-                    dlim = k + width; // past dest edge
-                }
-                int sx = i * iw; // start of line in source
-                while (dx < dlim) {
-                    // map color and insert in destination
-                    int index = pixels[sx++] & 0xff;
-                    int c = act[index];
-                    if (c != 0) {
-                        dest[dx] = c;
-                    }
-                    dx++;
-                }
-            }
+            lines[i] = line + iy;
+        }
+        return lines;
+    }
+
+    /**
+     * Replaces an indexed first frame with its 32-bit equivalent, so that
+     * the next frame can be composited over it.
+     */
+    protected void expandFirstFrame() {
+        GifFrame frame = (GifFrame)frames.get(0);
+        if (frame.image.getType() != BufferedImage.TYPE_BYTE_INDEXED) {
+            return;
         }
+        IndexColorModel cm = (IndexColorModel)frame.image.getColorModel();
+        int[] rgbs = new int[256];
+        cm.getRGBs(rgbs);
+        byte[] src = ((DataBufferByte)frame.image.getRaster().getDataBuffer())
+                                                                             .getData();
+        BufferedImage expanded = new BufferedImage(width, height,
+                                                   BufferedImage.TYPE_INT_ARGB_PRE);
+        int[] dest = ((DataBufferInt)expanded.getRaster().getDataBuffer())
+                                                                          .getData();
+        for (int i = 0; i < dest.length; i++) {
+            int c = rgbs[src[i] & 0xff];
+            dest[i] = (c >>> 24) == 0xff ? c : 0;
+        }
+        if (lastImage == frame.image) {
+            lastImage = expanded;
+        }
+        frame.image = expanded;
     }
 
     /**
      * Gets the image contents of frame n.
      * 
      * @return BufferedImage representation of frame, or null if n is
-     *         invalid.
+     *         invalid or the stream was only probed.
      */
     public BufferedImage getFrame(int n) {
         BufferedImage im = null;
@@ -326,6 +414,25 @@ public class GifDecoder {
         return status;
     }
 
+    /**
+     * Reads only the block structure of a GIF image from stream, without
+     * decoding any image data. The frame count, delays, loop count and
+     * frame size are available afterwards, but no frame images.
+     * 
+     * @param is InputStream 
+     *            containing GIF file.
+     * @return read status code (0 = no errors)
+     */
+    public int probe(InputStream is) {
+        probing = true;
+        try {
+            return read(is);
+        }
+        finally {
+            probing = false;
+        }
+    }
+
     /**
      * Reads GIF file from specified file/URL source (URL assumed if
      * name contains ":/" or "file:")
@@ -355,12 +462,14 @@ public class GifDecoder {
 
     /**
      * Decodes LZW image data into pixel array. Adapted from John
-     * Cristy's ImageMagick.
+     * Cristy's ImageMagick. The length of each code's string is kept
+     * in a table, so strings are written directly into the pixel array,
+     * back to front, instead of going through a pixel stack.
      */
     protected void decodeImageData() {
         int NullCode = -1;
         int npix = iw * ih;
-        int available, clear, code_mask, code_size, end_of_information, in_code, old_code, bits, code, count, i, datum, data_size, first, top, bi, pi;
+        int available, clear, code_mask, code_size, end_of_information, in_code, old_code, bits, code, count, datum, data_size, first, bi, pi, len, j;
         if ((pixels == null) || (pixels.length < npix)) {
             pixels = new byte[npix]; // allocate new pixel array
         }
@@ -368,8 +477,8 @@ public class GifDecoder {
             prefix = new short[MaxStackSize];
         if (suffix == null)
             suffix = new byte[MaxStackSize];
-        if (pixelStack == null)
-            pixelStack = new byte[MaxStackSize + 1];
+        if (lengths == null)
+            lengths = new int[MaxStackSize];
         // Initialize GIF data stream decoder.
         data_size = read();
         clear = 1 << data_size;
@@ -381,79 +490,95 @@ public class GifDecoder {
         for (code = 0; code < clear; code++) {
             prefix[code] = 0;
             suffix[code] = (byte)code;
+            lengths[code] = 1;
         }
         // Decode GIF pixel stream.
-        datum = bits = count = first = top = pi = bi = 0;
-        for (i = 0; i < npix;) {
-            if (top == 0) {
-                if (bits < code_size) {
-                    // Load bytes until there are enough bits for a
-                    // code.
-                    if (count == 0) {
-                        // Read a new data block.
-                        count = readBlock();
-                        if (count <= 0)
-                            break;
-                        bi = 0;
-                    }
-                    datum += (block[bi] & 0xff) << bits;
-                    bits += 8;
-                    bi++;
-                    count--;
-                    continue;
-                }
-                // Get the next code.
-                code = datum & code_mask;
-                datum >>= code_size;
-                bits -= code_size;
-                // Interpret the code
-                if ((code > available) || (code == end_of_information))
-                    break;
-                if (code == clear) {
-                    // Reset decoder.
-                    code_size = data_size + 1;
-                    code_mask = (1 << code_size) - 1;
-                    available = clear + 2;
-                    old_code = NullCode;
-                    continue;
-                }
-                if (old_code == NullCode) {
-                    pixelStack[top++] = suffix[code];
-                    old_code = code;
-                    first = code;
-                    continue;
+        datum = bits = count = first = pi = bi = 0;
+        decode: while (pi < npix) {
+            while (bits < code_size) {
+                // Load bytes until there are enough bits for a code.
+                if (count == 0) {
+                    // Read a new data block.
+                    count = readBlock();
+                    if (count <= 0)
+                        break decode;
+                    bi = 0;
                 }
-                in_code = code;
-                if (code == available) {
-                    pixelStack[top++] = (byte)first;
-                    code = old_code;
+                datum += (block[bi] & 0xff) << bits;
+                bits += 8;
+                bi++;
+                count--;
+            }
+            // Get the next code.
+            code = datum & code_mask;
+            datum >>= code_size;
+            bits -= code_size;
+            // Interpret the code
+            if ((code > available) || (code == end_of_information))
+                break;
+            if (code == clear) {
+                // Reset decoder.
+                code_size = data_size + 1;
+                code_mask = (1 << code_size) - 1;
+                available = clear + 2;
+                old_code = NullCode;
+                continue;
+            }
+            if (old_code == NullCode) {
+                pixels[pi++] = suffix[code];
+                old_code = code;
+                first = code;
+                continue;
+            }
+            // Stop once the string table is full
+            if (available >= MaxStackSize)
+                break;
+            in_code = code;
+            if (code == available) {
+                // The previous string followed by its first pixel
+                len = lengths[old_code] + 1;
+                if (pi + len - 1 < npix) {
+                    pixels[pi + len - 1] = (byte)first;
                 }
-                while (code > clear) {
-                    pixelStack[top++] = suffix[code];
+                code = old_code;
+                j = len - 2;
+            }
+            else {
+                len = lengths[code];
+                j = len - 1;
+            }
+            // Write the string back to front
+            if (pi + len <= npix) {
+                for (; j > 0; j--) {
+                    pixels[pi + j] = suffix[code];
                     code = prefix[code];
                 }
-                first = suffix[code] & 0xff;
-                // Add a new string to the string table,
-                if (available >= MaxStackSize)
-                    break;
-                pixelStack[top++] = (byte)first;
-                prefix[available] = (short)old_code;
-                suffix[available] = (byte)first;
-                available++;
-                if (((available & code_mask) == 0)
-                    && (available < MaxStackSize)) {
-                    code_size++;
-                    code_mask += available;
+            }
+            else {
+                for (; j > 0; j--) {
+                    if (pi + j < npix) {
+                        pixels[pi + j] = suffix[code];
+                    }
+                    code = prefix[code];
                 }
-                old_code = in_code;
             }
-            // Pop a pixel off the pixel stack.
-            top--;
-            pixels[pi++] = pixelStack[top];
-            i++;
+            first = suffix[code] & 0xff;
+            pixels[pi] = (byte)first;
+            pi += len;
+            // Add a new string to the string table,
+            prefix[available] = (short)old_code;
+            suffix[available] = (byte)first;
+            lengths[available] = lengths[old_code] + 1;
+            available++;
+            if (((available & code_mask) == 0)
+                && (available < MaxStackSize)) {
+                code_size++;
+                code_mask += available;
+            }
+            old_code = in_code;
         }
-        for (i = pi; i < npix; i++) {
-            pixels[i] = 0; // clear missing pixels
+        if (pi < npix) {
+            Arrays.fill(pixels, pi, npix, (byte)0); // clear missing pixels
         }
     }
 
@@ -626,6 +751,10 @@ public class GifDecoder {
         }
         readLSD();
         if (gctFlag && !err()) {
+            if (probing) {
+                skipBytes(3 * gctSize);
+                return;
+            }
             gct = readColorTable(gctSize);
             bgColor = gct[bgIndex];
         }
@@ -645,6 +774,10 @@ public class GifDecoder {
         // 3 - sort flag
         // 4-5 - reserved
         lctSize = 2 << (packed & 7); // 6-8 - local color table size
+        if (probing) {
+            probeImage();
+            return;
+        }
         if (lctFlag) {
             lct = readColorTable(lctSize); // read table
             act = lct; // make local table active
@@ -665,15 +798,38 @@ public class GifDecoder {
         }
         if (err())
             return;
+        boolean covered = ix == 0 && iy == 0 && iw >= width && ih >= height;
+        boolean indexed = indexedFrames && frameCount == 0
+            && (transparency || covered);
+        byte[] buffer = pixels;
+        if (indexed) {
+            image = createIndexedImage();
+            if (!interlace && covered && iw == width && ih == height) {
+                // decode straight into the frame's raster
+                pixels = ((DataBufferByte)image.getRaster().getDataBuffer())
+                                                                           .getData();
+            }
+        }
         decodeImageData(); // decode pixel data
         skip();
-        if (err())
+        if (err()) {
+            pixels = buffer;
             return;
+        }
         frameCount++;
-        // create new image to receive frame data
-        image = new BufferedImage(width, height,
-                                  BufferedImage.TYPE_INT_ARGB_PRE);
-        setPixels(); // transfer pixel data to image
+        if (indexed) {
+            setIndexedPixels(); // transfer indices to image
+            pixels = buffer;
+        }
+        else {
+            if (frameCount == 2) {
+                expandFirstFrame();
+            }
+            // create new image to receive frame data
+            image = new BufferedImage(width, height,
+                                      BufferedImage.TYPE_INT_ARGB_PRE);
+            setPixels(); // transfer pixel data to image
+        }
         frames.add(new GifFrame(image, delay)); // add image to frame
         // list
         if (transparency) {
@@ -682,6 +838,40 @@ public class GifDecoder {
         resetFrame();
     }
 
+    /**
+     * Skips the color table and data of the next frame image, recording
+     * only its delay
+     */
+    protected void probeImage() {
+        if (lctFlag) {
+            skipBytes(3 * lctSize);
+        }
+        else if (!gctFlag) {
+            status = STATUS_FORMAT_ERROR; // no color table defined
+        }
+        if (err())
+            return;
+        read(); // LZW minimum code size
+        skip(); // image data sub-blocks
+        if (err())
+            return;
+        frameCount++;
+        frames.add(new GifFrame(null, delay));
+        resetFrame();
+    }
+
+    /**
+     * Creates an indexed image for the current frame, using the active
+     * color table
+     */
+    protected BufferedImage createIndexedImage() {
+        IndexColorModel cm = new IndexColorModel(8, 256, act, 0, true, 
+                                                 transparency ? transIndex : -1,
+                                                 DataBuffer.TYPE_BYTE);
+        return new BufferedImage(width, height, 
+                                 BufferedImage.TYPE_BYTE_INDEXED, cm);
+    }
+
     /**
      * Reads Logical Screen Descriptor
      */
@@ -736,6 +926,28 @@ public class GifDecoder {
         lct = null;
     }
 
+    /**
+     * Skips the given number of bytes from the input stream.
+     */
+    protected void skipBytes(int n) {
+        try {
+            while (n > 0) {
+                long count = in.skip(n);
+                if (count <= 0) {
+                    if (in.read() == -1)
+                        break;
+                    count = 1;
+                }
+                n -= count;
+            }
+        }
+        catch (IOException e) {
+        }
+        if (n > 0) {
+            status = STATUS_FORMAT_ERROR;
+        }
+    }
+
     /**
      * Skips variable length blocks up to and including next zero length
      * block.
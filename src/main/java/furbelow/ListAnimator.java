@@ -20,24 +20,23 @@ import java.awt.Font;
 import java.awt.GradientPaint;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
+import java.awt.Transparency;
 import java.awt.datatransfer.Transferable;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionListener;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.TreeMap;
 import javax.swing.AbstractListModel;
 import javax.swing.DefaultListCellRenderer;
 import javax.swing.DefaultListModel;
@@ -56,7 +55,11 @@ import javax.swing.border.EmptyBorder;
  * painting a dragged item and animating creation of a space for the
  * dragged item to be dropped. 
  * Thanks to Neil Cochran/keilly for a base visualization:
- * http://jroller.com/page/swinguistuff?entry=animated_jlist 
+ * http://jroller.com/page/swinguistuff?entry=animated_jlist <p>
+ * While cells are in motion, only the cells intersecting the painted area
+ * are drawn, each from a rendered strip which is reused until the
+ * animation settles.  Cell locations are kept in arrays indexed by cell,
+ * which are initialized when a drag starts.
  */
 public abstract class ListAnimator extends AbstractComponentDecorator {
 
@@ -107,7 +110,23 @@ public abstract class ListAnimator extends AbstractComponentDecorator {
     /** Index of object being dragged, if any. */
     private int draggedIndex = -1;
     private JList list;
-    private Map bounds = new TreeMap();
+    /** Number of cells with valid entries in the following arrays. */
+    private int cellCount;
+    /** Unanimated location and size of each cell. */
+    private int[] cellX = new int[0];
+    private int[] cellY = new int[0];
+    private int[] cellWidth = new int[0];
+    private int[] cellHeight = new int[0];
+    /** Current (animated) location of each cell. */
+    private int[] currentX = new int[0];
+    private int[] currentY = new int[0];
+    /** Rendered cells, reused while the cells are in motion. */
+    private BufferedImage[] strips = new BufferedImage[0];
+    /** Index and location of the cells painted in the current frame. */
+    private int[] paintedCells = new int[0];
+    /** Whether any cell may not be at its final location. */
+    private boolean animating;
+    private int placeholderHeight = -1;
     private GhostedDragImage dragImage;
     private Point origin;
     
@@ -123,16 +142,44 @@ public abstract class ListAnimator extends AbstractComponentDecorator {
     
     private void initialize(Point where) {
         insertionIndex = draggedIndex = -1;
+        placeholderHeight = -1;
         origin = where;
         int size = list.getModel().getSize();
+        if (cellX.length < size) {
+            cellX = new int[size];
+            cellY = new int[size];
+            cellWidth = new int[size];
+            cellHeight = new int[size];
+            currentX = new int[size];
+            currentY = new int[size];
+            strips = new BufferedImage[size];
+        }
+        updateCellBounds(size);
+        for (int i=0;i < size;i++) {
+            currentX[i] = cellX[i];
+            currentY[i] = cellY[i];
+        }
+        cellCount = size;
+        clearStrips();
+    }
+    /** Fetch the unanimated bounds of all cells from the list. */
+    private void updateCellBounds(int size) {
         for (int i=0;i < size;i++) {
-            bounds.put(new Integer(i), getCellBoundsAfterInsertion(i));
+            Rectangle r = list.getCellBounds(i, i);
+            cellX[i] = r.x;
+            cellY[i] = r.y;
+            cellWidth[i] = r.width;
+            cellHeight[i] = r.height;
         }
     }
+    private void clearStrips() {
+        Arrays.fill(strips, null);
+    }
     /** Track a drag which originated somewhere else. */
     public synchronized void startDragOver(Point where) {
         initialize(where);
         insertionIndex = getIndex(where, false);
+        animating = true;
     }
     /** Stop tracking an external drag. */
     public synchronized void endDragOver(Point where, Transferable t) {
@@ -146,6 +193,7 @@ public abstract class ListAnimator extends AbstractComponentDecorator {
         initialize(where);
         draggedIndex = insertionIndex = getIndex(where, true);
         dragImage = new GhostedDragImage(draggedIndex, origin);
+        animating = true;
     }
     /** End an internal drag. */
     public synchronized void endDrag(Point where) {
@@ -154,47 +202,52 @@ public abstract class ListAnimator extends AbstractComponentDecorator {
         dragImage.dispose();
         dragImage = null;
         draggedIndex = insertionIndex = -1;
+        clearStrips();
+        animating = true;
         if (toIndex != -1 && toIndex != fromIndex) {
-            Map newBounds = new TreeMap();
-            newBounds.put(new Integer(toIndex),
-                          bounds.get(new Integer(fromIndex)));
+            int x = currentX[fromIndex];
+            int y = currentY[fromIndex];
             if (fromIndex < toIndex) {
-                for (int i=fromIndex+1;i <= toIndex;i++) {
-                    newBounds.put(new Integer(i-1),
-                                  bounds.get(new Integer(i)));
-                }
+                System.arraycopy(currentX, fromIndex+1, currentX, fromIndex, toIndex-fromIndex);
+                System.arraycopy(currentY, fromIndex+1, currentY, fromIndex, toIndex-fromIndex);
             }
             else {
-                for (int i=toIndex;i < fromIndex;i++) {
-                    newBounds.put(new Integer(i+1),
-                                  bounds.get(new Integer(i)));
-                }
+                System.arraycopy(currentX, toIndex, currentX, toIndex+1, fromIndex-toIndex);
+                System.arraycopy(currentY, toIndex, currentY, toIndex+1, fromIndex-toIndex);
             }
-            bounds.putAll(newBounds);
+            currentX[toIndex] = x;
+            currentY[toIndex] = y;
             move(fromIndex, toIndex);
+            int size = Math.min(cellCount, list.getModel().getSize());
+            updateCellBounds(size);
+            cellCount = size;
         }
     }
     private boolean reposition() {
+        if (!animating) {
+            return false;
+        }
         boolean changed = false;
-        for (Iterator i=bounds.keySet().iterator();i.hasNext();) {
-            Integer x = (Integer)i.next();
-            Rectangle current = getCurrentCellBounds(x.intValue());
-            Rectangle end = getCellBoundsAfterInsertion(x.intValue());
-            if (current.x != end.x || current.y != end.y) {
-                int xdelta = (end.x - current.x)/2;
-                int ydelta = (end.y - current.y)/2;
+        for (int i=0;i < cellCount;i++) {
+            int endX = cellX[i];
+            int endY = getCellYAfterInsertion(i);
+            if (currentX[i] != endX || currentY[i] != endY) {
+                int xdelta = (endX - currentX[i])/2;
+                int ydelta = (endY - currentY[i])/2;
                 if (xdelta == 0)
-                    current.x = end.x;
+                    currentX[i] = endX;
                 else
-                    current.x += xdelta;
+                    currentX[i] += xdelta;
                 if (ydelta == 0)
-                    current.y = end.y;
+                    currentY[i] = endY;
                 else
-                    current.y += ydelta;
-                bounds.put(x, current);
+                    currentY[i] += ydelta;
                 changed = true;
             }
         }
+        if (!changed && draggedIndex == -1 && insertionIndex == -1) {
+            animating = false;
+        }
         return changed;
     }
     private int getIndex(Point where, boolean restrict) {
@@ -213,67 +266,117 @@ public abstract class ListAnimator extends AbstractComponentDecorator {
     public synchronized void setInsertionLocation(Point where) {
         // Avoid painting focus and/or selection bgs, kind of a hack
         getPainter().requestFocus();
-        list.clearSelection();
+        if (!list.isSelectionEmpty()) {
+            list.clearSelection();
+            clearStrips();
+        }
         setInsertionIndex(getIndex(where, draggedIndex != -1));
         dragImage.setLocation(where);
     }
     public synchronized void setInsertionIndex(int idx) {
         if (idx != insertionIndex) {
             insertionIndex = idx;
+            placeholderHeight = -1;
+            animating = true;
             repaint();
         }
     }
-    private Rectangle getCellBoundsAfterInsertion(int index) {
-        Rectangle r = list.getCellBounds(index, index);
+    private int getPlaceholderHeight() {
+        if (placeholderHeight == -1) {
+            ListCellRenderer rnd = list.getCellRenderer();
+            Component c = rnd.getListCellRendererComponent(list, getPlaceholder(), insertionIndex, false, false);
+            placeholderHeight = c.getHeight();
+        }
+        return placeholderHeight;
+    }
+    /** Returns the final vertical location of the given cell. */
+    private int getCellYAfterInsertion(int index) {
+        int y = cellY[index];
         if (draggedIndex != -1) {
             if (index > draggedIndex) {
                 if (index <= insertionIndex) {
-                    Rectangle r2 = list.getCellBounds(draggedIndex, draggedIndex);
-                    r.y -= r2.height;
+                    y -= cellHeight[draggedIndex];
                 }
             }
             else if (index < draggedIndex) {
                 if (index >= insertionIndex) {
-                    Rectangle r2 = list.getCellBounds(draggedIndex, draggedIndex);
-                    r.y += r2.height;
+                    y += cellHeight[draggedIndex];
                 }
             }
-            else {
-                Rectangle r2 = list.getCellBounds(insertionIndex, insertionIndex);
-                r.y = r2.y;
+            else if (insertionIndex >= 0 && insertionIndex < cellCount) {
+                y = cellY[insertionIndex];
             }
         }
         else if (insertionIndex != -1 && index > insertionIndex) {
-            ListCellRenderer rnd = list.getCellRenderer();
-            Component c = rnd.getListCellRendererComponent(list, getPlaceholder(), insertionIndex, false, false);
-            r.y += c.getHeight();
+            y += getPlaceholderHeight();
         }
-        return r;
+        return y;
     }
-    private Rectangle getCurrentCellBounds(int cellIndex) {
-        Rectangle r = getCellBoundsAfterInsertion(cellIndex);
-        Rectangle r2 = (Rectangle)bounds.get(new Integer(cellIndex));
-        if (r2 != null) {
-            r.x = r2.x;
-            r.y = r2.y;
+    /** Returns the rendered strip for the given cell. */
+    private BufferedImage getStrip(int index) {
+        BufferedImage strip = strips[index];
+        if (strip == null) {
+            int w = Math.max(1, cellWidth[index]);
+            int h = Math.max(1, cellHeight[index]);
+            GraphicsConfiguration gc = list.getGraphicsConfiguration();
+            strip = gc != null
+                ? gc.createCompatibleImage(w, h, Transparency.TRANSLUCENT)
+                : new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = strip.createGraphics();
+            g.setClip(0, 0, w, h);
+            g.translate(0, -cellY[index]);
+            list.paint(g);
+            g.dispose();
+            strips[index] = strip;
         }
-        return r;
+        return strip;
     }
-    public synchronized void paint(Graphics g) {
+    public void paint(Graphics g) {
         boolean db = list.isDoubleBuffered();
         list.setDoubleBuffered(false);
         try { 
             Rectangle b = getDecorationBounds();
             g.setColor(list.getBackground());
             g.fillRect(b.x, b.y, b.width, b.height);
-            for (int i=0;i < list.getModel().getSize();i++) {
-                if (i == draggedIndex)
-                    continue;
-                Rectangle r = getCurrentCellBounds(i);
-                Graphics g2 = g.create(r.x, r.y, r.width, r.height);
-                Rectangle r2 = list.getCellBounds(i, i);
-                ((Graphics2D)g2).translate(0, -r2.y);
-                list.paint(g2);
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) {
+                clip = b;
+            }
+            int clipMinY = clip.y;
+            int clipMaxY = clip.y + clip.height;
+            int count = 0;
+            boolean settled;
+            synchronized(this) {
+                settled = !animating || cellCount != list.getModel().getSize();
+                if (settled) {
+                    clearStrips();
+                }
+                else {
+                    // Collect index and location of the cells which 
+                    // currently intersect the clip
+                    for (int i=0;i < cellCount;i++) {
+                        if (i != draggedIndex
+                            && currentY[i] < clipMaxY 
+                            && currentY[i] + cellHeight[i] > clipMinY) {
+                            if (paintedCells.length < (count+1)*3) {
+                                paintedCells = Arrays.copyOf(paintedCells, (count+1)*6);
+                            }
+                            paintedCells[count*3] = i;
+                            paintedCells[count*3+1] = currentX[i];
+                            paintedCells[count*3+2] = currentY[i];
+                            count++;
+                        }
+                    }
+                }
+            }
+            if (settled) {
+                // Nothing in motion, so the list looks as usual
+                list.paint(g);
+                return;
+            }
+            for (int i=0;i < count;i++) {
+                g.drawImage(getStrip(paintedCells[i*3]), 
+                            paintedCells[i*3+1], paintedCells[i*3+2], null);
             }
         }
         finally {
@@ -27,6 +27,8 @@ import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Shape;
 import java.awt.Window;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.awt.event.ComponentListener;
@@ -40,27 +42,58 @@ import java.awt.geom.Area;
 import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import javax.swing.Icon;
 import javax.swing.JComponent;
 import javax.swing.JLayeredPane;
 import javax.swing.JRootPane;
+import javax.swing.RepaintManager;
 import javax.swing.RootPaneContainer;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 /** Component which scales any given {@link JComponent} into its bounds.
  * The visible portion of the {@link JComponent} (as reported by 
  * {@link JComponent#getVisibleRect}) is drawn as a rectangle in the scaled
  * image.  Dragging the rectangle will move the visible portion of the 
- * panned component within its scrolling context. 
+ * panned component within its scrolling context. <p>
+ * The thumbnail is kept in a downscaled image.  When the default 
+ * {@link RepaintManager} is in use, it is replaced with one which reports
+ * dirty regions of the panned component, and only those regions of the
+ * thumbnail are rendered again, at most {@link #MAX_REFRESH_RATE} times per
+ * second.  The default manager is restored once no displayable panner
+ * remains.  If a custom {@link RepaintManager} is installed, either before
+ * or after, the whole thumbnail is rendered again when painted, at the same
+ * maximum rate.
  */
 public class Panner extends JComponent {
     public static final int MINIMUM_WIDTH = 64;
     public static final int MINIMUM_HEIGHT = 64;
+    /** Maximum number of thumbnail refreshes per second. */
+    public static final int MAX_REFRESH_RATE = 10;
+    private static final int REFRESH_INTERVAL = 1000 / MAX_REFRESH_RATE;
     private static final Color VISIBLE_BOUNDS_COLOR =
         new Color(128, 128, 128, 64);
     private static final Color BORDER_COLOR = Color.black;
     private JComponent panned;
     private ScaledIcon thumbnail;
+    private ComponentIcon thumbnailSource;
+    /** Downscaled rendering of the panned component. */
+    private BufferedImage thumbnailImage;
+    /** Region of the panned component which changed since the last 
+     * refresh of the thumbnail image, in panned component coordinates.
+     */
+    private Rectangle dirtyRegion;
+    private boolean refreshPending;
+    private long lastRefresh;
+    private final Object dirtyLock = new Object();
+    private Timer refreshTimer;
+    /** Reports dirty regions, or null if not available. */
+    private DirtyRegionTracker tracker;
     private float transparency = 0.9f;
     private boolean preserveAspect = true;
     private boolean includeBorder = true;
@@ -81,6 +114,12 @@ public class Panner extends JComponent {
     }
 
     public Panner(JComponent reference) {
+        refreshTimer = new Timer(REFRESH_INTERVAL, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                refreshThumbnailImage();
+            }
+        });
+        refreshTimer.setRepeats(false);
         addMouseListener(new MouseAdapter() {
             public void mousePressed(MouseEvent e) {
                 if (panned != null)
@@ -214,11 +253,17 @@ public class Panner extends JComponent {
             detach();
             oldPanned.removeComponentListener(listener);
         }
+        stopTracking();
         this.panned = panned;
-        thumbnail = new ScaledIcon(new ComponentIcon(panned, includeBorder));
+        thumbnailSource = new ComponentIcon(panned, includeBorder);
+        thumbnail = new ScaledIcon(thumbnailSource);
         thumbnail.setPreserveAspect(preserveAspect);
+        invalidateThumbnailImage();
         setThumbnailSize();
         panned.addComponentListener(listener);
+        if (isDisplayable()) {
+            startTracking();
+        }
         revalidate();
         repaint();
         firePropertyChange("panned", oldPanned, panned);
@@ -326,6 +371,160 @@ public class Panner extends JComponent {
         }
     }
     
+    public void addNotify() {
+        super.addNotify();
+        if (panned != null) {
+            startTracking();
+        }
+    }
+
+    public void removeNotify() {
+        super.removeNotify();
+        stopTracking();
+    }
+
+    /** Start receiving dirty regions of the panned component, if possible. */
+    private void startTracking() {
+        if (tracker == null) {
+            tracker = DirtyRegionTracker.install(panned);
+            if (tracker != null) {
+                tracker.add(this);
+                // Changes were missed while not tracking
+                invalidateThumbnailImage();
+            }
+        }
+    }
+
+    private void stopTracking() {
+        if (tracker != null) {
+            tracker.remove(this);
+            tracker = null;
+        }
+    }
+
+    /** Returns whether dirty regions of the panned component are still
+     * reported, i.e. no other repaint manager has replaced the tracker.
+     */
+    private boolean isTracking() {
+        return tracker != null 
+            && RepaintManager.currentManager(panned) == tracker;
+    }
+
+    private void invalidateThumbnailImage() {
+        thumbnailImage = null;
+        synchronized(dirtyLock) {
+            dirtyRegion = null;
+        }
+    }
+
+    /** Record a changed region of the panned component, given in panned
+     * component coordinates, and schedule a refresh of the thumbnail image.
+     * May be invoked from any thread.
+     */
+    private void addDirtyRegion(Rectangle region) {
+        synchronized(dirtyLock) {
+            if (dirtyRegion == null) {
+                dirtyRegion = new Rectangle(region);
+            }
+            else {
+                dirtyRegion.add(region);
+            }
+            if (!refreshPending) {
+                refreshPending = true;
+                long elapsed = System.currentTimeMillis() - lastRefresh;
+                int delay = (int)Math.max(0, REFRESH_INTERVAL - elapsed);
+                refreshTimer.setInitialDelay(delay);
+                refreshTimer.start();
+            }
+        }
+    }
+
+    /** Render the dirty region into the thumbnail image. */
+    private void refreshThumbnailImage() {
+        Rectangle region;
+        synchronized(dirtyLock) {
+            region = dirtyRegion;
+            dirtyRegion = null;
+            refreshPending = false;
+        }
+        lastRefresh = System.currentTimeMillis();
+        if (region != null && thumbnailImage != null) {
+            renderThumbnailImage(region);
+            repaint();
+        }
+    }
+
+    /** Returns the current thumbnail image, rendering it completely if it
+     * is missing or has the wrong size.  Returns null if the thumbnail is 
+     * empty.
+     */
+    private BufferedImage getThumbnailImage() {
+        int w = thumbnail.getIconWidth();
+        int h = thumbnail.getIconHeight();
+        if (w <= 0 || h <= 0
+            || thumbnailSource.getIconWidth() <= 0
+            || thumbnailSource.getIconHeight() <= 0) {
+            return null;
+        }
+        boolean stale = !isTracking()
+            && System.currentTimeMillis() - lastRefresh >= REFRESH_INTERVAL;
+        if (thumbnailImage == null 
+            || thumbnailImage.getWidth() != w
+            || thumbnailImage.getHeight() != h
+            || stale) {
+            if (thumbnailImage == null 
+                || thumbnailImage.getWidth() != w
+                || thumbnailImage.getHeight() != h) {
+                thumbnailImage = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            }
+            synchronized(dirtyLock) {
+                dirtyRegion = null;
+            }
+            lastRefresh = System.currentTimeMillis();
+            renderThumbnailImage(null);
+        }
+        return thumbnailImage;
+    }
+
+    /** Render the given region of the panned component (in panned 
+     * component coordinates) into the thumbnail image, or the whole 
+     * thumbnail if the region is null.
+     */
+    private void renderThumbnailImage(Rectangle region) {
+        BufferedImage image = thumbnailImage;
+        double xscale = (double)image.getWidth() / thumbnailSource.getIconWidth();
+        double yscale = (double)image.getHeight() / thumbnailSource.getIconHeight();
+        Graphics2D g = image.createGraphics();
+        try {
+            if (region != null) {
+                // Convert to thumbnail source coordinates
+                int x = region.x;
+                int y = region.y;
+                if (!thumbnailSource.isBorderIncluded()) {
+                    Insets insets = panned.getInsets();
+                    x -= insets.left;
+                    y -= insets.top;
+                }
+                // Include neighboring pixels affected by the scaling
+                int x0 = (int)Math.floor(x * xscale) - 1;
+                int y0 = (int)Math.floor(y * yscale) - 1;
+                int x1 = (int)Math.ceil((x + region.width) * xscale) + 1;
+                int y1 = (int)Math.ceil((y + region.height) * yscale) + 1;
+                g.clipRect(x0, y0, x1 - x0, y1 - y0);
+            }
+            g.setComposite(AlphaComposite.Clear);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.setComposite(AlphaComposite.SrcOver);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING,
+                               RenderingHints.VALUE_RENDER_QUALITY);
+            g.scale(xscale, yscale);
+            thumbnailSource.paintIcon(this, g, 0, 0);
+        }
+        finally {
+            g.dispose();
+        }
+    }
+
     /** Paint the panned component in a thumbnail. */
     public void paint(Graphics g) {
         Graphics2D g2d = (Graphics2D)g;
@@ -343,7 +542,13 @@ public class Panner extends JComponent {
             try {
                 Area mask = new Area(bounds);
                 g2d.setClip(mask);
-                thumbnail.paintIcon(this, g2d, bounds.x, bounds.y);
+                BufferedImage image = getThumbnailImage();
+                if (image != null) {
+                    g2d.drawImage(image, bounds.x, bounds.y, null);
+                }
+                else {
+                    thumbnail.paintIcon(this, g2d, bounds.x, bounds.y);
+                }
             }
             finally {
                 g2d.setClip(oldClip);
@@ -390,6 +595,7 @@ public class Panner extends JComponent {
             }
         }
         public void componentResized(ComponentEvent e) {
+            invalidateThumbnailImage();
             setThumbnailSize();
             revalidate();
             repaint();
@@ -399,4 +605,83 @@ public class Panner extends JComponent {
             repaint();
         }
     }
+
+    /** Repaint manager which additionally reports dirty regions of 
+     * panned components to their {@link Panner}s.
+     */
+    private static final class DirtyRegionTracker extends RepaintManager {
+        private final Map panners = new WeakHashMap();
+        /** The repaint manager replaced by this one. */
+        private RepaintManager previous;
+
+        /** Install the tracker as the repaint manager for the given component,
+         * if that is the default repaint manager.  Returns null if a custom
+         * repaint manager is installed.
+         */
+        public static DirtyRegionTracker install(JComponent c) {
+            RepaintManager current = RepaintManager.currentManager(c);
+            if (current instanceof DirtyRegionTracker) {
+                return (DirtyRegionTracker)current;
+            }
+            if (current.getClass() != RepaintManager.class) {
+                return null;
+            }
+            DirtyRegionTracker tracker = new DirtyRegionTracker();
+            tracker.setDoubleBufferingEnabled(current.isDoubleBufferingEnabled());
+            tracker.setDoubleBufferMaximumSize(current.getDoubleBufferMaximumSize());
+            tracker.previous = current;
+            RepaintManager.setCurrentManager(tracker);
+            return tracker;
+        }
+
+        public void add(Panner panner) {
+            synchronized(panners) {
+                panners.put(panner, Boolean.TRUE);
+            }
+        }
+
+        /** Remove the given panner, restoring the previous repaint manager
+         * if no panners remain and the tracker is still installed.
+         */
+        public void remove(Panner panner) {
+            synchronized(panners) {
+                panners.remove(panner);
+                if (!panners.isEmpty()) {
+                    return;
+                }
+            }
+            if (RepaintManager.currentManager(panner) == this) {
+                RepaintManager.setCurrentManager(previous);
+            }
+        }
+
+        public void addDirtyRegion(JComponent c, int x, int y, int w, int h) {
+            super.addDirtyRegion(c, x, y, w, h);
+            if (w <= 0 || h <= 0) {
+                return;
+            }
+            List targets;
+            synchronized(panners) {
+                if (panners.isEmpty()) {
+                    return;
+                }
+                targets = new ArrayList(panners.keySet());
+            }
+            for (Iterator i=targets.iterator();i.hasNext();) {
+                Panner panner = (Panner)i.next();
+                JComponent panned = panner.panned;
+                if (panned == null
+                    || c == panner 
+                    || SwingUtilities.isDescendingFrom(c, panner)
+                    || !(c == panned || SwingUtilities.isDescendingFrom(c, panned))) {
+                    continue;
+                }
+                Rectangle r = SwingUtilities.convertRectangle(c, new Rectangle(x, y, w, h), panned);
+                r = r.intersection(new Rectangle(0, 0, panned.getWidth(), panned.getHeight()));
+                if (!r.isEmpty()) {
+                    panner.addDirtyRegion(r);
+                }
+            }
+        }
+    }
 }
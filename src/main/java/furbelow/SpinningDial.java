@@ -18,23 +18,38 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.Image;
 import java.awt.RenderingHints;
 import java.awt.Transparency;
 import java.awt.image.BufferedImage;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
 
-/** Provides a spinning disk of hash marks. */
+/** Provides a spinning disk of hash marks.  Rendered frames are shared by
+ * all dials with the same class, size, spoke count, stroke and graphics
+ * configuration, for as long as any of those dials is in use.
+ */
 public class SpinningDial extends AbstractAnimatedIcon {
     private static final int MIN_ALPHA = 32;
     private static final int DEFAULT_SIZE = 32;
     private static final int SPOKES = 16;
+    private static final int FULL_SIZE = 256;
     /** This is a good delay between increasing the phase. */
     public static final int SPIN_INTERVAL = 1000/SPOKES;
+    /** Maps the appearance of a dial to a weak reference to its frames. */
+    private static final Map atlas = new HashMap();
     private int w;
     private int h;
     private Image[] frames;
+    private GraphicsConfiguration framesConfig;
 
     public SpinningDial() {
         this(DEFAULT_SIZE, DEFAULT_SIZE);
@@ -47,7 +62,6 @@ public class SpinningDial extends AbstractAnimatedIcon {
         super(spokes, SPIN_INTERVAL);
         this.w = w;
         this.h = h;
-        frames = new Image[getFrameCount()];
     }
     public int getIconHeight() {
         return h;
@@ -60,22 +74,53 @@ public class SpinningDial extends AbstractAnimatedIcon {
         return size/16f;
     }
     
+    /** Returns the frames for the given configuration, shared with
+     * other dials which look the same.  Frames are rendered on demand.
+     */
+    private Image[] getFrames(GraphicsConfiguration gc) {
+        if (frames == null || gc != framesConfig) {
+            List key = Arrays.asList(new Object[] {
+                getClass(), Integer.valueOf(getIconWidth()), 
+                Integer.valueOf(getIconHeight()), Integer.valueOf(getFrameCount()),
+                Float.valueOf(getStrokeWidth(FULL_SIZE)), gc,
+            });
+            synchronized(atlas) {
+                Reference ref = (Reference)atlas.get(key);
+                Image[] shared = ref != null ? (Image[])ref.get() : null;
+                if (shared == null) {
+                    // Drop frames no longer used by any dial
+                    for (Iterator i=atlas.values().iterator();i.hasNext();) {
+                        if (((Reference)i.next()).get() == null) {
+                            i.remove();
+                        }
+                    }
+                    shared = new Image[getFrameCount()];
+                    atlas.put(key, new WeakReference(shared));
+                }
+                frames = shared;
+                framesConfig = gc;
+            }
+        }
+        return frames;
+    }
+
     // TODO: move image snapshot up to abstract class
     protected void paintFrame(Component c, Graphics graphics, int x, int y) {
         int idx = getFrame();
+        GraphicsConfiguration gc = c != null ? c.getGraphicsConfiguration() : null;
+        Image[] frames = getFrames(gc);
         if (frames[idx] == null) {
             int w = getIconWidth();
             int h = getIconHeight();
             int size = Math.min(w, h);
-            Image image = c != null 
-                ? c.getGraphicsConfiguration().createCompatibleImage(w, h, Transparency.TRANSLUCENT)
+            Image image = gc != null 
+                ? gc.createCompatibleImage(w, h, Transparency.TRANSLUCENT)
                 : new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
             Graphics2D g = (Graphics2D)image.getGraphics();
             g.setComposite(AlphaComposite.Clear);
             g.fillRect(0, 0, w, h);
             g.setComposite(AlphaComposite.Src);
             g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            final int FULL_SIZE = 256;
             float strokeWidth = getStrokeWidth(FULL_SIZE);
             float fraction = .6f;
             g.setStroke(new BasicStroke(strokeWidth,
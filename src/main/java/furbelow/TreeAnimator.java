@@ -19,6 +19,7 @@ import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionListener;
+import java.awt.image.BufferedImage;
 import java.util.*;
 import java.util.Timer;
 import javax.swing.*;
@@ -26,12 +27,17 @@ import javax.swing.tree.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.event.TreeExpansionEvent;
 import javax.swing.event.TreeExpansionListener;
+import javax.swing.event.TreeSelectionEvent;
+import javax.swing.event.TreeSelectionListener;
 
 /**
  * Animates moving tree cells out of the way for a potential drop. This
  * decorator completely over-paints the target JTree, optionally
  * painting a dragged item and animating creation of a space for the
- * dragged item to be dropped.
+ * dragged item to be dropped.<p>
+ * While rows are in motion, the tree is rendered once into an image, and
+ * each frame is composited from strips of that image.  When all rows have
+ * reached their final location, the tree is painted directly.
  */
 // TODO: limit drag to below root node, if visible
 // TODO: spring-loaded folders: how to drop on/before
@@ -154,6 +160,16 @@ public class TreeAnimator extends AbstractComponentDecorator implements TreeExpa
     private GhostedDragImage dragImage;
     private Point origin;
     private boolean dragActive;
+    /** Rendering of the tree used to composite animation frames. */
+    private BufferedImage treeImage;
+    /** Area of the tree covered by {@link #treeImage}. */
+    private Rectangle treeImageBounds;
+    private int treeImageRowCount;
+    private TreeSelectionListener selectionListener = new TreeSelectionListener() {
+        public void valueChanged(TreeSelectionEvent e) {
+            invalidateTreeImage();
+        }
+    };
 
     public TreeAnimator(final JTree tree) {
         super(tree);
@@ -241,6 +257,7 @@ public class TreeAnimator extends AbstractComponentDecorator implements TreeExpa
                 bounds.put(path, new Rectangle(rect));
             }
         }
+        invalidateTreeImage();
         repaint();
     }
     
@@ -253,13 +270,19 @@ public class TreeAnimator extends AbstractComponentDecorator implements TreeExpa
                 }
             }
         }
+        invalidateTreeImage();
         repaint();
     }
     
     public void setVisible(boolean visible) {
         super.setVisible(visible);
         if (visible) {
+            // This may be invoked repeatedly while the decorator is 
+            // already visible
+            tree.removeTreeExpansionListener(this);
             tree.addTreeExpansionListener(this);
+            tree.removeTreeSelectionListener(selectionListener);
+            tree.addTreeSelectionListener(selectionListener);
             int size = tree.getRowCount();
             synchronized(bounds) {
                 for (int i = 0; i < size; i++) {
@@ -267,14 +290,19 @@ public class TreeAnimator extends AbstractComponentDecorator implements TreeExpa
                     bounds.put(path, getProjectedPathBounds(path));
                 }
             }
+            if (counter != null) {
+                counter.cancel();
+            }
             counter = new Counter();
             timer.schedule(counter, INTERVAL, INTERVAL);
         }
         else {
             tree.removeTreeExpansionListener(this);
+            tree.removeTreeSelectionListener(selectionListener);
             synchronized(bounds) {
                 bounds.clear();
             }
+            invalidateTreeImage();
             if (counter != null) {
                 counter.cancel();
                 counter = null;
@@ -299,6 +327,7 @@ public class TreeAnimator extends AbstractComponentDecorator implements TreeExpa
             && (loc.placeholderRow != draggedRow
                 || !loc.parentPath.equals(draggedPath.getParentPath()))) {
             moveNode(draggedPath, loc.parentPath, loc.index);
+            invalidateTreeImage();
             synchronized(bounds) {
                 // Set the dragged item's location to the current ghost location
                 bounds.put(tree.getPathForRow(loc.placeholderRow), ghostBounds);
@@ -310,6 +339,8 @@ public class TreeAnimator extends AbstractComponentDecorator implements TreeExpa
     
     public void dispose() {
         tree.removeTreeExpansionListener(this);
+        tree.removeTreeSelectionListener(selectionListener);
+        invalidateTreeImage();
         super.dispose();
     }
 
@@ -546,6 +577,92 @@ public class TreeAnimator extends AbstractComponentDecorator implements TreeExpa
         }
     }
 
+    /** Returns whether all rows are painted at their actual location. */
+    private boolean isSettled() {
+        if (draggedPath != null) {
+            return false;
+        }
+        synchronized(bounds) {
+            for (Iterator i=bounds.entrySet().iterator();i.hasNext();) {
+                Map.Entry entry = (Map.Entry)i.next();
+                Rectangle current = (Rectangle)entry.getValue();
+                Rectangle actual = tree.getPathBounds((TreePath)entry.getKey());
+                if (actual == null || current == null
+                    || current.x != actual.x || current.y != actual.y) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void invalidateTreeImage() {
+        treeImage = null;
+        treeImageBounds = null;
+    }
+
+    /** Ensure the tree image covers the visible part of the tree, plus
+     * one visible height above and below, which is where rows in motion
+     * are usually taken from.
+     */
+    private void validateTreeImage() {
+        Rectangle visible = tree.getVisibleRect();
+        if (treeImage != null
+            && treeImageBounds.width == tree.getWidth()
+            && treeImageRowCount == tree.getRowCount()
+            && treeImageBounds.contains(visible)) {
+            return;
+        }
+        invalidateTreeImage();
+        Rectangle region = new Rectangle(0, visible.y - visible.height,
+                                         tree.getWidth(), visible.height * 3);
+        region = region.intersection(new Rectangle(0, 0, tree.getWidth(), 
+                                                   tree.getHeight()));
+        if (region.isEmpty()) {
+            return;
+        }
+        GraphicsConfiguration gc = tree.getGraphicsConfiguration();
+        BufferedImage image = gc != null
+            ? gc.createCompatibleImage(region.width, region.height)
+            : new BufferedImage(region.width, region.height, 
+                                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(tree.getBackground());
+        g.fillRect(0, 0, region.width, region.height);
+        g.translate(-region.x, -region.y);
+        g.setClip(region);
+        tree.paint(g);
+        g.dispose();
+        treeImage = image;
+        treeImageBounds = region;
+        treeImageRowCount = tree.getRowCount();
+    }
+
+    /** Paint the tree contents found at srcY with the given height into
+     * the area at dstY with the given height, stretching if necessary.
+     */
+    private void paintStrip(Graphics g, int width, int srcY, int srcHeight, 
+                            int dstY, int dstHeight) {
+        if (treeImage != null
+            && srcY >= treeImageBounds.y
+            && srcY + srcHeight <= treeImageBounds.y + treeImageBounds.height) {
+            int sy = srcY - treeImageBounds.y;
+            width = Math.min(width, treeImageBounds.width);
+            g.drawImage(treeImage, 0, dstY, width, dstY + dstHeight,
+                        0, sy, width, sy + srcHeight, null);
+        }
+        else {
+            // Not cached, paint the tree directly
+            for (int y=0;y < dstHeight;y += srcHeight) {
+                int h = Math.min(srcHeight, dstHeight - y);
+                Graphics g2 = g.create(0, dstY + y, width, h);
+                ((Graphics2D)g2).translate(0, -srcY);
+                tree.paint(g2);
+                g2.dispose();
+            }
+        }
+    }
+
     public void paint(Graphics g) {
         boolean db = tree.isDoubleBuffered();
         tree.setDoubleBuffered(false);
@@ -553,6 +670,21 @@ public class TreeAnimator extends AbstractComponentDecorator implements TreeExpa
             Rectangle b = getDecorationBounds();
             g.setColor(tree.getBackground());
             g.fillRect(b.x, b.y, b.width, b.height);
+            if (isSettled()) {
+                // Nothing in motion, so the tree looks as usual
+                invalidateTreeImage();
+                tree.paint(g);
+                if (counter != null)
+                    counter.painted();
+                return;
+            }
+            validateTreeImage();
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) {
+                clip = b;
+            }
+            int clipMinY = clip.y;
+            int clipMaxY = clip.y + clip.height;
             int prevIndex = -1;
             Rectangle prevBounds = null;
             // Draw last to first, to avoid having children occlude parents
@@ -563,26 +695,23 @@ public class TreeAnimator extends AbstractComponentDecorator implements TreeExpa
                     continue;
                 }
                 // visible bounds of the row (may be in motion)
-                Rectangle visibleBounds = getCurrentCellBounds(tree.getPathForRow(i));
-                // actual offset of the row in the tree
-                Rectangle treeRowBounds = tree.getRowBounds(i);
+                Rectangle visibleBounds = getCurrentCellBounds(path);
+                int visibleMaxY = visibleBounds.y + visibleBounds.height;
                 // If there's a gap between the previous and current rows,
                 // repeat the left-most graphics of the current row in the gap
-                if (prevIndex != -1 && prevBounds.y > visibleBounds.y + visibleBounds.height) {
-                    Rectangle space = 
-                        new Rectangle(0, visibleBounds.y + visibleBounds.height, 
-                                      prevBounds.x, prevBounds.y - visibleBounds.y - visibleBounds.height);
+                if (prevIndex != -1 && prevBounds.y > visibleMaxY
+                    && visibleMaxY < clipMaxY && prevBounds.y > clipMinY) {
                     Rectangle prevTreeRowBounds = tree.getRowBounds(prevIndex);
-                    for (int j = 0; j < space.height; j++) {
-                        Graphics g2 = g.create(space.x, space.y + j,
-                                               space.width, 1);
-                        ((Graphics2D)g2).translate(0, -prevTreeRowBounds.y - 1);
-                        tree.paint(g2);
-                    }
+                    paintStrip(g, prevBounds.x, prevTreeRowBounds.y + 1, 1,
+                               visibleMaxY, prevBounds.y - visibleMaxY);
+                }
+                if (visibleBounds.y < clipMaxY && visibleMaxY > clipMinY) {
+                    // actual offset of the row in the tree
+                    Rectangle treeRowBounds = tree.getRowBounds(i);
+                    paintStrip(g, visibleBounds.x + visibleBounds.width,
+                               treeRowBounds.y, visibleBounds.height,
+                               visibleBounds.y, visibleBounds.height);
                 }
-                Graphics g2 = g.create(0, visibleBounds.y, visibleBounds.x + visibleBounds.width, visibleBounds.height);
-                ((Graphics2D)g2).translate(0, -treeRowBounds.y);
-                tree.paint(g2);
                 prevIndex = i;
                 prevBounds = visibleBounds;
             }